@@ -27,6 +27,22 @@ android {
         sourceCompatibility = JavaVersion.VERSION_17
         targetCompatibility = JavaVersion.VERSION_17
     }
+    testOptions {
+        unitTests.isIncludeAndroidResources = true
+    }
+}
+
+// TaskPersistenceBenchmark and the TimingWheelTest measurement only run with -Pbenchmark
+tasks.withType<Test>().configureEach {
+    systemProperty("benchmark.enabled", project.hasProperty("benchmark"))
+    systemProperty("benchmark.recordBaseline", project.hasProperty("benchmark.recordBaseline"))
+    systemProperty("benchmark.outputFile",
+            layout.buildDirectory.file("benchmarks/task-persistence.json").get().asFile.path)
+    systemProperty("benchmark.baselineFile", file("benchmarks/task-persistence-baseline.json").path)
+    project.findProperty("benchmark.sizes")?.let { systemProperty("benchmark.sizes", it) }
+    project.findProperty("benchmark.maxRatio")?.let { systemProperty("benchmark.maxRatio", it) }
+    // Holding 100k tasks in memory needs more than the default test heap
+    maxHeapSize = "2g"
 }
 
 dependencies {
@@ -41,6 +57,7 @@ dependencies {
 
     // Testing dependencies
     testImplementation("junit:junit:4.13.2")
+    testImplementation("org.robolectric:robolectric:4.12.2")
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.5.1")
 }
@@ -0,0 +1,196 @@
+package me.zubair.taskmanager.database;
+
+import android.net.Uri;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stand-in for the task sync server: a single-threaded HTTP/1.1 server on the
+ * loopback interface that keeps every pushed change in an in-memory log. Pulls
+ * return the log after a position, minus the asking device's own changes.
+ */
+final class LocalSyncServer implements Runnable {
+    private final ServerSocket serverSocket;
+    private final Thread thread;
+    private final int pageSize;
+
+    // Each entry is a pushed change plus the pushing device; its log position is index + 1
+    private final List<JSONObject> log = new ArrayList<>();
+    private final List<String> logDevices = new ArrayList<>();
+    private final List<JSONArray> pushedBatches = new ArrayList<>();
+    private long compressedBytesReceived;
+
+    LocalSyncServer(int pageSize) throws IOException {
+        this.pageSize = pageSize;
+        serverSocket = new ServerSocket(0, 16, InetAddress.getByName("127.0.0.1"));
+        thread = new Thread(this, "LocalSyncServer");
+        thread.start();
+    }
+
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/sync";
+    }
+
+    /**
+     * @return Change arrays of every push, oldest first
+     */
+    synchronized List<JSONArray> getPushedBatches() {
+        return new ArrayList<>(pushedBatches);
+    }
+
+    synchronized long getCompressedBytesReceived() {
+        return compressedBytesReceived;
+    }
+
+    void close() throws IOException, InterruptedException {
+        serverSocket.close();
+        thread.join();
+    }
+
+    @Override
+    public void run() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                handle(socket);
+            } catch (IOException | JSONException e) {
+                // Closing the server socket ends the loop; anything else fails the request only
+            }
+        }
+    }
+
+    private void handle(Socket socket) throws IOException, JSONException {
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        String[] requestLine = readLine(in).split(" ");
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+        }
+
+        byte[] body = new byte[headers.containsKey("content-length")
+                ? Integer.parseInt(headers.get("content-length")) : 0];
+        int offset = 0;
+        while (offset < body.length) {
+            int read = in.read(body, offset, body.length - offset);
+            if (read == -1) {
+                throw new IOException("Truncated request body");
+            }
+            offset += read;
+        }
+
+        Uri uri = Uri.parse(requestLine[1]);
+        JSONObject response;
+        if ("POST".equals(requestLine[0]) && uri.getPath().endsWith("/push")) {
+            synchronized (this) {
+                compressedBytesReceived += body.length;
+            }
+            InputStream bodyStream = new ByteArrayInputStream(body);
+            if ("gzip".equalsIgnoreCase(headers.get("content-encoding"))) {
+                bodyStream = new GZIPInputStream(bodyStream);
+            }
+            response = push(new JSONObject(readFully(bodyStream)));
+        } else if ("GET".equals(requestLine[0]) && uri.getPath().endsWith("/pull")) {
+            response = pull(Long.parseLong(uri.getQueryParameter("since")), uri.getQueryParameter("device"));
+        } else {
+            writeResponse(socket.getOutputStream(), "404 Not Found", new byte[0], false);
+            return;
+        }
+
+        String acceptEncoding = headers.get("accept-encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        byte[] payload = response.toString().getBytes(StandardCharsets.UTF_8);
+        writeResponse(socket.getOutputStream(), "200 OK", gzip ? gzip(payload) : payload, gzip);
+    }
+
+    private synchronized JSONObject push(JSONObject request) throws JSONException {
+        String device = request.getString("device");
+        JSONArray changes = request.getJSONArray("changes");
+        pushedBatches.add(changes);
+
+        long ack = 0;
+        for (int i = 0; i < changes.length(); i++) {
+            JSONObject change = changes.getJSONObject(i);
+            log.add(change);
+            logDevices.add(device);
+            ack = Math.max(ack, change.getLong("seq"));
+        }
+        return new JSONObject().put("ack", ack);
+    }
+
+    private synchronized JSONObject pull(long since, String device) throws JSONException {
+        JSONArray changes = new JSONArray();
+        long cursor = since;
+        while (cursor < log.size() && changes.length() < pageSize) {
+            if (!logDevices.get((int) cursor).equals(device)) {
+                changes.put(log.get((int) cursor));
+            }
+            cursor++;
+        }
+        return new JSONObject()
+                .put("changes", changes)
+                .put("cursor", cursor)
+                .put("more", cursor < log.size());
+    }
+
+    private static void writeResponse(OutputStream out, String status, byte[] body, boolean gzip)
+            throws IOException {
+        String head = "HTTP/1.1 " + status + "\r\n" +
+                "Content-Type: application/json\r\n" +
+                (gzip ? "Content-Encoding: gzip\r\n" : "") +
+                "Content-Length: " + body.length + "\r\n" +
+                "Connection: close\r\n\r\n";
+        out.write(head.getBytes(StandardCharsets.US_ASCII));
+        out.write(body);
+        out.flush();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(data);
+        }
+        return bytes.toByteArray();
+    }
+}
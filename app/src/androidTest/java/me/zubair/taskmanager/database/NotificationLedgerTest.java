@@ -0,0 +1,121 @@
+package me.zubair.taskmanager.database;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import me.zubair.taskmanager.models.Task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the notification ledger hides delivered tasks from the delivery
+ * scan until their due date moves, and that the scan probes it by primary key.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NotificationLedgerTest {
+    private static final String DATABASE_NAME = "tasks_ledger_test.db";
+    private static final long MINUTE = 60L * 1000;
+    private static final long NOW = 1735732800000L;
+    private static final int DUE = TaskContract.NotificationLedgerEntry.KIND_DUE;
+    private static final int REMINDER = TaskContract.NotificationLedgerEntry.KIND_REMINDER;
+
+    private Context context;
+    private TaskDbHelper dbHelper;
+    private TaskRepository repository;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        dbHelper = new TaskDbHelper(context, DATABASE_NAME);
+        repository = new TaskRepository(dbHelper);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void deliveredTasks_areSkippedPerKind() {
+        repository.addTask(new Task("Standup", null, NOW - 5 * MINUTE, Task.PRIORITY_HIGH, false));
+        repository.addTask(new Task("Review", null, NOW - 2 * MINUTE, Task.PRIORITY_LOW, false));
+
+        List<Task> due = repository.getUndeliveredTasksDueBetween(DUE, NOW - 60 * MINUTE, NOW);
+        assertEquals(2, due.size());
+        assertEquals(2, repository.recordNotificationsDelivered(DUE, due, NOW));
+
+        // A second scan of the same window, as after a lost last-check time, finds nothing
+        assertTrue(repository.getUndeliveredTasksDueBetween(DUE, NOW - 60 * MINUTE, NOW).isEmpty());
+        assertEquals(0, repository.recordNotificationsDelivered(DUE, due, NOW));
+        // Other kinds keep their own entries
+        assertEquals(2, repository.getUndeliveredTasksDueBetween(REMINDER, NOW - 60 * MINUTE, NOW).size());
+
+        assertEquals(1, repository.recordNotificationDismissed(due.get(0).getId(), NOW + MINUTE));
+        assertEquals(0, repository.recordNotificationDismissed(due.get(0).getId(), NOW + 2 * MINUTE));
+    }
+
+    @Test
+    public void movedDueDate_isOwedAgain() {
+        long taskId = repository.addTask(new Task("Call", null, NOW - MINUTE, Task.PRIORITY_MEDIUM, false));
+        List<Task> due = repository.getUndeliveredTasksDueBetween(DUE, NOW - 60 * MINUTE, NOW);
+        repository.recordNotificationsDelivered(DUE, due, NOW);
+
+        Task task = repository.getTaskById(taskId);
+        task.setDueDate(NOW + 10 * MINUTE);
+        repository.updateTask(task);
+
+        List<Task> later = repository.getUndeliveredTasksDueBetween(DUE, NOW, NOW + 60 * MINUTE);
+        assertEquals(1, later.size());
+        assertEquals(taskId, later.get(0).getId());
+        // The entry for the old due date went with the update
+        assertEquals(0, ledgerRows());
+    }
+
+    @Test
+    public void purgedTasks_leaveNoEntries() {
+        long taskId = repository.addTask(new Task("Old", null, NOW - MINUTE, Task.PRIORITY_LOW, false));
+        repository.recordNotificationsDelivered(DUE,
+                repository.getUndeliveredTasksDueBetween(DUE, NOW - 60 * MINUTE, NOW), NOW);
+        assertEquals(1, ledgerRows());
+        // The newest task is never purged, so keep a later one around
+        repository.addTask(new Task("New", null, NOW + MINUTE, Task.PRIORITY_LOW, false));
+
+        repository.deleteTask(taskId);
+        repository.purgeTasks(new long[] { taskId });
+        assertEquals(0, ledgerRows());
+    }
+
+    @Test
+    public void undeliveredScan_probesLedgerByPrimaryKey() {
+        for (TaskDbHelper.QueryPlanCheck check : migration(9).queryPlanChecks) {
+            assertTrue(check.sql, check.isSatisfied(dbHelper.getReadableDatabase()));
+        }
+    }
+
+    private long ledgerRows() {
+        return DatabaseUtils.queryNumEntries(dbHelper.getReadableDatabase(),
+                TaskContract.NotificationLedgerEntry.TABLE_NAME);
+    }
+
+    private static TaskDbHelper.Migration migration(int version) {
+        for (TaskDbHelper.Migration migration : TaskDbHelper.MIGRATIONS) {
+            if (migration.version == version) {
+                return migration;
+            }
+        }
+        throw new AssertionError("No migration " + version);
+    }
+}
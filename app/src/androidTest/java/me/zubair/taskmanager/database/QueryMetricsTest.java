@@ -0,0 +1,78 @@
+package me.zubair.taskmanager.database;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks histogram percentiles, row counting and the slow-query ring buffer.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryMetricsTest {
+
+    @Test
+    public void record_countsRowsAndCalls() {
+        QueryMetrics metrics = new QueryMetrics();
+        long now = System.nanoTime();
+        metrics.record("getTasks", now, Arrays.asList("a", "b", "c"));
+        metrics.record("getTasks", now, new long[]{1, 2});
+        metrics.record("deleteTask", now, 1);
+
+        List<QueryMetrics.OperationStats> stats = metrics.getOperationStats();
+        assertEquals(2, stats.size());
+        assertEquals("deleteTask", stats.get(0).name);
+        assertEquals(2, stats.get(1).getCount());
+        assertEquals(5, stats.get(1).getRows());
+        // Instrumentation tests run off the main thread
+        assertEquals(0, stats.get(1).getMainThreadCount());
+    }
+
+    @Test
+    public void percentiles_followBuckets() {
+        QueryMetrics metrics = new QueryMetrics();
+        metrics.setSlowThresholdMillis(Long.MAX_VALUE / 2_000_000);
+        // 90 fast calls of ~10us and 10 slow calls of ~5ms
+        for (int i = 0; i < 90; i++) {
+            metrics.record("query", System.nanoTime() - TimeUnit.MICROSECONDS.toNanos(10), 0);
+        }
+        for (int i = 0; i < 10; i++) {
+            metrics.record("query", System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5), 0);
+        }
+
+        QueryMetrics.OperationStats stats = metrics.getOperationStats().get(0);
+        assertTrue(stats.getPercentileMicros(50) < 1000);
+        assertTrue(stats.getPercentileMicros(95) >= 5000);
+        assertTrue(metrics.getSlowQueries().isEmpty());
+    }
+
+    @Test
+    public void slowLog_keepsNewestEntries() throws Exception {
+        QueryMetrics metrics = new QueryMetrics();
+        metrics.setSlowThresholdMillis(0);
+        for (int i = 0; i < 100; i++) {
+            metrics.record("op" + i, System.nanoTime(), i);
+        }
+
+        List<QueryMetrics.SlowQuery> slow = metrics.getSlowQueries();
+        assertEquals(64, slow.size());
+        assertEquals("op36", slow.get(0).operation);
+        assertEquals("op99", slow.get(slow.size() - 1).operation);
+
+        StringWriter json = new StringWriter();
+        metrics.writeJson(json);
+        assertTrue(json.toString().contains("\"slow_queries_total\": 100"));
+
+        metrics.reset();
+        assertTrue(metrics.getSlowQueries().isEmpty());
+        assertTrue(metrics.getOperationStats().isEmpty());
+    }
+}
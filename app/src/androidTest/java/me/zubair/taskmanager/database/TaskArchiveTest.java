@@ -0,0 +1,139 @@
+package me.zubair.taskmanager.database;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import me.zubair.taskmanager.models.Task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that archiving moves only old completed tasks, that each scope reads
+ * the right tables, that counts and the sync journal are unaffected, and that
+ * archived IDs are never handed to new tasks.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskArchiveTest {
+    private static final String DATABASE_NAME = "tasks_archive_test.db";
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private Context context;
+    private TaskDbHelper dbHelper;
+    private TaskRepository repository;
+    private long now;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        dbHelper = new TaskDbHelper(context, DATABASE_NAME);
+        repository = new TaskRepository(dbHelper);
+        now = System.currentTimeMillis();
+
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // Even tasks are completed; the first six are 100 days old
+            Task task = new Task("Task " + i, null, now - (i < 6 ? 100 : 1) * DAY, Task.PRIORITY_LOW, i % 2 == 0);
+            task.setCreatedAt(now - 200 * DAY);
+            tasks.add(task);
+        }
+        repository.addTasks(tasks);
+        repository.acknowledgeChanges(Long.MAX_VALUE);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void archive_movesOnlyOldCompletedTasks() {
+        int total = repository.getStatistics().getTotalCount();
+
+        // Tasks 0, 2 and 4 are old and completed
+        assertEquals(3, repository.archiveCompletedTasks(now - 30 * DAY, 100));
+        assertEquals(0, repository.archiveCompletedTasks(now - 30 * DAY, 100));
+
+        assertEquals(7, repository.getTasksAfterId(TaskScope.ACTIVE, 0, 100).size());
+        List<Task> archived = repository.getTasksAfterId(TaskScope.ARCHIVED, 0, 100);
+        assertEquals(3, archived.size());
+        assertEquals("Task 0", archived.get(0).getTitle());
+        assertTrue(archived.get(0).isCompleted());
+
+        // Archived tasks keep their IDs, so the union comes back in the original order
+        List<Task> all = repository.getTasksAfterId(TaskScope.ALL, 0, 100);
+        assertEquals(10, all.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals("Task " + i, all.get(i).getTitle());
+        }
+
+        assertEquals(total, repository.getStatistics().getTotalCount());
+        assertTrue(repository.getPendingChanges(100).isEmpty());
+    }
+
+    @Test
+    public void scopes_applyToDueWindows() {
+        repository.archiveCompletedTasks(now - 30 * DAY, 100);
+
+        long start = now - 101 * DAY;
+        long end = now - 99 * DAY;
+        assertEquals(3, repository.getTasksDueBetween(TaskScope.ACTIVE, start, end).size());
+        assertEquals(3, repository.getTasksDueBetween(TaskScope.ARCHIVED, start, end).size());
+        assertEquals(6, repository.getTasksDueBetween(TaskScope.ALL, start, end).size());
+    }
+
+    @Test
+    public void purgingNewestTasks_doesNotReuseArchivedIds() {
+        repository.archiveCompletedTasks(now - 30 * DAY, 100);
+        List<Long> archivedIds = new ArrayList<>();
+        for (Task task : repository.getTasksAfterId(TaskScope.ARCHIVED, 0, 100)) {
+            archivedIds.add(task.getId());
+        }
+
+        // Delete every task above the highest archived ID, the newest included, and compact
+        long highestArchived = archivedIds.get(archivedIds.size() - 1);
+        for (Task task : repository.getTasksAfterId(TaskScope.ACTIVE, highestArchived, 100)) {
+            repository.deleteTask(task.getId());
+        }
+        repository.purgeTasks(repository.getTombstonedTaskIds(100));
+
+        long newId = repository.addTask(new Task("New", null, now + DAY, Task.PRIORITY_LOW, false));
+        assertTrue(newId > 0);
+        assertFalse(archivedIds.contains(newId));
+        List<Task> all = repository.getTasksAfterId(TaskScope.ALL, 0, 100);
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i).getId() > all.get(i - 1).getId());
+        }
+    }
+
+    @Test
+    public void batches_pageThroughUnion() {
+        repository.archiveCompletedTasks(now - 30 * DAY, 100);
+
+        List<Task> seen = new ArrayList<>();
+        long lastId = 0;
+        List<Task> batch;
+        do {
+            batch = repository.getTasksAfterId(TaskScope.ALL, lastId, 3);
+            seen.addAll(batch);
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == 3);
+
+        assertEquals(10, seen.size());
+    }
+}
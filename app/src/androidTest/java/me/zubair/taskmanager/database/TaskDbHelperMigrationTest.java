@@ -0,0 +1,86 @@
+package me.zubair.taskmanager.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that the migration list is well formed and that every step's query
+ * plan checks hold, both for a fresh install and for an upgrade from version 1.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskDbHelperMigrationTest {
+    private static final String DATABASE_NAME = "tasks_migration_test.db";
+
+    private Context context;
+    private TaskDbHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        if (dbHelper != null) {
+            dbHelper.close();
+        }
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void migrations_areOrderedAndEndAtCurrentVersion() {
+        int previous = 0;
+        for (TaskDbHelper.Migration migration : TaskDbHelper.MIGRATIONS) {
+            assertTrue("Migrations out of order at " + migration.version, migration.version > previous);
+            previous = migration.version;
+        }
+        assertEquals(TaskDbHelper.DATABASE_VERSION, previous);
+    }
+
+    @Test
+    public void freshInstall_satisfiesAllQueryPlans() {
+        dbHelper = new TaskDbHelper(context, DATABASE_NAME);
+        assertQueryPlans(dbHelper.getReadableDatabase());
+    }
+
+    @Test
+    public void upgradeFromVersion1_satisfiesAllQueryPlans() {
+        // Recreate the original version 1 schema, which had no created_at column
+        try (SQLiteDatabase legacy = context.openOrCreateDatabase(DATABASE_NAME, Context.MODE_PRIVATE, null)) {
+            legacy.execSQL("CREATE TABLE " + TaskContract.TaskEntry.TABLE_NAME + " (" +
+                    TaskContract.TaskEntry._ID + " INTEGER PRIMARY KEY," +
+                    TaskContract.TaskEntry.COLUMN_TITLE + " TEXT NOT NULL," +
+                    TaskContract.TaskEntry.COLUMN_DESCRIPTION + " TEXT," +
+                    TaskContract.TaskEntry.COLUMN_DUE_DATE + " INTEGER," +
+                    TaskContract.TaskEntry.COLUMN_PRIORITY + " INTEGER DEFAULT 1," +
+                    TaskContract.TaskEntry.COLUMN_COMPLETED + " INTEGER DEFAULT 0)");
+            legacy.setVersion(1);
+        }
+
+        dbHelper = new TaskDbHelper(context, DATABASE_NAME);
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        assertEquals(TaskDbHelper.DATABASE_VERSION, db.getVersion());
+        assertQueryPlans(db);
+    }
+
+    private static void assertQueryPlans(SQLiteDatabase db) {
+        for (TaskDbHelper.Migration migration : TaskDbHelper.MIGRATIONS) {
+            for (TaskDbHelper.QueryPlanCheck check : migration.queryPlanChecks) {
+                assertTrue("Migration " + migration.version + " plan " + TaskDbHelper.explain(db, check.sql)
+                        + " for: " + check.sql, check.isSatisfied(db));
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package me.zubair.taskmanager.database;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import me.zubair.taskmanager.models.Task;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the next-reminder query that the alarm scheduler arms its single alarm from.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskReminderQueryTest {
+    private static final String DATABASE_NAME = "tasks_reminder_test.db";
+    private static final long MINUTE = 60L * 1000;
+    private static final long LEAD = 30 * MINUTE;
+    private static final long NOW = 1735732800000L;
+
+    private Context context;
+    private TaskDbHelper dbHelper;
+    private TaskRepository repository;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        dbHelper = new TaskDbHelper(context, DATABASE_NAME);
+        repository = new TaskRepository(dbHelper);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void nextInstant_walksReminderAndDueTimes() {
+        repository.addTask(new Task("Soon", null, NOW + 10 * MINUTE, Task.PRIORITY_LOW, false));
+        repository.addTask(new Task("Later", null, NOW + 120 * MINUTE, Task.PRIORITY_LOW, false));
+        repository.addTask(new Task("Done", null, NOW + 5 * MINUTE, Task.PRIORITY_LOW, true));
+        long deleted = repository.addTask(new Task("Deleted", null, NOW + 1, Task.PRIORITY_LOW, false));
+        repository.deleteTask(deleted);
+
+        // The reminder for "Soon" is already past, so its due time comes first
+        assertEquals(NOW + 10 * MINUTE, repository.getNextReminderTime(NOW, LEAD));
+        assertEquals(NOW + 90 * MINUTE, repository.getNextReminderTime(NOW + 10 * MINUTE, LEAD));
+        assertEquals(NOW + 120 * MINUTE, repository.getNextReminderTime(NOW + 90 * MINUTE, LEAD));
+        assertEquals(-1, repository.getNextReminderTime(NOW + 120 * MINUTE, LEAD));
+    }
+
+    @Test
+    public void overdueReminders_areStillOwed() {
+        repository.addTask(new Task("Meeting", null, NOW + 20 * MINUTE, Task.PRIORITY_HIGH, false));
+
+        // Checked last an hour ago: the reminder at NOW - 10 minutes has not been handled yet
+        assertEquals(NOW - 10 * MINUTE, repository.getNextReminderTime(NOW - 60 * MINUTE, LEAD));
+    }
+}
@@ -0,0 +1,235 @@
+package me.zubair.taskmanager.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import me.zubair.taskmanager.models.Task;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the original per-call schema probing path with the cached statement
+ * path in {@link TaskRepository}. Each comparison reports the median of
+ * several rounds after a warm-up. Results are written to logcat under the
+ * "TaskRepositoryBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskRepositoryBenchmark {
+    private static final String TAG = "TaskRepositoryBenchmark";
+    private static final String DATABASE_NAME = "tasks_benchmark.db";
+    private static final int TASK_COUNT = 5000;
+    // Work timed per round, for each path
+    private static final int INSERT_BATCH = 1000;
+    private static final int QUERY_ITERATIONS = 40;
+    // Untimed rounds first, then the median of the timed ones is reported
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int ROUNDS = 5;
+
+    private Context context;
+    private TaskDbHelper dbHelper;
+    private TaskRepository repository;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        dbHelper = new TaskDbHelper(context, DATABASE_NAME);
+        repository = new TaskRepository(dbHelper);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void insert_legacyVersusCached() {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        int[] next = new int[1];
+
+        Comparison comparison = compare(
+                () -> {
+                    for (int i = 0; i < INSERT_BATCH; i++) {
+                        legacyInsert(db, createTask(next[0]++));
+                    }
+                },
+                () -> {
+                    for (int i = 0; i < INSERT_BATCH; i++) {
+                        repository.addTask(createTask(next[0]++));
+                    }
+                });
+
+        report("insert", INSERT_BATCH, comparison);
+        assertEquals((WARMUP_ROUNDS + ROUNDS) * 2 * INSERT_BATCH, repository.getAllTasks().size());
+    }
+
+    @Test
+    public void dueWindowQuery_legacyVersusCached() {
+        for (int i = 0; i < TASK_COUNT; i++) {
+            repository.addTask(createTask(i));
+        }
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        long start = 0;
+        long end = 60L * 60 * 1000 * 24;
+        int[] legacyRows = new int[1];
+        int[] cachedRows = new int[1];
+
+        Comparison comparison = compare(
+                () -> {
+                    for (int i = 0; i < QUERY_ITERATIONS; i++) {
+                        legacyRows[0] = legacyDueBetween(db, start, end).size();
+                    }
+                },
+                () -> {
+                    for (int i = 0; i < QUERY_ITERATIONS; i++) {
+                        cachedRows[0] = repository.getTasksDueBetween(start, end).size();
+                    }
+                });
+
+        report("getTasksDueBetween", QUERY_ITERATIONS, comparison);
+        assertEquals(legacyRows[0], cachedRows[0]);
+    }
+
+    private static Task createTask(int index) {
+        // Spread due dates one minute apart so the due window returns a stable slice
+        return new Task("Task " + index, "Benchmark task " + index,
+                index * 60L * 1000, Task.PRIORITY_LOW + index % 3, index % 4 == 0);
+    }
+
+    /**
+     * Run both paths for a few untimed warm-up rounds, then time them over
+     * several rounds. The order alternates every round, so neither path always
+     * runs against a colder connection or page cache.
+     */
+    private static Comparison compare(Runnable legacy, Runnable cached) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            legacy.run();
+            cached.run();
+        }
+
+        long[] legacyNanos = new long[ROUNDS];
+        long[] cachedNanos = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            if (round % 2 == 0) {
+                legacyNanos[round] = time(legacy);
+                cachedNanos[round] = time(cached);
+            } else {
+                cachedNanos[round] = time(cached);
+                legacyNanos[round] = time(legacy);
+            }
+        }
+        return new Comparison(median(legacyNanos), median(cachedNanos));
+    }
+
+    private static long time(Runnable work) {
+        long start = System.nanoTime();
+        work.run();
+        return System.nanoTime() - start;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static final class Comparison {
+        final long legacyNanos;
+        final long cachedNanos;
+
+        Comparison(long legacyNanos, long cachedNanos) {
+            this.legacyNanos = legacyNanos;
+            this.cachedNanos = cachedNanos;
+        }
+    }
+
+    private static void report(String operation, int iterations, Comparison comparison) {
+        Log.i(TAG, String.format(Locale.US,
+                "%s x%d (median of %d rounds): legacy=%.2fms cached=%.2fms speedup=%.2fx",
+                operation, iterations, ROUNDS, comparison.legacyNanos / 1e6, comparison.cachedNanos / 1e6,
+                (double) comparison.legacyNanos / Math.max(1, comparison.cachedNanos)));
+    }
+
+    // The methods below reproduce the repository code paths from before the statement cache
+
+    private static long legacyInsert(SQLiteDatabase db, Task task) {
+        ContentValues values = new ContentValues();
+        values.put(TaskContract.TaskEntry.COLUMN_TITLE, task.getTitle());
+        values.put(TaskContract.TaskEntry.COLUMN_DESCRIPTION, task.getDescription());
+        values.put(TaskContract.TaskEntry.COLUMN_DUE_DATE, task.getDueDate());
+        values.put(TaskContract.TaskEntry.COLUMN_PRIORITY, task.getPriority());
+        values.put(TaskContract.TaskEntry.COLUMN_COMPLETED, task.isCompleted() ? 1 : 0);
+        if (legacyHasColumn(db, TaskContract.TaskEntry.COLUMN_CREATED_AT)) {
+            values.put(TaskContract.TaskEntry.COLUMN_CREATED_AT, task.getCreatedAt());
+        }
+        return db.insert(TaskContract.TaskEntry.TABLE_NAME, null, values);
+    }
+
+    private static List<Task> legacyDueBetween(SQLiteDatabase db, long startTime, long endTime) {
+        List<String> projectionList = new ArrayList<>();
+        projectionList.add(TaskContract.TaskEntry._ID);
+        projectionList.add(TaskContract.TaskEntry.COLUMN_TITLE);
+        projectionList.add(TaskContract.TaskEntry.COLUMN_DESCRIPTION);
+        projectionList.add(TaskContract.TaskEntry.COLUMN_DUE_DATE);
+        projectionList.add(TaskContract.TaskEntry.COLUMN_PRIORITY);
+        projectionList.add(TaskContract.TaskEntry.COLUMN_COMPLETED);
+        if (legacyHasColumn(db, TaskContract.TaskEntry.COLUMN_CREATED_AT)) {
+            projectionList.add(TaskContract.TaskEntry.COLUMN_CREATED_AT);
+        }
+
+        List<Task> tasks = new ArrayList<>();
+        try (Cursor cursor = db.query(
+                TaskContract.TaskEntry.TABLE_NAME,
+                projectionList.toArray(new String[0]),
+                TaskContract.TaskEntry.COLUMN_DUE_DATE + " >= ? AND " +
+                        TaskContract.TaskEntry.COLUMN_DUE_DATE + " <= ?",
+                new String[] { String.valueOf(startTime), String.valueOf(endTime) },
+                null,
+                null,
+                TaskContract.TaskEntry.COLUMN_DUE_DATE + " ASC")) {
+            while (cursor.moveToNext()) {
+                Task task = new Task();
+                task.setId(cursor.getLong(cursor.getColumnIndexOrThrow(TaskContract.TaskEntry._ID)));
+                task.setTitle(cursor.getString(cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_TITLE)));
+                task.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_DESCRIPTION)));
+                task.setDueDate(cursor.getLong(cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_DUE_DATE)));
+                task.setPriority(cursor.getInt(cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_PRIORITY)));
+                task.setCompleted(cursor.getInt(cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_COMPLETED)) == 1);
+                int createdAtColumnIndex = cursor.getColumnIndex(TaskContract.TaskEntry.COLUMN_CREATED_AT);
+                if (createdAtColumnIndex != -1) {
+                    task.setCreatedAt(cursor.getLong(createdAtColumnIndex));
+                }
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
+    private static boolean legacyHasColumn(SQLiteDatabase db, String columnName) {
+        try (Cursor cursor = db.rawQuery("PRAGMA table_info(" + TaskContract.TaskEntry.TABLE_NAME + ")", null)) {
+            while (cursor.moveToNext()) {
+                if (columnName.equalsIgnoreCase(cursor.getString(cursor.getColumnIndex("name")))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
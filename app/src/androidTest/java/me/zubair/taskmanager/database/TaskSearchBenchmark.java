@@ -0,0 +1,151 @@
+package me.zubair.taskmanager.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import me.zubair.taskmanager.models.Task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures {@link TaskRepository#searchTasks} latency over 100k tasks and checks
+ * that results stay correct. Results are written to logcat under the
+ * "TaskSearchBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskSearchBenchmark {
+    private static final String TAG = "TaskSearchBenchmark";
+    private static final String DATABASE_NAME = "tasks_search_benchmark.db";
+    private static final int TASK_COUNT = 100_000;
+    private static final int BATCH_SIZE = 1000;
+    private static final int QUERY_ROUNDS = 100;
+    private static final int RESULT_LIMIT = 50;
+
+    private static final String[] WORDS = {
+            "meeting", "report", "invoice", "groceries", "dentist", "review", "deploy",
+            "budget", "birthday", "workout", "laundry", "project", "call", "email"
+    };
+
+    private Context context;
+    private TaskDbHelper dbHelper;
+    private TaskRepository repository;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        dbHelper = new TaskDbHelper(context, DATABASE_NAME);
+        repository = new TaskRepository(dbHelper);
+
+        List<Task> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < TASK_COUNT; i++) {
+            batch.add(createTask(i));
+            if (batch.size() == BATCH_SIZE) {
+                repository.addTasks(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            repository.addTasks(batch);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void search_fullWord() {
+        measure("full word", "dentist");
+    }
+
+    @Test
+    public void search_prefix() {
+        measure("prefix", "invo");
+    }
+
+    @Test
+    public void search_multipleWords() {
+        measure("two words", "budget review");
+    }
+
+    @Test
+    public void search_titleMatchesRankFirst() {
+        List<Task> results = repository.searchTasks("deploy", RESULT_LIMIT);
+        assertEquals(RESULT_LIMIT, results.size());
+        for (Task task : results) {
+            assertTrue(task.getTitle().contains("deploy"));
+        }
+    }
+
+    @Test
+    public void search_followsUpdatesAndDeletes() {
+        Task task = repository.getTaskById(1);
+        task.setTitle("Quarterly xylophone tuning");
+        repository.updateTask(task);
+        assertEquals(1, repository.searchTasks("xylo", RESULT_LIMIT).size());
+
+        repository.deleteTask(task.getId());
+        assertTrue(repository.searchTasks("xylophone", RESULT_LIMIT).isEmpty());
+    }
+
+    @Test
+    public void search_ignoresOperatorsAndPunctuation() {
+        assertTrue(repository.searchTasks("\"", RESULT_LIMIT).isEmpty());
+        assertFalse(repository.searchTasks("-report*", RESULT_LIMIT).isEmpty());
+    }
+
+    @Test
+    public void search_treatsOperatorWordsAsTerms() {
+        long taskId = repository.addTask(new Task("Do not park near the zeppelin", null, 0L, Task.PRIORITY_LOW, false));
+        List<Task> results = repository.searchTasks("NOT near zeppelin", RESULT_LIMIT);
+        assertEquals(1, results.size());
+        assertEquals(taskId, results.get(0).getId());
+    }
+
+    private void measure(String label, String query) {
+        // Warm up the page cache so the first round does not dominate
+        repository.searchTasks(query, RESULT_LIMIT);
+
+        long[] nanos = new long[QUERY_ROUNDS];
+        int rows = 0;
+        for (int i = 0; i < QUERY_ROUNDS; i++) {
+            long start = System.nanoTime();
+            rows = repository.searchTasks(query, RESULT_LIMIT).size();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+
+        Log.i(TAG, String.format(Locale.US,
+                "%s \"%s\" over %d tasks x%d: rows=%d p50=%.2fms p95=%.2fms max=%.2fms",
+                label, query, TASK_COUNT, QUERY_ROUNDS, rows,
+                nanos[QUERY_ROUNDS / 2] / 1e6,
+                nanos[QUERY_ROUNDS * 95 / 100] / 1e6,
+                nanos[QUERY_ROUNDS - 1] / 1e6));
+        assertTrue(rows > 0);
+    }
+
+    private static Task createTask(int index) {
+        String titleWord = WORDS[index % WORDS.length];
+        String descriptionWord = WORDS[(index / WORDS.length) % WORDS.length];
+        return new Task(titleWord + " " + index, "Notes about " + descriptionWord + " number " + index,
+                index * 60L * 1000, Task.PRIORITY_LOW + index % 3, index % 4 == 0);
+    }
+}
@@ -0,0 +1,196 @@
+package me.zubair.taskmanager.database;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import me.zubair.taskmanager.models.Task;
+import me.zubair.taskmanager.models.TaskChange;
+import me.zubair.taskmanager.sync.TaskSyncClient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Syncs two databases, standing in for two devices, through a
+ * {@link LocalSyncServer} and checks that only changes travel.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskSyncClientTest {
+    private static final String DATABASE_A = "tasks_sync_a.db";
+    private static final String DATABASE_B = "tasks_sync_b.db";
+    // Small pages so that pulls need several round trips
+    private static final int SERVER_PAGE_SIZE = 50;
+
+    private Context context;
+    private TaskDbHelper helperA;
+    private TaskDbHelper helperB;
+    private TaskRepository deviceA;
+    private TaskRepository deviceB;
+    private LocalSyncServer server;
+    private TaskSyncClient clientA;
+    private TaskSyncClient clientB;
+
+    @Before
+    public void setUp() throws IOException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_A);
+        context.deleteDatabase(DATABASE_B);
+        helperA = new TaskDbHelper(context, DATABASE_A);
+        helperB = new TaskDbHelper(context, DATABASE_B);
+        deviceA = new TaskRepository(helperA);
+        deviceB = new TaskRepository(helperB);
+        server = new LocalSyncServer(SERVER_PAGE_SIZE);
+        clientA = new TaskSyncClient(deviceA, server.getBaseUrl());
+        clientB = new TaskSyncClient(deviceB, server.getBaseUrl());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        clientA.shutdown();
+        clientB.shutdown();
+        server.close();
+        helperA.close();
+        helperB.close();
+        context.deleteDatabase(DATABASE_A);
+        context.deleteDatabase(DATABASE_B);
+    }
+
+    @Test
+    public void newTasks_reachOtherDevice() throws Exception {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            tasks.add(new Task("Task " + i, "Description " + i, 1000L * i, Task.PRIORITY_LOW + i % 3, false));
+        }
+        deviceA.addTasks(tasks);
+
+        assertEquals(120, clientA.sync().pushed);
+        assertEquals(120, clientB.sync().pulled);
+
+        assertEquals(120, deviceB.getStatistics().getTotalCount());
+        Task first = deviceB.getTasksAfterId(0, 1).get(0);
+        assertEquals("Task 0", first.getTitle());
+        assertEquals("Description 0", first.getDescription());
+    }
+
+    @Test
+    public void update_sendsOnlyChangedFields() throws Exception {
+        long taskId = deviceA.addTask(new Task("Write report", "Quarterly numbers", 5000L, Task.PRIORITY_HIGH, false));
+        clientA.sync();
+        clientB.sync();
+
+        deviceA.setTaskCompleted(taskId, true);
+        TaskSyncClient.SyncResult result = clientA.sync();
+        assertEquals(1, result.pushed);
+
+        List<JSONArray> batches = server.getPushedBatches();
+        JSONObject delta = batches.get(batches.size() - 1).getJSONObject(0);
+        JSONObject fields = delta.getJSONObject("fields");
+        assertEquals("upsert", delta.getString("op"));
+        assertEquals(1, fields.length());
+        assertTrue(fields.getBoolean("completed"));
+
+        clientB.sync();
+        Task synced = deviceB.getTasksAfterId(0, 1).get(0);
+        assertTrue(synced.isCompleted());
+        assertEquals("Quarterly numbers", synced.getDescription());
+    }
+
+    @Test
+    public void repeatedEdits_areFoldedIntoOneChange() throws JSONException, IOException {
+        long taskId = deviceA.addTask(new Task("Draft", null, 0L, Task.PRIORITY_LOW, false));
+        clientA.sync();
+
+        Task task = deviceA.getTaskById(taskId);
+        for (int i = 1; i <= 5; i++) {
+            task.setTitle("Draft " + i);
+            deviceA.updateTask(task);
+        }
+        task.setPriority(Task.PRIORITY_MEDIUM);
+        deviceA.updateTask(task);
+
+        assertEquals(1, deviceA.getPendingChanges(100).size());
+        assertEquals(1, clientA.sync().pushed);
+
+        List<JSONArray> batches = server.getPushedBatches();
+        JSONObject fields = batches.get(batches.size() - 1).getJSONObject(0).getJSONObject("fields");
+        assertEquals(2, fields.length());
+        assertEquals("Draft 5", fields.getString("title"));
+        assertEquals(Task.PRIORITY_MEDIUM, fields.getInt("priority"));
+    }
+
+    @Test
+    public void delete_propagatesAndIsNotEchoed() throws Exception {
+        deviceA.addTask(new Task("Keep", null, 0L, Task.PRIORITY_LOW, false));
+        deviceA.addTask(new Task("Drop", null, 0L, Task.PRIORITY_LOW, false));
+        clientA.sync();
+        clientB.sync();
+
+        // Pulled changes must not be journaled for push on the receiving device
+        assertTrue(deviceB.getPendingChanges(100).isEmpty());
+
+        Task drop = deviceB.getTasksAfterId(0, 2).get(1);
+        assertEquals("Drop", drop.getTitle());
+        deviceB.deleteTask(drop.getId());
+        assertEquals(1, clientB.sync().pushed);
+        clientA.sync();
+
+        assertEquals(1, deviceA.getStatistics().getTotalCount());
+        assertEquals("Keep", deviceA.getTasksAfterId(0, 10).get(0).getTitle());
+        assertTrue(deviceA.getPendingChanges(100).isEmpty());
+        assertFalse(server.getCompressedBytesReceived() == 0);
+    }
+
+    @Test
+    public void archivedTasks_keepSyncingBothWays() throws Exception {
+        long now = System.currentTimeMillis();
+        long day = 24L * 60 * 60 * 1000;
+        Task old = new Task("Old", null, now - 100 * day, Task.PRIORITY_LOW, false);
+        old.setCreatedAt(now - 200 * day);
+        long oldId = deviceA.addTask(old);
+        deviceA.addTask(new Task("Newest", null, now, Task.PRIORITY_LOW, false));
+        clientA.sync();
+        clientB.sync();
+
+        // Completed and archived before the change was pushed: the push is still an update
+        deviceA.setTaskCompleted(oldId, true);
+        assertEquals(1, deviceA.archiveCompletedTasks(now - 30 * day, 100));
+        List<TaskChange> pending = deviceA.getPendingChanges(100);
+        assertEquals(1, pending.size());
+        assertFalse(pending.get(0).isDeleted());
+        assertTrue(pending.get(0).isCompleted());
+        clientA.sync();
+        clientB.sync();
+
+        assertEquals(2, deviceB.getStatistics().getTotalCount());
+        Task synced = deviceB.getTasksAfterId(0, 2).get(0);
+        assertTrue(synced.isCompleted());
+
+        // A partial update to the archived task brings it back rather than being dropped
+        synced.setTitle("Old, renamed");
+        deviceB.updateTask(synced);
+        clientB.sync();
+        clientA.sync();
+
+        assertTrue(deviceA.getTasksAfterId(TaskScope.ARCHIVED, 0, 10).isEmpty());
+        List<Task> all = deviceA.getTasksAfterId(TaskScope.ALL, 0, 10);
+        assertEquals(2, all.size());
+        assertEquals(oldId, all.get(0).getId());
+        assertEquals("Old, renamed", all.get(0).getTitle());
+        assertTrue(all.get(0).isCompleted());
+    }
+}
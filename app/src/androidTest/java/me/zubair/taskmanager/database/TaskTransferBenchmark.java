@@ -0,0 +1,120 @@
+package me.zubair.taskmanager.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import me.zubair.taskmanager.models.Task;
+import me.zubair.taskmanager.utils.TaskExporter;
+import me.zubair.taskmanager.utils.TaskImporter;
+import me.zubair.taskmanager.utils.TaskTransfer;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Round-trips 100k tasks through {@link TaskExporter} and {@link TaskImporter}
+ * in both formats and reports throughput. Results are written to logcat under
+ * the "TaskTransferBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskTransferBenchmark {
+    private static final String TAG = "TaskTransferBenchmark";
+    private static final String SOURCE_DATABASE = "tasks_transfer_source.db";
+    private static final String TARGET_DATABASE = "tasks_transfer_target.db";
+    private static final int TASK_COUNT = 100_000;
+
+    private Context context;
+    private TaskDbHelper sourceHelper;
+    private TaskDbHelper targetHelper;
+    private TaskRepository source;
+    private TaskRepository target;
+    private File exportFile;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(SOURCE_DATABASE);
+        context.deleteDatabase(TARGET_DATABASE);
+        sourceHelper = new TaskDbHelper(context, SOURCE_DATABASE);
+        targetHelper = new TaskDbHelper(context, TARGET_DATABASE);
+        source = new TaskRepository(sourceHelper);
+        target = new TaskRepository(targetHelper);
+        exportFile = new File(context.getCacheDir(), "tasks_transfer_benchmark");
+
+        List<Task> batch = new ArrayList<>(1000);
+        for (int i = 0; i < TASK_COUNT; i++) {
+            // Commas, quotes and line breaks exercise CSV quoting
+            batch.add(new Task("Task " + i, "Line one, \"quoted\"\nline two of task " + i,
+                    i * 60L * 1000, Task.PRIORITY_LOW + i % 3, i % 4 == 0));
+            if (batch.size() == 1000) {
+                source.addTasks(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        sourceHelper.close();
+        targetHelper.close();
+        context.deleteDatabase(SOURCE_DATABASE);
+        context.deleteDatabase(TARGET_DATABASE);
+        exportFile.delete();
+    }
+
+    @Test
+    public void roundTrip_json() throws IOException {
+        roundTrip(TaskTransfer.Format.JSON);
+    }
+
+    @Test
+    public void roundTrip_csv() throws IOException {
+        roundTrip(TaskTransfer.Format.CSV);
+    }
+
+    private void roundTrip(TaskTransfer.Format format) throws IOException {
+        long exportStart = System.nanoTime();
+        int exported;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(exportFile))) {
+            exported = new TaskExporter(source).export(out, format, null);
+        }
+        long exportNanos = System.nanoTime() - exportStart;
+
+        long importStart = System.nanoTime();
+        int imported;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(exportFile))) {
+            imported = new TaskImporter(target).importTasks(in, format, null);
+        }
+        long importNanos = System.nanoTime() - importStart;
+
+        Log.i(TAG, String.format(Locale.US,
+                "%s: %d tasks, %d KB, export=%.0f rows/s, import=%.0f rows/s",
+                format, exported, exportFile.length() / 1024,
+                exported / (exportNanos / 1e9), imported / (importNanos / 1e9)));
+
+        assertEquals(TASK_COUNT, exported);
+        assertEquals(TASK_COUNT, imported);
+        assertEquals(TASK_COUNT, target.getStatistics().getTotalCount());
+        Task first = target.getTasksAfterId(0, 1).get(0);
+        assertEquals("Line one, \"quoted\"\nline two of task 0", first.getDescription());
+    }
+}
@@ -0,0 +1,121 @@
+package me.zubair.taskmanager.database;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.List;
+import java.util.TimeZone;
+
+import me.zubair.taskmanager.models.Task;
+import me.zubair.taskmanager.utils.FileHelper;
+import me.zubair.taskmanager.utils.TaskWorkloadGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that generated datasets are reproducible from their seed and follow
+ * the profile's shape.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskWorkloadGeneratorTest {
+    private static final String DATABASE_NAME = "tasks_workload_test.db";
+    private static final long REFERENCE_TIME = 1735732800000L;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private Context context;
+    private TaskDbHelper dbHelper;
+    private TaskRepository repository;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        dbHelper = new TaskDbHelper(context, DATABASE_NAME);
+        repository = new TaskRepository(dbHelper);
+    }
+
+    @After
+    public void tearDown() {
+        FileHelper fileHelper = new FileHelper();
+        for (Task task : repository.getAllTasks()) {
+            fileHelper.deleteTaskFiles(context, task.getId());
+        }
+        dbHelper.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void sameSeed_producesSameTasks() {
+        List<Task> first = generator(7).nextTasks(500);
+        List<Task> second = generator(7).nextTasks(500);
+        List<Task> other = generator(8).nextTasks(500);
+
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getTitle(), second.get(i).getTitle());
+            assertEquals(first.get(i).getDescription(), second.get(i).getDescription());
+            assertEquals(first.get(i).getDueDate(), second.get(i).getDueDate());
+            assertEquals(first.get(i).getCreatedAt(), second.get(i).getCreatedAt());
+        }
+        assertNotEquals(first.get(0).getDueDate(), other.get(0).getDueDate());
+    }
+
+    @Test
+    public void fixedTimeZone_startsDayAtItsMidnight() {
+        TaskWorkloadGenerator.Profile utc = new TaskWorkloadGenerator.Profile(0)
+                .setReferenceTime(REFERENCE_TIME)
+                .setTimeZone(UTC);
+        // The reference time is noon UTC on 1 January 2025
+        assertEquals(1735689600000L, utc.getToday());
+
+        TaskWorkloadGenerator.Profile tokyo = new TaskWorkloadGenerator.Profile(0)
+                .setTimeZone(TimeZone.getTimeZone("Asia/Tokyo"))
+                .setReferenceTime(REFERENCE_TIME);
+        assertEquals(1735689600000L - 9 * 60 * 60 * 1000L, tokyo.getToday());
+    }
+
+    @Test
+    public void generate_followsProfile() throws Exception {
+        TaskWorkloadGenerator.Profile profile = new TaskWorkloadGenerator.Profile(2000)
+                .setReferenceTime(REFERENCE_TIME)
+                .setTimeZone(UTC)
+                .setCompletionRatios(1f, 0f)
+                .setAttachmentRatio(0.1f)
+                .setAttachmentSizes(1, 100, 100);
+        assertEquals(2000, new TaskWorkloadGenerator(context, repository, profile).generate(null));
+
+        List<Task> tasks = repository.getAllTasks();
+        assertEquals(2000, tasks.size());
+        long today = profile.getToday();
+        int past = 0;
+        int attachments = 0;
+        FileHelper fileHelper = new FileHelper();
+        for (Task task : tasks) {
+            // Past tasks are all completed and nothing else is
+            assertEquals(task.getDueDate() < today, task.isCompleted());
+            assertTrue(task.getCreatedAt() <= today);
+            past += task.getDueDate() < today ? 1 : 0;
+            for (File file : fileHelper.getTaskFiles(context, task.getId())) {
+                assertEquals(100, file.length());
+                attachments++;
+            }
+        }
+        // 45% of tasks are due in the past and 10% have an attachment, give or take
+        assertTrue(past > 800 && past < 1000);
+        assertTrue(attachments > 150 && attachments < 250);
+    }
+
+    private TaskWorkloadGenerator generator(long seed) {
+        return new TaskWorkloadGenerator(context, repository,
+                new TaskWorkloadGenerator.Profile(0).setSeed(seed).setReferenceTime(REFERENCE_TIME).setTimeZone(UTC));
+    }
+}
@@ -0,0 +1,117 @@
+package me.zubair.taskmanager;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import me.zubair.taskmanager.database.TaskRepository;
+import me.zubair.taskmanager.services.NotificationService;
+import me.zubair.taskmanager.services.TaskAlarmScheduler;
+import me.zubair.taskmanager.utils.QuoteApiClient;
+import me.zubair.taskmanager.utils.StartupTracer;
+
+/**
+ * Runs the startup pipeline. Application creation only starts warming the
+ * database on the database executor; everything the first screen does not
+ * need waits until the first frame has been drawn.
+ */
+public class TaskManagerApplication extends Application {
+    private static final String STARTUP_LOG_FILE = "startup_log.txt";
+
+    private final StartupTracer startupTracer = new StartupTracer();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Work waiting for the first frame; null once it has been drawn
+    private List<Runnable> afterFirstDraw = new ArrayList<>();
+    private QuoteApiClient quoteApiClient;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        TaskRepository repository = TaskRepository.getInstance(this);
+        repository.getIoExecutor().execute(() -> {
+            repository.warmUp();
+            startupTracer.mark(StartupTracer.PHASE_DATABASE_READY);
+        });
+
+        // Any change can move the next reminder or due time, so re-arm the single alarm
+        repository.addChangeListener(event -> TaskAlarmScheduler.reschedule(this));
+
+        // Channels only need to exist before the first notification is posted
+        runAfterFirstDraw(() -> NotificationService.createNotificationChannels(this));
+
+        startupTracer.mark(StartupTracer.PHASE_APPLICATION_CREATED);
+    }
+
+    public static TaskManagerApplication get(Context context) {
+        return (TaskManagerApplication) context.getApplicationContext();
+    }
+
+    public StartupTracer getStartupTracer() {
+        return startupTracer;
+    }
+
+    /**
+     * @return File holding the phase timings of recent cold starts
+     */
+    public File getStartupLogFile() {
+        return new File(getFilesDir(), STARTUP_LOG_FILE);
+    }
+
+    /**
+     * @return Shared quote client, created on first use so its thread is not started at launch
+     */
+    public QuoteApiClient getQuoteApiClient() {
+        if (quoteApiClient == null) {
+            quoteApiClient = new QuoteApiClient();
+        }
+        return quoteApiClient;
+    }
+
+    /**
+     * Run non-critical work on the main thread once the first frame is on
+     * screen, or soon if it already is. Each action runs in its own message so
+     * that none of them delays input handling for long. Main thread only.
+     */
+    public void runAfterFirstDraw(Runnable action) {
+        if (afterFirstDraw != null) {
+            afterFirstDraw.add(action);
+        } else {
+            mainHandler.post(action);
+        }
+    }
+
+    /**
+     * Called by the launcher activity once its first frame has been drawn
+     */
+    public void onFirstDraw() {
+        if (afterFirstDraw == null) {
+            return;
+        }
+        startupTracer.mark(StartupTracer.PHASE_FIRST_DRAW);
+        List<Runnable> pending = afterFirstDraw;
+        afterFirstDraw = null;
+        for (Runnable action : pending) {
+            mainHandler.post(action);
+        }
+    }
+
+    /**
+     * Called once the home screen shows real data. Ends the startup trace.
+     *
+     * @return True the first time, i.e. for the cold start
+     */
+    public boolean onHomeInteractive() {
+        if (!startupTracer.mark(StartupTracer.PHASE_HOME_INTERACTIVE)) {
+            return false;
+        }
+        File logFile = getStartupLogFile();
+        TaskRepository.getInstance(this).getIoExecutor().execute(() -> startupTracer.finish(logFile));
+        return true;
+    }
+}
@@ -1,11 +1,6 @@
 package me.zubair.taskmanager.activities;
 
 import android.content.Intent;
-import android.media.AudioAttributes;
-import android.media.AudioManager;
-import android.media.MediaPlayer;
-import android.media.RingtoneManager;
-import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
@@ -21,8 +16,12 @@ import me.zubair.taskmanager.services.NotificationService;
 
 public class AlarmActivity extends AppCompatActivity {
     private static final String TAG = "AlarmActivity";
-    private MediaPlayer mediaPlayer;
-    private long taskId;
+    // Parallel arrays describing every task the alarm is ringing for
+    public static final String EXTRA_TASK_IDS = "TASK_IDS";
+    public static final String EXTRA_TASK_TITLES = "TASK_TITLES";
+    public static final String EXTRA_TASK_DESCRIPTIONS = "TASK_DESCRIPTIONS";
+
+    private long[] taskIds;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -42,12 +41,35 @@ public class AlarmActivity extends AppCompatActivity {
                             WindowManager.LayoutParams.FLAG_TURN_SCREEN_ON);
         }
 
-        // Get task information from intent
-        taskId = getIntent().getLongExtra("TASK_ID", -1);
-        String title = getIntent().getStringExtra("TASK_TITLE");
-        String description = getIntent().getStringExtra("TASK_DESCRIPTION");
+        // Get task information from intent; the service plays the sound for these tasks
+        taskIds = getIntent().getLongArrayExtra(EXTRA_TASK_IDS);
+        String[] titles = getIntent().getStringArrayExtra(EXTRA_TASK_TITLES);
+        String[] descriptions = getIntent().getStringArrayExtra(EXTRA_TASK_DESCRIPTIONS);
+        if (taskIds == null || titles == null || descriptions == null) {
+            taskIds = new long[0];
+            titles = new String[0];
+            descriptions = new String[0];
+        }
+
+        String title;
+        String description;
+        if (taskIds.length == 1) {
+            title = titles[0];
+            description = descriptions[0];
+        } else {
+            // Several tasks came due together: list them all on one screen
+            title = taskIds.length + " tasks due";
+            StringBuilder list = new StringBuilder();
+            for (String taskTitle : titles) {
+                if (list.length() > 0) {
+                    list.append('\n');
+                }
+                list.append("\u2022 ").append(taskTitle);
+            }
+            description = list.toString();
+        }
 
-        Log.d(TAG, "AlarmActivity created for task: " + taskId + ", title: " + title);
+        Log.d(TAG, "AlarmActivity created for " + taskIds.length + " tasks, title: " + title);
 
         // Set task information in UI
         TextView titleTextView = findViewById(R.id.textViewAlarmTitle);
@@ -66,71 +88,18 @@ public class AlarmActivity extends AppCompatActivity {
         if (dismissButton != null) {
             dismissButton.setOnClickListener(v -> dismissAlarm());
         }
-
-        // Play alarm sound
-        playAlarmSound();
-    }
-
-    private void playAlarmSound() {
-        try {
-            // Set volume to maximum
-            AudioManager audioManager = (AudioManager) getSystemService(AUDIO_SERVICE);
-            int maxVolume = audioManager.getStreamMaxVolume(AudioManager.STREAM_ALARM);
-            audioManager.setStreamVolume(AudioManager.STREAM_ALARM, maxVolume, 0);
-            
-            Uri alarmSound = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
-            mediaPlayer = MediaPlayer.create(this, alarmSound);
-            
-            if (mediaPlayer != null) {
-                // Set audio attributes for alarm
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                    AudioAttributes attributes = new AudioAttributes.Builder()
-                            .setUsage(AudioAttributes.USAGE_ALARM)
-                            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                            .build();
-                    mediaPlayer.setAudioAttributes(attributes);
-                } else {
-                    mediaPlayer.setAudioStreamType(AudioManager.STREAM_ALARM);
-                }
-                
-                mediaPlayer.setLooping(true);
-                mediaPlayer.start();
-                Log.d(TAG, "Alarm sound started in AlarmActivity");
-            } else {
-                Log.e(TAG, "MediaPlayer could not be created");
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error playing alarm sound", e);
-        }
     }
 
     private void dismissAlarm() {
-        // Stop the alarm sound
-        if (mediaPlayer != null) {
-            mediaPlayer.stop();
-            mediaPlayer.release();
-            mediaPlayer = null;
-        }
-
-        // Send broadcast to cancel notification
+        // Send broadcast to stop the sound and cancel the notifications
         Intent intent = new Intent(this, AlarmReceiver.class);
         intent.setAction(NotificationService.ACTION_DISMISS_ALARM);
-        intent.putExtra("TASK_ID", taskId);
+        intent.putExtra(EXTRA_TASK_IDS, taskIds);
         sendBroadcast(intent);
         
-        Log.d(TAG, "Alarm dismissed for task: " + taskId);
+        Log.d(TAG, "Alarm dismissed for " + taskIds.length + " tasks");
 
         // Close the activity
         finish();
     }
-
-    @Override
-    protected void onDestroy() {
-        if (mediaPlayer != null) {
-            mediaPlayer.stop();
-            mediaPlayer.release();
-            mediaPlayer = null;
-        }
-        super.onDestroy();
-    }
 }
@@ -12,9 +12,13 @@ import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.navigation.NavigationBarView;
 
 import me.zubair.taskmanager.R;
+import me.zubair.taskmanager.TaskManagerApplication;
+import me.zubair.taskmanager.database.TaskArchiveJob;
+import me.zubair.taskmanager.database.TaskCompactionJob;
 import me.zubair.taskmanager.fragments.HomeFragment;
 import me.zubair.taskmanager.fragments.SettingsFragment;
 import me.zubair.taskmanager.fragments.TaskListFragment;
+import me.zubair.taskmanager.utils.StartupTracer;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -25,8 +29,24 @@ public class MainActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
+        TaskManagerApplication application = TaskManagerApplication.get(this);
+        application.getStartupTracer().mark(StartupTracer.PHASE_ACTIVITY_CREATED);
+        StartupTracer.runAfterFirstDraw(getWindow().getDecorView(), application::onFirstDraw);
+
         // Initialize bottom navigation
         bottomNavigationView = findViewById(R.id.bottom_navigation);
+
+        // Check if this is initial startup
+        if (savedInstanceState == null) {
+            // Load HomeFragment as the default fragment
+            getSupportFragmentManager().beginTransaction()
+                    .replace(R.id.fragment_container, new HomeFragment())
+                    .commit();
+
+            // Select home before the listener is attached, which would otherwise
+            // create and replace a second HomeFragment
+            bottomNavigationView.setSelectedItemId(R.id.nav_home);
+        }
         
         // Set up the navigation listener
         bottomNavigationView.setOnItemSelectedListener(new NavigationBarView.OnItemSelectedListener() {
@@ -53,17 +73,14 @@ public class MainActivity extends AppCompatActivity {
                 return false;
             }
         });
+    }
 
-        // Check if this is initial startup
-        if (savedInstanceState == null) {
-            // Load HomeFragment as the default fragment
-            getSupportFragmentManager().beginTransaction()
-                    .replace(R.id.fragment_container, new HomeFragment())
-                    .commit();
-            
-            // Set home as selected in bottom navigation
-            bottomNavigationView.setSelectedItemId(R.id.nav_home);
-        }
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Archive old completed tasks and reclaim space from deleted ones while the user is away
+        TaskArchiveJob.schedule(this);
+        TaskCompactionJob.schedule(this);
     }
 
     @Override
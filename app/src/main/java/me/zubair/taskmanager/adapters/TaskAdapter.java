@@ -11,7 +11,6 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
 import androidx.core.content.ContextCompat;
-import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.text.SimpleDateFormat;
@@ -23,28 +22,31 @@ import java.util.Locale;
 import me.zubair.taskmanager.R;
 import me.zubair.taskmanager.database.TaskRepository;
 import me.zubair.taskmanager.models.Task;
+import me.zubair.taskmanager.models.TaskSummary;
 
 /**
- * Adapter for displaying tasks in a RecyclerView
+ * Adapter for displaying tasks in a RecyclerView. Holds a window of consecutive
+ * pages of summaries; rows are bound from memory, so scrolling never touches the
+ * database on the main thread, and pages scrolled far away are dropped.
  */
 public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder> {
 
-    private List<Task> taskList;
+    private final List<TaskSummary> taskList = new ArrayList<>();
     private final Context context;
     private final OnTaskClickListener listener;
     private final TaskRepository taskRepository;
 
     // Interface for handling item clicks
     public interface OnTaskClickListener {
-        void onTaskClick(Task task);
-        void onTaskLongClick(Task task, View itemView);
+        void onTaskClick(TaskSummary task);
+        void onTaskLongClick(TaskSummary task, View itemView);
     }
 
-    public TaskAdapter(Context context, List<Task> taskList, OnTaskClickListener listener) {
+    public TaskAdapter(Context context, OnTaskClickListener listener) {
         this.context = context;
-        this.taskList = taskList != null ? new ArrayList<>(taskList) : new ArrayList<>();
         this.listener = listener;
-        this.taskRepository = new TaskRepository(context);
+        this.taskRepository = TaskRepository.getInstance(context);
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -56,54 +58,169 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull TaskViewHolder holder, int position) {
-        Task task = taskList.get(position);
-        holder.bind(task);
+        holder.bind(taskList.get(position));
     }
 
     @Override
     public int getItemCount() {
-        return taskList == null ? 0 : taskList.size();
+        return taskList.size();
     }
 
-    public void updateTasks(List<Task> newTasks) {
-        final List<Task> oldList = new ArrayList<>(this.taskList);
-        final List<Task> newList = new ArrayList<>(newTasks);
-        
-        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new DiffUtil.Callback() {
-            @Override
-            public int getOldListSize() {
-                return oldList.size();
+    @Override
+    public long getItemId(int position) {
+        return taskList.get(position).getId();
+    }
+
+    /**
+     * Replace every row with the first page of a fresh load
+     */
+    public void setTasks(List<TaskSummary> tasks) {
+        taskList.clear();
+        taskList.addAll(tasks);
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Append the next page of tasks to the end of the list. Tasks already placed by
+     * a change event while the page was loading are skipped.
+     */
+    public void appendTasks(List<TaskSummary> moreTasks) {
+        int start = taskList.size();
+        for (TaskSummary task : moreTasks) {
+            if (indexOfTask(task.getId()) == -1) {
+                taskList.add(task);
+            }
+        }
+        if (taskList.size() > start) {
+            notifyItemRangeInserted(start, taskList.size() - start);
+        }
+    }
+
+    /**
+     * Insert the previous page of tasks at the start of the list. Tasks already
+     * placed by a change event while the page was loading are skipped.
+     */
+    public void prependTasks(List<TaskSummary> earlierTasks) {
+        List<TaskSummary> added = new ArrayList<>(earlierTasks.size());
+        for (TaskSummary task : earlierTasks) {
+            if (indexOfTask(task.getId()) == -1) {
+                added.add(task);
             }
+        }
+        if (!added.isEmpty()) {
+            taskList.addAll(0, added);
+            notifyItemRangeInserted(0, added.size());
+        }
+    }
+
+    /**
+     * Release the first rows of the window
+     */
+    public void dropFirst(int count) {
+        count = Math.min(count, taskList.size());
+        if (count > 0) {
+            taskList.subList(0, count).clear();
+            notifyItemRangeRemoved(0, count);
+        }
+    }
+
+    /**
+     * Release the last rows of the window
+     */
+    public void dropLast(int count) {
+        count = Math.min(count, taskList.size());
+        if (count > 0) {
+            int start = taskList.size() - count;
+            taskList.subList(start, taskList.size()).clear();
+            notifyItemRangeRemoved(start, count);
+        }
+    }
 
-            @Override
-            public int getNewListSize() {
-                return newList.size();
+    /**
+     * Insert a new task or replace an existing one, keeping the list ordered by
+     * due date and then ID
+     *
+     * @param task Task to place
+     * @param isStartLoaded Whether the window begins at the first task; if not, a task
+     *                      sorting before the first loaded one is left for an earlier page
+     * @param isEndLoaded Whether the window ends at the last task; if not, a task
+     *                    sorting after the last loaded one is left for a later page
+     */
+    public void upsertTask(TaskSummary task, boolean isStartLoaded, boolean isEndLoaded) {
+        boolean outsideWindow = (!isStartLoaded && compareOrder(task, getFirstTask()) < 0)
+                || (!isEndLoaded && compareOrder(task, getLastTask()) > 0);
+        int oldPosition = indexOfTask(task.getId());
+        if (oldPosition != -1) {
+            taskList.remove(oldPosition);
+        }
+
+        int newPosition = 0;
+        while (newPosition < taskList.size() && compareOrder(taskList.get(newPosition), task) < 0) {
+            newPosition++;
+        }
+
+        if (outsideWindow) {
+            if (oldPosition != -1) {
+                notifyItemRemoved(oldPosition);
             }
+            return;
+        }
 
-            @Override
-            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-                return oldList.get(oldItemPosition).getId() == newList.get(newItemPosition).getId();
+        taskList.add(newPosition, task);
+        if (oldPosition == -1) {
+            notifyItemInserted(newPosition);
+        } else {
+            if (oldPosition != newPosition) {
+                notifyItemMoved(oldPosition, newPosition);
             }
+            notifyItemChanged(newPosition);
+        }
+    }
 
-            @Override
-            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-                Task oldTask = oldList.get(oldItemPosition);
-                Task newTask = newList.get(newItemPosition);
-                
-                return oldTask.getTitle().equals(newTask.getTitle()) &&
-                       oldTask.getDescription().equals(newTask.getDescription()) &&
-                       oldTask.getDueDate() == newTask.getDueDate() &&
-                       oldTask.getPriority() == newTask.getPriority() &&
-                       oldTask.isCompleted() == newTask.isCompleted();
+    /**
+     * Remove a task from the list if it is present
+     */
+    public void removeTask(long taskId) {
+        int position = indexOfTask(taskId);
+        if (position != -1) {
+            taskList.remove(position);
+            notifyItemRemoved(position);
+        }
+    }
+
+    private int indexOfTask(long taskId) {
+        for (int i = 0; i < taskList.size(); i++) {
+            if (taskList.get(i).getId() == taskId) {
+                return i;
             }
-        });
-        
-        this.taskList = newList;
-        diffResult.dispatchUpdatesTo(this);
+        }
+        return -1;
+    }
+
+    // Same order as the repository's pages: due date, then ID; an empty window is
+    // treated as ending before every task
+    private static int compareOrder(TaskSummary a, TaskSummary b) {
+        if (b == null) {
+            return 1;
+        }
+        if (a.getDueDate() != b.getDueDate()) {
+            return a.getDueDate() < b.getDueDate() ? -1 : 1;
+        }
+        return Long.compare(a.getId(), b.getId());
     }
 
-    public Task getTaskAt(int position) {
-        return taskList.get(position);
+    /**
+     * @return First loaded task, the key for the previous page, or null if nothing is loaded
+     */
+    public TaskSummary getFirstTask() {
+        return taskList.isEmpty() ? null : taskList.get(0);
+    }
+
+    /**
+     * @return Last loaded task, the key for the next page, or null if nothing is loaded
+     */
+    public TaskSummary getLastTask() {
+        return taskList.isEmpty() ? null : taskList.get(taskList.size() - 1);
     }
 
     public class TaskViewHolder extends RecyclerView.ViewHolder {
@@ -113,7 +230,6 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
         private final CheckBox completedCheckBox;
         private final CardView taskCardView;
         private final ImageView priorityIndicator;
-
         public TaskViewHolder(@NonNull View itemView) {
             super(itemView);
             titleTextView = itemView.findViewById(R.id.text_view_task_title);
@@ -124,9 +240,9 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
             priorityIndicator = itemView.findViewById(R.id.image_view_priority_indicator);
         }
 
-        public void bind(final Task task) {
+        public void bind(final TaskSummary task) {
             titleTextView.setText(task.getTitle());
-            descriptionTextView.setText(task.getDescription());
+            descriptionTextView.setText(task.getDescriptionPreview());
             
             // Format and set due date if available
             if (task.getDueDate() != 0) {
@@ -173,7 +289,7 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
             completedCheckBox.setOnClickListener(v -> {
                 boolean isChecked = completedCheckBox.isChecked();
                 task.setCompleted(isChecked);
-                taskRepository.updateTask(task);
+                taskRepository.setTaskCompletedAsync(task.getId(), isChecked, null);
                 
                 // Refresh the card appearance
                 if (isChecked) {
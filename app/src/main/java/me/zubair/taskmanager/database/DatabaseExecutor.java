@@ -0,0 +1,54 @@
+package me.zubair.taskmanager.database;
+
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide, bounded pool of background threads for database work.
+ * The pool is sized to match the connections SQLite keeps open in WAL mode:
+ * enough for concurrent readers alongside the single writer, and no more.
+ */
+public final class DatabaseExecutor {
+    private static final int THREAD_COUNT = 3;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private DatabaseExecutor() {}
+
+    /**
+     * @return The shared database executor
+     */
+    public static ExecutorService get() {
+        return EXECUTOR;
+    }
+
+    private static ExecutorService createExecutor() {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "TaskDb-" + count.getAndIncrement());
+            }
+        };
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                THREAD_COUNT, THREAD_COUNT,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                threadFactory);
+        // Let idle threads exit so the pool costs nothing while the app is quiet
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
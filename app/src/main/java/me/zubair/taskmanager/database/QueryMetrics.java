@@ -0,0 +1,308 @@
+package me.zubair.taskmanager.database;
+
+import android.os.Looper;
+import android.util.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and row-count statistics for repository operations. Each operation
+ * gets a histogram with power-of-two microsecond buckets, split by whether it
+ * ran on the main thread. Calls slower than the threshold are also kept in a
+ * fixed-size ring buffer, the slow-query log.
+ *
+ * Recording costs two clock reads and a short synchronized update, so it stays
+ * on in release builds.
+ */
+public final class QueryMetrics {
+    // Bucket i counts calls that took [2^i, 2^(i+1)) microseconds; the last bucket is open-ended
+    static final int BUCKET_COUNT = 24;
+    private static final int SLOW_LOG_CAPACITY = 64;
+    private static final long DEFAULT_SLOW_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+
+    private final Map<String, OperationStats> operations = new TreeMap<>();
+    private final SlowQuery[] slowLog = new SlowQuery[SLOW_LOG_CAPACITY];
+    private int slowLogNext;
+    private long slowLogTotal;
+    private volatile long slowThresholdNanos = DEFAULT_SLOW_THRESHOLD_NANOS;
+
+    /**
+     * @return Start token for {@link #record}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record a finished call, counting rows from its result
+     *
+     * @param operation Operation name, e.g. the repository method
+     * @param startNanos Token from {@link #start()}
+     * @param result Value the operation returns; lists, arrays and cursors count their rows
+     * @return The result, so a return statement can be wrapped in place
+     */
+    public <T> T record(String operation, long startNanos, T result) {
+        record(operation, startNanos, rowCount(result));
+        return result;
+    }
+
+    /**
+     * Record a finished call
+     *
+     * @param operation Operation name, e.g. the repository method
+     * @param startNanos Token from {@link #start()}
+     * @param rows Rows read or written
+     * @return The row count, so a return statement can be wrapped in place
+     */
+    public int record(String operation, long startNanos, int rows) {
+        long nanos = System.nanoTime() - startNanos;
+        boolean mainThread = Looper.myLooper() == Looper.getMainLooper();
+
+        synchronized (this) {
+            OperationStats stats = operations.get(operation);
+            if (stats == null) {
+                stats = new OperationStats(operation);
+                operations.put(operation, stats);
+            }
+            stats.add(nanos, rows, mainThread);
+
+            if (nanos >= slowThresholdNanos) {
+                slowLog[slowLogNext] = new SlowQuery(operation, nanos, rows, mainThread,
+                        System.currentTimeMillis(), Thread.currentThread().getName());
+                slowLogNext = (slowLogNext + 1) % SLOW_LOG_CAPACITY;
+                slowLogTotal++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @param thresholdMillis Calls taking at least this long go to the slow-query log
+     */
+    public void setSlowThresholdMillis(long thresholdMillis) {
+        slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    /**
+     * @return Copies of the per-operation statistics, sorted by operation name
+     */
+    public synchronized List<OperationStats> getOperationStats() {
+        List<OperationStats> copies = new ArrayList<>(operations.size());
+        for (OperationStats stats : operations.values()) {
+            copies.add(stats.copy());
+        }
+        return copies;
+    }
+
+    /**
+     * @return Logged slow calls, oldest first
+     */
+    public synchronized List<SlowQuery> getSlowQueries() {
+        List<SlowQuery> queries = new ArrayList<>(SLOW_LOG_CAPACITY);
+        for (int i = 0; i < SLOW_LOG_CAPACITY; i++) {
+            SlowQuery query = slowLog[(slowLogNext + i) % SLOW_LOG_CAPACITY];
+            if (query != null) {
+                queries.add(query);
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * Forget everything recorded so far
+     */
+    public synchronized void reset() {
+        operations.clear();
+        for (int i = 0; i < SLOW_LOG_CAPACITY; i++) {
+            slowLog[i] = null;
+        }
+        slowLogNext = 0;
+        slowLogTotal = 0;
+    }
+
+    /**
+     * Write the statistics and the slow-query log as JSON. The writer is flushed but not closed.
+     */
+    public void writeJson(Writer writer) throws IOException {
+        List<OperationStats> stats;
+        List<SlowQuery> slowQueries;
+        long slowTotal;
+        synchronized (this) {
+            stats = getOperationStats();
+            slowQueries = getSlowQueries();
+            slowTotal = slowLogTotal;
+        }
+
+        JsonWriter json = new JsonWriter(writer);
+        json.setIndent("  ");
+        json.beginObject();
+        json.name("slow_threshold_ms").value(TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos));
+
+        json.name("operations").beginArray();
+        for (OperationStats operation : stats) {
+            json.beginObject();
+            json.name("name").value(operation.name);
+            json.name("count").value(operation.count);
+            json.name("main_thread_count").value(operation.mainThreadCount);
+            json.name("rows").value(operation.rows);
+            json.name("mean_us").value(operation.getMeanMicros());
+            json.name("p50_us").value(operation.getPercentileMicros(50));
+            json.name("p95_us").value(operation.getPercentileMicros(95));
+            json.name("p99_us").value(operation.getPercentileMicros(99));
+            json.name("max_us").value(TimeUnit.NANOSECONDS.toMicros(operation.maxNanos));
+            // Bucket i holds calls of [2^i, 2^(i+1)) microseconds
+            json.name("histogram_us_log2").beginArray();
+            for (long bucket : operation.buckets) {
+                json.value(bucket);
+            }
+            json.endArray();
+            json.endObject();
+        }
+        json.endArray();
+
+        json.name("slow_queries_total").value(slowTotal);
+        json.name("slow_queries").beginArray();
+        for (SlowQuery query : slowQueries) {
+            json.beginObject();
+            json.name("operation").value(query.operation);
+            json.name("duration_us").value(TimeUnit.NANOSECONDS.toMicros(query.nanos));
+            json.name("rows").value(query.rows);
+            json.name("main_thread").value(query.mainThread);
+            json.name("thread").value(query.threadName);
+            json.name("timestamp").value(query.timestamp);
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    private static int rowCount(Object result) {
+        if (result == null) {
+            return 0;
+        } else if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        } else if (result instanceof long[]) {
+            return ((long[]) result).length;
+        } else if (result instanceof int[]) {
+            return ((int[]) result).length;
+        } else if (result instanceof Integer) {
+            return (Integer) result;
+        }
+        return 1;
+    }
+
+    static int bucketOf(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        int bucket = 63 - Long.numberOfLeadingZeros(Math.max(micros, 1));
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Statistics for one operation
+     */
+    public static final class OperationStats {
+        public final String name;
+        private final long[] buckets = new long[BUCKET_COUNT];
+        private long count;
+        private long mainThreadCount;
+        private long rows;
+        private long totalNanos;
+        private long maxNanos;
+
+        OperationStats(String name) {
+            this.name = name;
+        }
+
+        void add(long nanos, int rowCount, boolean mainThread) {
+            buckets[bucketOf(nanos)]++;
+            count++;
+            if (mainThread) {
+                mainThreadCount++;
+            }
+            rows += rowCount;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        OperationStats copy() {
+            OperationStats copy = new OperationStats(name);
+            System.arraycopy(buckets, 0, copy.buckets, 0, BUCKET_COUNT);
+            copy.count = count;
+            copy.mainThreadCount = mainThreadCount;
+            copy.rows = rows;
+            copy.totalNanos = totalNanos;
+            copy.maxNanos = maxNanos;
+            return copy;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMainThreadCount() {
+            return mainThreadCount;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getMeanMicros() {
+            return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos / count);
+        }
+
+        /**
+         * @param percentile Percentile between 0 and 100
+         * @return Upper bound of the bucket holding that percentile, in microseconds
+         */
+        public long getPercentileMicros(int percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (count * percentile + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return i == BUCKET_COUNT - 1 ? TimeUnit.NANOSECONDS.toMicros(maxNanos) : 1L << (i + 1);
+                }
+            }
+            return TimeUnit.NANOSECONDS.toMicros(maxNanos);
+        }
+    }
+
+    /**
+     * One call that exceeded the slow-query threshold
+     */
+    public static final class SlowQuery {
+        public final String operation;
+        public final long nanos;
+        public final int rows;
+        public final boolean mainThread;
+        public final long timestamp;
+        public final String threadName;
+
+        SlowQuery(String operation, long nanos, int rows, boolean mainThread, long timestamp, String threadName) {
+            this.operation = operation;
+            this.nanos = nanos;
+            this.rows = rows;
+            this.mainThread = mainThread;
+            this.timestamp = timestamp;
+            this.threadName = threadName;
+        }
+
+        @Override
+        public String toString() {
+            return operation + " " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms, " + rows + " rows" +
+                    (mainThread ? " on main thread" : "");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package me.zubair.taskmanager.database;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Handle to a repository operation running on the database executor.
+ * The result is delivered to the main looper unless the call was cancelled first,
+ * in which case a {@link Closeable} result is closed instead.
+ */
+public final class RepositoryCall<T> implements Runnable {
+    private static final String TAG = "RepositoryCall";
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private final Callable<T> work;
+    private final TaskRepository.Callback<T> callback;
+    private volatile boolean cancelled;
+    private volatile Future<?> future;
+    private Lifecycle boundLifecycle;
+    private LifecycleEventObserver lifecycleObserver;
+
+    RepositoryCall(Callable<T> work, TaskRepository.Callback<T> callback) {
+        this.work = work;
+        this.callback = callback;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    @Override
+    public void run() {
+        if (cancelled) {
+            return;
+        }
+
+        try {
+            T result = work.call();
+            MAIN_HANDLER.post(() -> deliver(result, null));
+        } catch (Exception e) {
+            Log.e(TAG, "Repository call failed: " + e.getMessage());
+            MAIN_HANDLER.post(() -> deliver(null, e));
+        }
+    }
+
+    private void deliver(T result, Exception error) {
+        unbind();
+        if (cancelled || callback == null) {
+            // Nobody will take ownership of a result such as a cursor, so release it here
+            closeQuietly(result);
+            return;
+        }
+        if (error != null) {
+            callback.onError(error);
+        } else {
+            callback.onSuccess(result);
+        }
+    }
+
+    private static void closeQuietly(Object result) {
+        if (result instanceof Closeable) {
+            try {
+                ((Closeable) result).close();
+            } catch (IOException e) {
+                Log.e(TAG, "Error closing discarded result: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Cancel the call automatically when the owner is destroyed, e.g. a fragment's
+     * view lifecycle owner. Must be called on the main thread.
+     *
+     * @param owner Lifecycle that bounds the interest in this result
+     * @return This call, for chaining
+     */
+    public RepositoryCall<T> bindTo(LifecycleOwner owner) {
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            cancel();
+            return this;
+        }
+
+        lifecycleObserver = new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    cancel();
+                    unbind();
+                }
+            }
+        };
+        boundLifecycle = lifecycle;
+        lifecycle.addObserver(lifecycleObserver);
+        return this;
+    }
+
+    private void unbind() {
+        if (boundLifecycle != null) {
+            boundLifecycle.removeObserver(lifecycleObserver);
+            boundLifecycle = null;
+            lifecycleObserver = null;
+        }
+    }
+
+    /**
+     * Cancel the call. Work that has not started is skipped, and the callback
+     * is never invoked afterwards.
+     */
+    public void cancel() {
+        cancelled = true;
+        Future<?> pending = future;
+        if (pending != null) {
+            // Never interrupt a running SQLite statement; the result is just dropped
+            pending.cancel(false);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,63 @@
+package me.zubair.taskmanager.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import me.zubair.taskmanager.preferences.UserPreferencesManager;
+
+/**
+ * Background job that keeps the tasks table small by moving completed tasks
+ * older than the configured age into the archive. Tasks are moved in small
+ * batches, each in its own short transaction, so user writes are never held
+ * up for long.
+ */
+public final class TaskArchiveJob implements Runnable {
+    private static final String TAG = "TaskArchiveJob";
+    private static final int ARCHIVE_BATCH_SIZE = 200;
+
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+
+    private final TaskRepository repository;
+    private final long cutoff;
+
+    private TaskArchiveJob(TaskRepository repository, long cutoff) {
+        this.repository = repository;
+        this.cutoff = cutoff;
+    }
+
+    /**
+     * Run an archive pass on the database executor unless archiving is turned off
+     * or a pass is already running
+     *
+     * @param context Any context; only its application context is retained
+     */
+    public static void schedule(Context context) {
+        int days = new UserPreferencesManager(context).getArchiveAfterDays();
+        if (days <= 0 || !RUNNING.compareAndSet(false, true)) {
+            return;
+        }
+        TaskRepository repository = TaskRepository.getInstance(context);
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days);
+        repository.getIoExecutor().execute(new TaskArchiveJob(repository, cutoff));
+    }
+
+    @Override
+    public void run() {
+        try {
+            int archived = 0;
+            int batchArchived;
+            do {
+                batchArchived = repository.archiveCompletedTasks(cutoff, ARCHIVE_BATCH_SIZE);
+                archived += batchArchived;
+            } while (batchArchived == ARCHIVE_BATCH_SIZE);
+            Log.i(TAG, "Archived " + archived + " completed tasks");
+        } catch (Exception e) {
+            Log.e(TAG, "Error archiving tasks: " + e.getMessage());
+        } finally {
+            RUNNING.set(false);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package me.zubair.taskmanager.database;
+
+import java.util.Arrays;
+
+/**
+ * Describes a committed change to one or more tasks
+ */
+public final class TaskChangeEvent {
+
+    public enum Type {
+        INSERTED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final long[] taskIds;
+
+    TaskChangeEvent(Type type, long[] taskIds) {
+        this.type = type;
+        this.taskIds = taskIds;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return IDs of the tasks affected by this change
+     */
+    public long[] getTaskIds() {
+        return taskIds.clone();
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + Arrays.toString(taskIds);
+    }
+}
@@ -0,0 +1,83 @@
+package me.zubair.taskmanager.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import me.zubair.taskmanager.utils.FileHelper;
+
+/**
+ * Background job that reclaims the space held by deleted tasks. Tombstoned rows
+ * and their attachment directories are purged in small batches, each in its own
+ * short transaction, and the freed pages are then returned to the file system
+ * with incremental vacuum.
+ */
+public final class TaskCompactionJob implements Runnable {
+    private static final String TAG = "TaskCompactionJob";
+    private static final int PURGE_BATCH_SIZE = 100;
+    private static final int VACUUM_PAGES_PER_STEP = 256;
+    private static final int MAX_VACUUM_STEPS = 64;
+
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+
+    private final Context context;
+    private final TaskRepository repository;
+    private final FileHelper fileHelper = new FileHelper();
+
+    private TaskCompactionJob(Context context, TaskRepository repository) {
+        this.context = context;
+        this.repository = repository;
+    }
+
+    /**
+     * Run a compaction pass on the database executor unless one is already running
+     *
+     * @param context Any context; only its application context is retained
+     */
+    public static void schedule(Context context) {
+        if (!RUNNING.compareAndSet(false, true)) {
+            return;
+        }
+        TaskRepository repository = TaskRepository.getInstance(context);
+        repository.getIoExecutor().execute(new TaskCompactionJob(context.getApplicationContext(), repository));
+    }
+
+    @Override
+    public void run() {
+        try {
+            int purged = purgeTombstones();
+            int freePages = vacuum();
+            Log.i(TAG, "Purged " + purged + " deleted tasks, " + freePages + " free pages left");
+        } catch (Exception e) {
+            Log.e(TAG, "Error compacting database: " + e.getMessage());
+        } finally {
+            RUNNING.set(false);
+        }
+    }
+
+    private int purgeTombstones() {
+        int purged = 0;
+        long[] taskIds;
+        int batchPurged;
+        do {
+            taskIds = repository.getTombstonedTaskIds(PURGE_BATCH_SIZE);
+            // Files go first: if the process dies in between, the row is still there to retry
+            for (long taskId : taskIds) {
+                fileHelper.deleteTaskFiles(context, taskId);
+            }
+            batchPurged = repository.purgeTasks(taskIds);
+            purged += batchPurged;
+        } while (taskIds.length == PURGE_BATCH_SIZE && batchPurged > 0);
+        return purged;
+    }
+
+    private int vacuum() {
+        // Release pages in steps so that user writes can get the lock in between
+        int freePages = repository.incrementalVacuum(VACUUM_PAGES_PER_STEP);
+        for (int step = 1; freePages > 0 && step < MAX_VACUUM_STEPS; step++) {
+            freePages = repository.incrementalVacuum(VACUUM_PAGES_PER_STEP);
+        }
+        return freePages;
+    }
+}
@@ -2,6 +2,8 @@ package me.zubair.taskmanager.database;
 
 import android.provider.BaseColumns;
 
+import me.zubair.taskmanager.models.TaskChange;
+
 /**
  * Contract class for the Task database table
  */
@@ -19,6 +21,10 @@ public final class TaskContract {
         public static final String COLUMN_PRIORITY = "priority";
         public static final String COLUMN_COMPLETED = "completed";
         public static final String COLUMN_CREATED_AT = "created_at";
+        // Time the task was deleted; NULL for live tasks. Tombstoned rows are purged later.
+        public static final String COLUMN_DELETED_AT = "deleted_at";
+        // Random identifier shared by every device that syncs this task
+        public static final String COLUMN_SYNC_ID = "sync_id";
         
         // SQL statement to create the table
         public static final String SQL_CREATE_ENTRIES =
@@ -31,7 +37,415 @@ public final class TaskContract {
                         COLUMN_COMPLETED + " INTEGER DEFAULT 0," +
                         COLUMN_CREATED_AT + " INTEGER)";
         
+        // Indexes backing the due-date ordered list and the scheduler's due-window scans
+        public static final String INDEX_DUE_DATE = "idx_tasks_due_date";
+        public static final String INDEX_COMPLETED_DUE_DATE = "idx_tasks_completed_due_date";
+        public static final String INDEX_PENDING_DUE_DATE = "idx_tasks_pending_due_date";
+        public static final String INDEX_LIVE_PENDING_DUE_DATE = "idx_tasks_live_pending_due_date";
+        public static final String INDEX_DELETED_AT = "idx_tasks_deleted_at";
+        public static final String INDEX_SYNC_ID = "idx_tasks_sync_id";
+
+        public static final String SQL_CREATE_INDEX_DUE_DATE =
+                "CREATE INDEX IF NOT EXISTS " + INDEX_DUE_DATE + " ON " + TABLE_NAME +
+                        " (" + COLUMN_DUE_DATE + ")";
+
+        public static final String SQL_CREATE_INDEX_COMPLETED_DUE_DATE =
+                "CREATE INDEX IF NOT EXISTS " + INDEX_COMPLETED_DUE_DATE + " ON " + TABLE_NAME +
+                        " (" + COLUMN_COMPLETED + ", " + COLUMN_DUE_DATE + ")";
+
+        // Partial index: only pending tasks, so queries must use the literal "completed = 0"
+        public static final String SQL_CREATE_INDEX_PENDING_DUE_DATE =
+                "CREATE INDEX IF NOT EXISTS " + INDEX_PENDING_DUE_DATE + " ON " + TABLE_NAME +
+                        " (" + COLUMN_DUE_DATE + ") WHERE " + COLUMN_COMPLETED + " = 0";
+
+        // Replaces the pending index once tombstones exist; queries must use the literal
+        // "completed = 0 AND deleted_at IS NULL"
+        public static final String SQL_CREATE_INDEX_LIVE_PENDING_DUE_DATE =
+                "CREATE INDEX IF NOT EXISTS " + INDEX_LIVE_PENDING_DUE_DATE + " ON " + TABLE_NAME +
+                        " (" + COLUMN_DUE_DATE + ") WHERE " + COLUMN_COMPLETED + " = 0 AND " +
+                        COLUMN_DELETED_AT + " IS NULL";
+
+        // Partial index over tombstones only, so compaction never scans live rows
+        public static final String SQL_CREATE_INDEX_DELETED_AT =
+                "CREATE INDEX IF NOT EXISTS " + INDEX_DELETED_AT + " ON " + TABLE_NAME +
+                        " (" + COLUMN_DELETED_AT + ") WHERE " + COLUMN_DELETED_AT + " IS NOT NULL";
+
+        public static final String SQL_CREATE_INDEX_SYNC_ID =
+                "CREATE UNIQUE INDEX IF NOT EXISTS " + INDEX_SYNC_ID + " ON " + TABLE_NAME +
+                        " (" + COLUMN_SYNC_ID + ")";
+
         public static final String SQL_DELETE_ENTRIES =
                 "DROP TABLE IF EXISTS " + TABLE_NAME;
     }
+
+    /* Full-text index over task titles and descriptions, kept in sync by triggers */
+    public static class TaskSearchEntry {
+        public static final String TABLE_NAME = "tasks_fts";
+        public static final String COLUMN_DOCID = "docid";
+
+        // External content table: the index stores no copy of the text itself
+        public static final String SQL_CREATE_ENTRIES =
+                "CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_NAME + " USING fts4(" +
+                        "content=\"" + TaskEntry.TABLE_NAME + "\", " +
+                        TaskEntry.COLUMN_TITLE + ", " +
+                        TaskEntry.COLUMN_DESCRIPTION + ")";
+
+        public static final String SQL_REBUILD =
+                "INSERT INTO " + TABLE_NAME + "(" + TABLE_NAME + ") VALUES('rebuild')";
+
+        public static final String SQL_CREATE_TRIGGER_BEFORE_UPDATE =
+                "CREATE TRIGGER IF NOT EXISTS tasks_fts_before_update" +
+                        " BEFORE UPDATE OF " + TaskEntry.COLUMN_TITLE + ", " + TaskEntry.COLUMN_DESCRIPTION +
+                        " ON " + TaskEntry.TABLE_NAME + " BEGIN " +
+                        "DELETE FROM " + TABLE_NAME + " WHERE " + COLUMN_DOCID + " = OLD." + TaskEntry._ID + ";" +
+                        " END";
+
+        public static final String SQL_CREATE_TRIGGER_BEFORE_DELETE =
+                "CREATE TRIGGER IF NOT EXISTS tasks_fts_before_delete" +
+                        " BEFORE DELETE ON " + TaskEntry.TABLE_NAME + " BEGIN " +
+                        "DELETE FROM " + TABLE_NAME + " WHERE " + COLUMN_DOCID + " = OLD." + TaskEntry._ID + ";" +
+                        " END";
+
+        public static final String SQL_CREATE_TRIGGER_AFTER_UPDATE =
+                "CREATE TRIGGER IF NOT EXISTS tasks_fts_after_update" +
+                        " AFTER UPDATE OF " + TaskEntry.COLUMN_TITLE + ", " + TaskEntry.COLUMN_DESCRIPTION +
+                        " ON " + TaskEntry.TABLE_NAME + " BEGIN " +
+                        insertNew() +
+                        " END";
+
+        public static final String SQL_CREATE_TRIGGER_AFTER_INSERT =
+                "CREATE TRIGGER IF NOT EXISTS tasks_fts_after_insert" +
+                        " AFTER INSERT ON " + TaskEntry.TABLE_NAME + " BEGIN " +
+                        insertNew() +
+                        " END";
+
+        private static String insertNew() {
+            return "INSERT INTO " + TABLE_NAME + " (" + COLUMN_DOCID + ", " +
+                    TaskEntry.COLUMN_TITLE + ", " + TaskEntry.COLUMN_DESCRIPTION + ") VALUES (NEW." +
+                    TaskEntry._ID + ", NEW." + TaskEntry.COLUMN_TITLE + ", NEW." + TaskEntry.COLUMN_DESCRIPTION + ");";
+        }
+    }
+
+    /* Summary table of task counts per (priority, completed), maintained by triggers */
+    public static class TaskCountEntry {
+        public static final String TABLE_NAME = "task_counts";
+        public static final String COLUMN_PRIORITY = "priority";
+        public static final String COLUMN_COMPLETED = "completed";
+        public static final String COLUMN_COUNT = "count";
+
+        public static final String SQL_CREATE_ENTRIES =
+                "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " (" +
+                        COLUMN_PRIORITY + " INTEGER NOT NULL," +
+                        COLUMN_COMPLETED + " INTEGER NOT NULL," +
+                        COLUMN_COUNT + " INTEGER NOT NULL DEFAULT 0," +
+                        "PRIMARY KEY (" + COLUMN_PRIORITY + ", " + COLUMN_COMPLETED + "))";
+
+        // Rebuilds the counts from the tasks table
+        public static final String SQL_BACKFILL =
+                "INSERT OR REPLACE INTO " + TABLE_NAME + " (" +
+                        COLUMN_PRIORITY + ", " + COLUMN_COMPLETED + ", " + COLUMN_COUNT + ") " +
+                        "SELECT IFNULL(" + TaskEntry.COLUMN_PRIORITY + ", 0), IFNULL(" +
+                        TaskEntry.COLUMN_COMPLETED + ", 0), COUNT(*) FROM " + TaskEntry.TABLE_NAME +
+                        " GROUP BY 1, 2";
+
+        public static final String TRIGGER_AFTER_INSERT = "task_counts_after_insert";
+        public static final String TRIGGER_AFTER_UPDATE = "task_counts_after_update";
+        public static final String TRIGGER_AFTER_DELETE = "task_counts_after_delete";
+
+        public static final String SQL_DROP_TRIGGER_AFTER_INSERT = "DROP TRIGGER IF EXISTS " + TRIGGER_AFTER_INSERT;
+        public static final String SQL_DROP_TRIGGER_AFTER_UPDATE = "DROP TRIGGER IF EXISTS " + TRIGGER_AFTER_UPDATE;
+        public static final String SQL_DROP_TRIGGER_AFTER_DELETE = "DROP TRIGGER IF EXISTS " + TRIGGER_AFTER_DELETE;
+
+        public static final String SQL_CREATE_TRIGGER_AFTER_INSERT =
+                "CREATE TRIGGER IF NOT EXISTS " + TRIGGER_AFTER_INSERT +
+                        " AFTER INSERT ON " + TaskEntry.TABLE_NAME + " BEGIN " +
+                        increment("NEW") +
+                        " END";
+
+        public static final String SQL_CREATE_TRIGGER_AFTER_UPDATE =
+                "CREATE TRIGGER IF NOT EXISTS " + TRIGGER_AFTER_UPDATE +
+                        " AFTER UPDATE OF " + TaskEntry.COLUMN_PRIORITY + ", " + TaskEntry.COLUMN_COMPLETED +
+                        " ON " + TaskEntry.TABLE_NAME +
+                        " WHEN OLD." + TaskEntry.COLUMN_PRIORITY + " IS NOT NEW." + TaskEntry.COLUMN_PRIORITY +
+                        " OR OLD." + TaskEntry.COLUMN_COMPLETED + " IS NOT NEW." + TaskEntry.COLUMN_COMPLETED +
+                        " BEGIN " +
+                        decrement("OLD") +
+                        increment("NEW") +
+                        " END";
+
+        public static final String SQL_CREATE_TRIGGER_AFTER_DELETE =
+                "CREATE TRIGGER IF NOT EXISTS " + TRIGGER_AFTER_DELETE +
+                        " AFTER DELETE ON " + TaskEntry.TABLE_NAME + " BEGIN " +
+                        decrement("OLD") +
+                        " END";
+
+        // Replacements for the triggers above that leave tombstoned rows out of the counts
+        public static final String SQL_CREATE_LIVE_TRIGGER_AFTER_INSERT =
+                "CREATE TRIGGER IF NOT EXISTS " + TRIGGER_AFTER_INSERT +
+                        " AFTER INSERT ON " + TaskEntry.TABLE_NAME +
+                        " WHEN NEW." + TaskEntry.COLUMN_DELETED_AT + " IS NULL BEGIN " +
+                        increment("NEW") +
+                        " END";
+
+        public static final String SQL_CREATE_LIVE_TRIGGER_AFTER_UPDATE =
+                "CREATE TRIGGER IF NOT EXISTS " + TRIGGER_AFTER_UPDATE +
+                        " AFTER UPDATE OF " + TaskEntry.COLUMN_PRIORITY + ", " + TaskEntry.COLUMN_COMPLETED +
+                        ", " + TaskEntry.COLUMN_DELETED_AT + " ON " + TaskEntry.TABLE_NAME +
+                        " WHEN OLD." + TaskEntry.COLUMN_PRIORITY + " IS NOT NEW." + TaskEntry.COLUMN_PRIORITY +
+                        " OR OLD." + TaskEntry.COLUMN_COMPLETED + " IS NOT NEW." + TaskEntry.COLUMN_COMPLETED +
+                        " OR OLD." + TaskEntry.COLUMN_DELETED_AT + " IS NOT NEW." + TaskEntry.COLUMN_DELETED_AT +
+                        " BEGIN " +
+                        decrement("OLD", " AND OLD." + TaskEntry.COLUMN_DELETED_AT + " IS NULL") +
+                        increment("NEW", " AND NEW." + TaskEntry.COLUMN_DELETED_AT + " IS NULL") +
+                        " END";
+
+        public static final String SQL_CREATE_LIVE_TRIGGER_AFTER_DELETE =
+                "CREATE TRIGGER IF NOT EXISTS " + TRIGGER_AFTER_DELETE +
+                        " AFTER DELETE ON " + TaskEntry.TABLE_NAME +
+                        " WHEN OLD." + TaskEntry.COLUMN_DELETED_AT + " IS NULL BEGIN " +
+                        decrement("OLD") +
+                        " END";
+
+        // Archived tasks keep counting, so moving a task between tables leaves the totals unchanged
+        public static final String SQL_CREATE_ARCHIVE_TRIGGER_AFTER_INSERT =
+                "CREATE TRIGGER IF NOT EXISTS task_counts_archive_after_insert" +
+                        " AFTER INSERT ON " + TaskArchiveEntry.TABLE_NAME + " BEGIN " +
+                        increment("NEW") +
+                        " END";
+
+        public static final String SQL_CREATE_ARCHIVE_TRIGGER_AFTER_DELETE =
+                "CREATE TRIGGER IF NOT EXISTS task_counts_archive_after_delete" +
+                        " AFTER DELETE ON " + TaskArchiveEntry.TABLE_NAME + " BEGIN " +
+                        decrement("OLD") +
+                        " END";
+
+        private static String bucket(String row) {
+            return COLUMN_PRIORITY + " = IFNULL(" + row + "." + TaskEntry.COLUMN_PRIORITY + ", 0) AND " +
+                    COLUMN_COMPLETED + " = IFNULL(" + row + "." + TaskEntry.COLUMN_COMPLETED + ", 0)";
+        }
+
+        private static String increment(String row) {
+            return increment(row, "");
+        }
+
+        private static String increment(String row, String condition) {
+            return "INSERT OR IGNORE INTO " + TABLE_NAME + " (" + COLUMN_PRIORITY + ", " + COLUMN_COMPLETED + ") " +
+                    "VALUES (IFNULL(" + row + "." + TaskEntry.COLUMN_PRIORITY + ", 0), IFNULL(" +
+                    row + "." + TaskEntry.COLUMN_COMPLETED + ", 0)); " +
+                    "UPDATE " + TABLE_NAME + " SET " + COLUMN_COUNT + " = " + COLUMN_COUNT + " + 1 WHERE " +
+                    bucket(row) + condition + ";";
+        }
+
+        private static String decrement(String row) {
+            return decrement(row, "");
+        }
+
+        private static String decrement(String row, String condition) {
+            return "UPDATE " + TABLE_NAME + " SET " + COLUMN_COUNT + " = " + COLUMN_COUNT + " - 1 WHERE " +
+                    bucket(row) + condition + ";";
+        }
+    }
+
+
+    /* Append-only log of local task changes awaiting sync, populated by triggers */
+    public static class TaskJournalEntry {
+        public static final String TABLE_NAME = "task_journal";
+        // AUTOINCREMENT so sequence numbers are never reused after acknowledged rows are pruned
+        public static final String COLUMN_SEQ = "seq";
+        public static final String COLUMN_SYNC_ID = "sync_id";
+        public static final String COLUMN_OPERATION = "operation";
+        public static final String COLUMN_FIELD_MASK = "field_mask";
+        public static final String COLUMN_CHANGED_AT = "changed_at";
+
+        public static final int OPERATION_INSERT = 1;
+        public static final int OPERATION_UPDATE = 2;
+        public static final int OPERATION_DELETE = 3;
+
+        // Bits of the field mask, one per synced task column, plus one for the tombstone
+        public static final int FIELD_TITLE = TaskChange.FIELD_TITLE;
+        public static final int FIELD_DESCRIPTION = TaskChange.FIELD_DESCRIPTION;
+        public static final int FIELD_DUE_DATE = TaskChange.FIELD_DUE_DATE;
+        public static final int FIELD_PRIORITY = TaskChange.FIELD_PRIORITY;
+        public static final int FIELD_COMPLETED = TaskChange.FIELD_COMPLETED;
+        public static final int FIELD_DELETED = 1 << 5;
+        public static final int ALL_FIELDS = TaskChange.ALL_FIELDS;
+
+        public static final String SQL_CREATE_ENTRIES =
+                "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " (" +
+                        COLUMN_SEQ + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+                        COLUMN_SYNC_ID + " TEXT NOT NULL," +
+                        COLUMN_OPERATION + " INTEGER NOT NULL," +
+                        COLUMN_FIELD_MASK + " INTEGER NOT NULL," +
+                        COLUMN_CHANGED_AT + " INTEGER NOT NULL)";
+
+        // Journals every live task as an insert, so the first push uploads existing data
+        public static final String SQL_BACKFILL =
+                "INSERT INTO " + TABLE_NAME + " (" + COLUMN_SYNC_ID + ", " + COLUMN_OPERATION + ", " +
+                        COLUMN_FIELD_MASK + ", " + COLUMN_CHANGED_AT + ") " +
+                        "SELECT " + TaskEntry.COLUMN_SYNC_ID + ", " + OPERATION_INSERT + ", " + ALL_FIELDS + ", " +
+                        NOW_MILLIS + " FROM " + TaskEntry.TABLE_NAME +
+                        " WHERE " + TaskEntry.COLUMN_DELETED_AT + " IS NULL ORDER BY " + TaskEntry._ID;
+
+        // Assigns the sync ID of a new local task, then journals it unless a pull is being applied
+        public static final String SQL_CREATE_TRIGGER_AFTER_INSERT =
+                "CREATE TRIGGER IF NOT EXISTS task_journal_after_insert" +
+                        " AFTER INSERT ON " + TaskEntry.TABLE_NAME + " BEGIN " +
+                        "UPDATE " + TaskEntry.TABLE_NAME + " SET " + TaskEntry.COLUMN_SYNC_ID + " = " + NEW_SYNC_ID +
+                        " WHERE " + TaskEntry._ID + " = NEW." + TaskEntry._ID +
+                        " AND " + TaskEntry.COLUMN_SYNC_ID + " IS NULL; " +
+                        "INSERT INTO " + TABLE_NAME + " (" + COLUMN_SYNC_ID + ", " + COLUMN_OPERATION + ", " +
+                        COLUMN_FIELD_MASK + ", " + COLUMN_CHANGED_AT + ") " +
+                        "SELECT " + TaskEntry.COLUMN_SYNC_ID + ", " + OPERATION_INSERT + ", " + ALL_FIELDS + ", " +
+                        NOW_MILLIS + " FROM " + TaskEntry.TABLE_NAME +
+                        " WHERE " + TaskEntry._ID + " = NEW." + TaskEntry._ID + " AND " + SyncStateEntry.NOT_APPLYING_REMOTE + ";" +
+                        " END";
+
+        // Records which synced columns actually changed; a newly set tombstone is a delete
+        public static final String SQL_CREATE_TRIGGER_AFTER_UPDATE =
+                "CREATE TRIGGER IF NOT EXISTS task_journal_after_update" +
+                        " AFTER UPDATE OF " + TaskEntry.COLUMN_TITLE + ", " + TaskEntry.COLUMN_DESCRIPTION + ", " +
+                        TaskEntry.COLUMN_DUE_DATE + ", " + TaskEntry.COLUMN_PRIORITY + ", " +
+                        TaskEntry.COLUMN_COMPLETED + ", " + TaskEntry.COLUMN_DELETED_AT +
+                        " ON " + TaskEntry.TABLE_NAME +
+                        " WHEN " + SyncStateEntry.NOT_APPLYING_REMOTE + " BEGIN " +
+                        "INSERT INTO " + TABLE_NAME + " (" + COLUMN_SYNC_ID + ", " + COLUMN_OPERATION + ", " +
+                        COLUMN_FIELD_MASK + ", " + COLUMN_CHANGED_AT + ") " +
+                        "SELECT NEW." + TaskEntry.COLUMN_SYNC_ID + ", " +
+                        "CASE WHEN NEW." + TaskEntry.COLUMN_DELETED_AT + " IS NOT NULL THEN " + OPERATION_DELETE +
+                        " ELSE " + OPERATION_UPDATE + " END, mask, " + NOW_MILLIS + " FROM (SELECT " +
+                        changed(TaskEntry.COLUMN_TITLE, FIELD_TITLE) + " | " +
+                        changed(TaskEntry.COLUMN_DESCRIPTION, FIELD_DESCRIPTION) + " | " +
+                        changed(TaskEntry.COLUMN_DUE_DATE, FIELD_DUE_DATE) + " | " +
+                        changed(TaskEntry.COLUMN_PRIORITY, FIELD_PRIORITY) + " | " +
+                        changed(TaskEntry.COLUMN_COMPLETED, FIELD_COMPLETED) + " | " +
+                        changed(TaskEntry.COLUMN_DELETED_AT, FIELD_DELETED) + " AS mask)" +
+                        " WHERE mask != 0;" +
+                        " END";
+
+        // Hard deletes of live rows; purging an already journaled tombstone is not a change
+        public static final String SQL_CREATE_TRIGGER_AFTER_DELETE =
+                "CREATE TRIGGER IF NOT EXISTS task_journal_after_delete" +
+                        " AFTER DELETE ON " + TaskEntry.TABLE_NAME +
+                        " WHEN OLD." + TaskEntry.COLUMN_DELETED_AT + " IS NULL AND " +
+                        SyncStateEntry.NOT_APPLYING_REMOTE + " BEGIN " +
+                        "INSERT INTO " + TABLE_NAME + " (" + COLUMN_SYNC_ID + ", " + COLUMN_OPERATION + ", " +
+                        COLUMN_FIELD_MASK + ", " + COLUMN_CHANGED_AT + ") VALUES (OLD." + TaskEntry.COLUMN_SYNC_ID +
+                        ", " + OPERATION_DELETE + ", " + FIELD_DELETED + ", " + NOW_MILLIS + ");" +
+                        " END";
+
+        private static String changed(String column, int bit) {
+            return "(CASE WHEN OLD." + column + " IS NOT NEW." + column + " THEN " + bit + " ELSE 0 END)";
+        }
+    }
+
+    /* Single-row table holding sync progress and the flag that mutes the journal during a pull */
+    public static class SyncStateEntry {
+        public static final String TABLE_NAME = "sync_state";
+        public static final String COLUMN_DEVICE_ID = "device_id";
+        public static final String COLUMN_APPLYING_REMOTE = "applying_remote";
+        // Highest journal sequence number the server has acknowledged
+        public static final String COLUMN_PUSHED_SEQ = "pushed_seq";
+        // Server position up to which remote changes have been applied
+        public static final String COLUMN_PULL_CURSOR = "pull_cursor";
+
+        public static final String SQL_CREATE_ENTRIES =
+                "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " (" +
+                        COLUMN_DEVICE_ID + " TEXT NOT NULL," +
+                        COLUMN_APPLYING_REMOTE + " INTEGER NOT NULL DEFAULT 0," +
+                        COLUMN_PUSHED_SEQ + " INTEGER NOT NULL DEFAULT 0," +
+                        COLUMN_PULL_CURSOR + " INTEGER NOT NULL DEFAULT 0)";
+
+        public static final String SQL_INSERT_ROW =
+                "INSERT INTO " + TABLE_NAME + " (" + COLUMN_DEVICE_ID + ") VALUES (" + NEW_SYNC_ID + ")";
+
+        static final String NOT_APPLYING_REMOTE =
+                "(SELECT " + COLUMN_APPLYING_REMOTE + " FROM " + TABLE_NAME + ") = 0";
+    }
+
+    /* Cold storage for completed tasks, moved out of the tasks table by TaskArchiveJob */
+    public static class TaskArchiveEntry implements BaseColumns {
+        public static final String TABLE_NAME = "tasks_archive";
+        // Same names as in TaskEntry, so one projection reads either table
+        public static final String COLUMN_TITLE = TaskEntry.COLUMN_TITLE;
+        public static final String COLUMN_DESCRIPTION = TaskEntry.COLUMN_DESCRIPTION;
+        public static final String COLUMN_DUE_DATE = TaskEntry.COLUMN_DUE_DATE;
+        public static final String COLUMN_PRIORITY = TaskEntry.COLUMN_PRIORITY;
+        public static final String COLUMN_COMPLETED = TaskEntry.COLUMN_COMPLETED;
+        public static final String COLUMN_CREATED_AT = TaskEntry.COLUMN_CREATED_AT;
+        public static final String COLUMN_SYNC_ID = TaskEntry.COLUMN_SYNC_ID;
+        public static final String COLUMN_ARCHIVED_AT = "archived_at";
+
+        public static final String INDEX_DUE_DATE = "idx_tasks_archive_due_date";
+        public static final String INDEX_SYNC_ID = "idx_tasks_archive_sync_id";
+
+        // Rows keep the _id they had in the tasks table
+        public static final String SQL_CREATE_ENTRIES =
+                "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " (" +
+                        _ID + " INTEGER PRIMARY KEY," +
+                        COLUMN_TITLE + " TEXT NOT NULL," +
+                        COLUMN_DESCRIPTION + " TEXT," +
+                        COLUMN_DUE_DATE + " INTEGER," +
+                        COLUMN_PRIORITY + " INTEGER DEFAULT 1," +
+                        COLUMN_COMPLETED + " INTEGER DEFAULT 1," +
+                        COLUMN_CREATED_AT + " INTEGER," +
+                        COLUMN_SYNC_ID + " TEXT," +
+                        COLUMN_ARCHIVED_AT + " INTEGER NOT NULL)";
+
+        public static final String SQL_CREATE_INDEX_DUE_DATE =
+                "CREATE INDEX IF NOT EXISTS " + INDEX_DUE_DATE + " ON " + TABLE_NAME +
+                        " (" + COLUMN_DUE_DATE + ")";
+
+        public static final String SQL_CREATE_INDEX_SYNC_ID =
+                "CREATE UNIQUE INDEX IF NOT EXISTS " + INDEX_SYNC_ID + " ON " + TABLE_NAME +
+                        " (" + COLUMN_SYNC_ID + ")";
+
+        // Columns copied from the tasks table when a task is archived
+        static final String COPIED_COLUMNS = _ID + ", " + COLUMN_TITLE + ", " + COLUMN_DESCRIPTION + ", " +
+                COLUMN_DUE_DATE + ", " + COLUMN_PRIORITY + ", " + COLUMN_COMPLETED + ", " +
+                COLUMN_CREATED_AT + ", " + COLUMN_SYNC_ID;
+    }
+
+    /* Reminders and alarms already delivered, so each fires once per due date */
+    public static class NotificationLedgerEntry {
+        public static final String TABLE_NAME = "notification_ledger";
+        public static final String COLUMN_TASK_ID = "task_id";
+        public static final String COLUMN_KIND = "kind";
+        // Due date the notification was for; moving the due date arms the task again
+        public static final String COLUMN_DUE_DATE = "due_date";
+        public static final String COLUMN_DELIVERED_AT = "delivered_at";
+        public static final String COLUMN_DISMISSED_AT = "dismissed_at";
+
+        public static final int KIND_REMINDER = 1;
+        public static final int KIND_DUE = 2;
+
+        // The primary key is the lookup the delivery scan's anti-join makes per candidate task
+        public static final String SQL_CREATE_ENTRIES =
+                "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " (" +
+                        COLUMN_TASK_ID + " INTEGER NOT NULL," +
+                        COLUMN_KIND + " INTEGER NOT NULL," +
+                        COLUMN_DUE_DATE + " INTEGER NOT NULL," +
+                        COLUMN_DELIVERED_AT + " INTEGER NOT NULL," +
+                        COLUMN_DISMISSED_AT + " INTEGER," +
+                        " PRIMARY KEY (" + COLUMN_TASK_ID + ", " + COLUMN_KIND + ", " + COLUMN_DUE_DATE + "))" +
+                        " WITHOUT ROWID";
+
+        // Entries for an old due date can never match again
+        public static final String SQL_CREATE_TRIGGER_AFTER_UPDATE =
+                "CREATE TRIGGER IF NOT EXISTS notification_ledger_after_update" +
+                        " AFTER UPDATE OF " + TaskEntry.COLUMN_DUE_DATE + " ON " + TaskEntry.TABLE_NAME + " BEGIN " +
+                        "DELETE FROM " + TABLE_NAME + " WHERE " + COLUMN_TASK_ID + " = NEW." + TaskEntry._ID +
+                        " AND " + COLUMN_DUE_DATE + " IS NOT NEW." + TaskEntry.COLUMN_DUE_DATE + ";" +
+                        " END";
+
+        // Purged and archived tasks take their entries with them
+        public static final String SQL_CREATE_TRIGGER_AFTER_DELETE =
+                "CREATE TRIGGER IF NOT EXISTS notification_ledger_after_delete" +
+                        " AFTER DELETE ON " + TaskEntry.TABLE_NAME + " BEGIN " +
+                        "DELETE FROM " + TABLE_NAME + " WHERE " + COLUMN_TASK_ID + " = OLD." + TaskEntry._ID + ";" +
+                        " END";
+    }
+
+    // Expressions shared by the sync tables
+    static final String NEW_SYNC_ID = "lower(hex(randomblob(16)))";
+    static final String NOW_MILLIS = "(CAST(strftime('%s', 'now') AS INTEGER) * 1000)";
 }
@@ -1,41 +1,319 @@
 package me.zubair.taskmanager.database;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 /**
- * Database helper class for managing SQLite operations
+ * Database helper class for managing SQLite operations.
+ *
+ * Schema changes are expressed as an ordered list of {@link Migration}s. A fresh
+ * install creates the base schema and then replays the same migrations an upgrade
+ * would, so both paths always end with an identical schema.
  */
 public class TaskDbHelper extends SQLiteOpenHelper {
 
     private static final String TAG = "TaskDbHelper";
     private static final String DATABASE_NAME = "tasks.db";
-    private static final int DATABASE_VERSION = 2; // Increased from 1 to 2
+
+    // Version whose schema SQL_CREATE_ENTRIES creates directly
+    static final int BASE_VERSION = 2;
+    static final int DATABASE_VERSION = 9;
+
+    /**
+     * All migrations, in ascending version order. Append new steps here and bump
+     * DATABASE_VERSION to match the last entry.
+     */
+    static final List<Migration> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+            new Migration(2, "Add created_at column") {
+                @Override
+                void apply(SQLiteDatabase db) {
+                    // Add created_at column if upgrading from version 1
+                    try {
+                        db.execSQL("ALTER TABLE " + TaskContract.TaskEntry.TABLE_NAME +
+                                  " ADD COLUMN " + TaskContract.TaskEntry.COLUMN_CREATED_AT + " INTEGER;");
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error adding created_at column: " + e.getMessage());
+                    }
+                }
+            },
+            new Migration(3, "Add due date indexes",
+                    new QueryPlanCheck(
+                            "SELECT " + TaskContract.TaskEntry._ID + " FROM " + TaskContract.TaskEntry.TABLE_NAME +
+                                    " ORDER BY " + TaskContract.TaskEntry.COLUMN_DUE_DATE + " ASC",
+                            TaskContract.TaskEntry.INDEX_DUE_DATE),
+                    new QueryPlanCheck(
+                            "SELECT " + TaskContract.TaskEntry._ID + " FROM " + TaskContract.TaskEntry.TABLE_NAME +
+                                    " WHERE " + TaskContract.TaskEntry.COLUMN_DUE_DATE + " >= 0 AND " +
+                                    TaskContract.TaskEntry.COLUMN_DUE_DATE + " <= 1",
+                            TaskContract.TaskEntry.INDEX_DUE_DATE),
+                    new QueryPlanCheck(
+                            "SELECT " + TaskContract.TaskEntry._ID + " FROM " + TaskContract.TaskEntry.TABLE_NAME +
+                                    " WHERE " + TaskContract.TaskEntry.COLUMN_COMPLETED + " = 0 AND " +
+                                    TaskContract.TaskEntry.COLUMN_DUE_DATE + " >= 0 AND " +
+                                    TaskContract.TaskEntry.COLUMN_DUE_DATE + " <= 1",
+                            TaskContract.TaskEntry.INDEX_PENDING_DUE_DATE,
+                            TaskContract.TaskEntry.INDEX_COMPLETED_DUE_DATE)) {
+                @Override
+                void apply(SQLiteDatabase db) {
+                    db.execSQL(TaskContract.TaskEntry.SQL_CREATE_INDEX_DUE_DATE);
+                    db.execSQL(TaskContract.TaskEntry.SQL_CREATE_INDEX_COMPLETED_DUE_DATE);
+                    db.execSQL(TaskContract.TaskEntry.SQL_CREATE_INDEX_PENDING_DUE_DATE);
+                }
+            },
+            new Migration(4, "Add trigger-maintained task counts",
+                    new QueryPlanCheck(
+                            "SELECT COUNT(*) FROM " + TaskContract.TaskEntry.TABLE_NAME +
+                                    " WHERE " + TaskContract.TaskEntry.COLUMN_COMPLETED + " = 0 AND " +
+                                    TaskContract.TaskEntry.COLUMN_DUE_DATE + " > 0 AND " +
+                                    TaskContract.TaskEntry.COLUMN_DUE_DATE + " < 1",
+                            TaskContract.TaskEntry.INDEX_PENDING_DUE_DATE,
+                            TaskContract.TaskEntry.INDEX_COMPLETED_DUE_DATE)) {
+                @Override
+                void apply(SQLiteDatabase db) {
+                    db.execSQL(TaskContract.TaskCountEntry.SQL_CREATE_ENTRIES);
+                    db.execSQL(TaskContract.TaskCountEntry.SQL_BACKFILL);
+                    db.execSQL(TaskContract.TaskCountEntry.SQL_CREATE_TRIGGER_AFTER_INSERT);
+                    db.execSQL(TaskContract.TaskCountEntry.SQL_CREATE_TRIGGER_AFTER_UPDATE);
+                    db.execSQL(TaskContract.TaskCountEntry.SQL_CREATE_TRIGGER_AFTER_DELETE);
+                }
+            },
+            new Migration(5, "Add full-text search index") {
+                @Override
+                void apply(SQLiteDatabase db) {
+                    db.execSQL(TaskContract.TaskSearchEntry.SQL_CREATE_ENTRIES);
+                    db.execSQL(TaskContract.TaskSearchEntry.SQL_REBUILD);
+                    db.execSQL(TaskContract.TaskSearchEntry.SQL_CREATE_TRIGGER_BEFORE_UPDATE);
+                    db.execSQL(TaskContract.TaskSearchEntry.SQL_CREATE_TRIGGER_BEFORE_DELETE);
+                    db.execSQL(TaskContract.TaskSearchEntry.SQL_CREATE_TRIGGER_AFTER_UPDATE);
+                    db.execSQL(TaskContract.TaskSearchEntry.SQL_CREATE_TRIGGER_AFTER_INSERT);
+                }
+            },
+            new Migration(6, "Add tombstones for soft delete",
+                    new QueryPlanCheck(
+                            "SELECT " + TaskContract.TaskEntry._ID + " FROM " + TaskContract.TaskEntry.TABLE_NAME +
+                                    " WHERE " + TaskContract.TaskEntry.COLUMN_COMPLETED + " = 0 AND " +
+                                    TaskContract.TaskEntry.COLUMN_DELETED_AT + " IS NULL AND " +
+                                    TaskContract.TaskEntry.COLUMN_DUE_DATE + " >= 0 AND " +
+                                    TaskContract.TaskEntry.COLUMN_DUE_DATE + " <= 1",
+                            TaskContract.TaskEntry.INDEX_LIVE_PENDING_DUE_DATE,
+                            TaskContract.TaskEntry.INDEX_COMPLETED_DUE_DATE),
+                    new QueryPlanCheck(
+                            "SELECT " + TaskContract.TaskEntry._ID + " FROM " + TaskContract.TaskEntry.TABLE_NAME +
+                                    " WHERE " + TaskContract.TaskEntry.COLUMN_DELETED_AT + " IS NOT NULL AND " +
+                                    TaskContract.TaskEntry.COLUMN_DELETED_AT + " <= 1",
+                            TaskContract.TaskEntry.INDEX_DELETED_AT)) {
+                @Override
+                void apply(SQLiteDatabase db) {
+                    db.execSQL("ALTER TABLE " + TaskContract.TaskEntry.TABLE_NAME +
+                            " ADD COLUMN " + TaskContract.TaskEntry.COLUMN_DELETED_AT + " INTEGER");
+                    db.execSQL("DROP INDEX IF EXISTS " + TaskContract.TaskEntry.INDEX_PENDING_DUE_DATE);
+                    db.execSQL(TaskContract.TaskEntry.SQL_CREATE_INDEX_LIVE_PENDING_DUE_DATE);
+                    db.execSQL(TaskContract.TaskEntry.SQL_CREATE_INDEX_DELETED_AT);
+
+                    // Recreate the count triggers so tombstoned rows drop out of the counts
+                    db.execSQL(TaskContract.TaskCountEntry.SQL_DROP_TRIGGER_AFTER_INSERT);
+                    db.execSQL(TaskContract.TaskCountEntry.SQL_DROP_TRIGGER_AFTER_UPDATE);
+                    db.execSQL(TaskContract.TaskCountEntry.SQL_DROP_TRIGGER_AFTER_DELETE);
+                    db.execSQL(TaskContract.TaskCountEntry.SQL_CREATE_LIVE_TRIGGER_AFTER_INSERT);
+                    db.execSQL(TaskContract.TaskCountEntry.SQL_CREATE_LIVE_TRIGGER_AFTER_UPDATE);
+                    db.execSQL(TaskContract.TaskCountEntry.SQL_CREATE_LIVE_TRIGGER_AFTER_DELETE);
+                }
+            },
+            new Migration(7, "Add change journal for sync",
+                    new QueryPlanCheck(
+                            "SELECT " + TaskContract.TaskEntry._ID + " FROM " + TaskContract.TaskEntry.TABLE_NAME +
+                                    " WHERE " + TaskContract.TaskEntry.COLUMN_SYNC_ID + " = 'x'",
+                            TaskContract.TaskEntry.INDEX_SYNC_ID)) {
+                @Override
+                void apply(SQLiteDatabase db) {
+                    db.execSQL("ALTER TABLE " + TaskContract.TaskEntry.TABLE_NAME +
+                            " ADD COLUMN " + TaskContract.TaskEntry.COLUMN_SYNC_ID + " TEXT");
+                    db.execSQL("UPDATE " + TaskContract.TaskEntry.TABLE_NAME + " SET " +
+                            TaskContract.TaskEntry.COLUMN_SYNC_ID + " = " + TaskContract.NEW_SYNC_ID);
+                    db.execSQL(TaskContract.TaskEntry.SQL_CREATE_INDEX_SYNC_ID);
+
+                    db.execSQL(TaskContract.SyncStateEntry.SQL_CREATE_ENTRIES);
+                    db.execSQL(TaskContract.SyncStateEntry.SQL_INSERT_ROW);
+                    db.execSQL(TaskContract.TaskJournalEntry.SQL_CREATE_ENTRIES);
+                    db.execSQL(TaskContract.TaskJournalEntry.SQL_BACKFILL);
+                    db.execSQL(TaskContract.TaskJournalEntry.SQL_CREATE_TRIGGER_AFTER_INSERT);
+                    db.execSQL(TaskContract.TaskJournalEntry.SQL_CREATE_TRIGGER_AFTER_UPDATE);
+                    db.execSQL(TaskContract.TaskJournalEntry.SQL_CREATE_TRIGGER_AFTER_DELETE);
+                }
+            },
+            new Migration(8, "Add archive for old completed tasks",
+                    new QueryPlanCheck(
+                            "SELECT " + TaskContract.TaskEntry._ID + " FROM " + TaskContract.TaskEntry.TABLE_NAME +
+                                    " WHERE " + TaskContract.TaskEntry.COLUMN_COMPLETED + " = 1 AND " +
+                                    TaskContract.TaskEntry.COLUMN_DUE_DATE + " < 1 ORDER BY " +
+                                    TaskContract.TaskEntry.COLUMN_DUE_DATE,
+                            TaskContract.TaskEntry.INDEX_COMPLETED_DUE_DATE),
+                    new QueryPlanCheck(
+                            "SELECT " + TaskContract.TaskArchiveEntry._ID + " FROM " +
+                                    TaskContract.TaskArchiveEntry.TABLE_NAME +
+                                    " WHERE " + TaskContract.TaskArchiveEntry.COLUMN_DUE_DATE + " >= 0 AND " +
+                                    TaskContract.TaskArchiveEntry.COLUMN_DUE_DATE + " <= 1",
+                            TaskContract.TaskArchiveEntry.INDEX_DUE_DATE)) {
+                @Override
+                void apply(SQLiteDatabase db) {
+                    db.execSQL(TaskContract.TaskArchiveEntry.SQL_CREATE_ENTRIES);
+                    db.execSQL(TaskContract.TaskArchiveEntry.SQL_CREATE_INDEX_DUE_DATE);
+                    db.execSQL(TaskContract.TaskArchiveEntry.SQL_CREATE_INDEX_SYNC_ID);
+                    db.execSQL(TaskContract.TaskCountEntry.SQL_CREATE_ARCHIVE_TRIGGER_AFTER_INSERT);
+                    db.execSQL(TaskContract.TaskCountEntry.SQL_CREATE_ARCHIVE_TRIGGER_AFTER_DELETE);
+                }
+            },
+            new Migration(9, "Add notification ledger",
+                    new QueryPlanCheck(
+                            "SELECT " + TaskContract.TaskEntry._ID + " FROM " + TaskContract.TaskEntry.TABLE_NAME +
+                                    " WHERE " + TaskContract.TaskEntry.COLUMN_COMPLETED + " = 0 AND " +
+                                    TaskContract.TaskEntry.COLUMN_DELETED_AT + " IS NULL AND " +
+                                    TaskContract.TaskEntry.COLUMN_DUE_DATE + " >= 0 AND " +
+                                    TaskContract.TaskEntry.COLUMN_DUE_DATE + " <= 1 AND NOT EXISTS (SELECT 1 FROM " +
+                                    TaskContract.NotificationLedgerEntry.TABLE_NAME + " WHERE " +
+                                    TaskContract.NotificationLedgerEntry.COLUMN_TASK_ID + " = " +
+                                    TaskContract.TaskEntry.TABLE_NAME + "." + TaskContract.TaskEntry._ID + " AND " +
+                                    TaskContract.NotificationLedgerEntry.COLUMN_KIND + " = 1 AND " +
+                                    TaskContract.NotificationLedgerEntry.TABLE_NAME + "." +
+                                    TaskContract.NotificationLedgerEntry.COLUMN_DUE_DATE + " = " +
+                                    TaskContract.TaskEntry.TABLE_NAME + "." + TaskContract.TaskEntry.COLUMN_DUE_DATE + ")",
+                            "PRIMARY KEY")) {
+                @Override
+                void apply(SQLiteDatabase db) {
+                    db.execSQL(TaskContract.NotificationLedgerEntry.SQL_CREATE_ENTRIES);
+                    db.execSQL(TaskContract.NotificationLedgerEntry.SQL_CREATE_TRIGGER_AFTER_UPDATE);
+                    db.execSQL(TaskContract.NotificationLedgerEntry.SQL_CREATE_TRIGGER_AFTER_DELETE);
+                }
+            }
+    ));
 
     public TaskDbHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * Open a database with a custom file name, used to keep test and benchmark
+     * data away from the user's tasks
+     */
+    TaskDbHelper(Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
+        // Write-ahead logging lets readers proceed while a write is in progress
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        // Only takes effect while the file is still empty, i.e. on a fresh install;
+        // TaskCompactionJob converts existing databases with a one-time VACUUM
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
-        // Create the tasks table
+        // Create the tasks table, then bring it up to date like any upgrade
         db.execSQL(TaskContract.TaskEntry.SQL_CREATE_ENTRIES);
+        migrate(db, BASE_VERSION, DATABASE_VERSION);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         // Handle migrations between different database versions
-        if (oldVersion < 2) {
-            // Add created_at column if upgrading from version 1
-            try {
-                db.execSQL("ALTER TABLE " + TaskContract.TaskEntry.TABLE_NAME + 
-                          " ADD COLUMN " + TaskContract.TaskEntry.COLUMN_CREATED_AT + " INTEGER;");
-                Log.i(TAG, "Added created_at column to tasks table");
-            } catch (Exception e) {
-                Log.e(TAG, "Error adding created_at column: " + e.getMessage());
+        migrate(db, oldVersion, newVersion);
+    }
+
+    /**
+     * Apply every migration in (fromVersion, toVersion], in order, and check each
+     * step's expected query plans afterwards
+     *
+     * @param db Database inside the open helper's upgrade transaction
+     * @param fromVersion Current schema version
+     * @param toVersion Target schema version
+     */
+    static void migrate(SQLiteDatabase db, int fromVersion, int toVersion) {
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= fromVersion || migration.version > toVersion) {
+                continue;
+            }
+
+            migration.apply(db);
+            Log.i(TAG, "Applied migration " + migration.version + ": " + migration.description);
+
+            for (QueryPlanCheck check : migration.queryPlanChecks) {
+                if (!check.isSatisfied(db)) {
+                    Log.w(TAG, "Migration " + migration.version + " query plan not using "
+                            + Arrays.toString(check.expectedIndexes) + ": " + check.sql);
+                }
+            }
+        }
+    }
+
+    /**
+     * One schema step, identified by the version it upgrades the database to
+     */
+    abstract static class Migration {
+        final int version;
+        final String description;
+        final List<QueryPlanCheck> queryPlanChecks;
+
+        Migration(int version, String description, QueryPlanCheck... queryPlanChecks) {
+            this.version = version;
+            this.description = description;
+            this.queryPlanChecks = Collections.unmodifiableList(Arrays.asList(queryPlanChecks));
+        }
+
+        abstract void apply(SQLiteDatabase db);
+    }
+
+    /**
+     * A query whose EXPLAIN QUERY PLAN must mention at least one of the expected indexes
+     */
+    static final class QueryPlanCheck {
+        final String sql;
+        final String[] expectedIndexes;
+
+        QueryPlanCheck(String sql, String... expectedIndexes) {
+            this.sql = sql;
+            this.expectedIndexes = expectedIndexes;
+        }
+
+        /**
+         * @return True if the current query plan uses one of the expected indexes
+         */
+        boolean isSatisfied(SQLiteDatabase db) {
+            for (String detail : explain(db, sql)) {
+                for (String index : expectedIndexes) {
+                    if (detail.contains(index)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Run EXPLAIN QUERY PLAN for a statement
+     *
+     * @param db Database to plan against
+     * @param sql Statement without bind parameters
+     * @return The "detail" column of every plan row
+     */
+    static List<String> explain(SQLiteDatabase db, String sql) {
+        List<String> details = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, null)) {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(detailIndex));
             }
         }
+        return details;
     }
 }
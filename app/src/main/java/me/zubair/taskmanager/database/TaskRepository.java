@@ -3,100 +3,497 @@ package me.zubair.taskmanager.database;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 
 import me.zubair.taskmanager.models.Task;
+import me.zubair.taskmanager.models.TaskChange;
+import me.zubair.taskmanager.models.TaskStatistics;
+import me.zubair.taskmanager.models.TaskSummary;
 
+/**
+ * Single access point for task persistence. There is one instance per process,
+ * sharing one database connection pool and one statement cache.
+ */
 public class TaskRepository {
     private static final String TAG = "TaskRepository";
+    private static final int MAX_BIND_ARGS = 500;
+    private static final int TASK_CACHE_SIZE = 128;
+    // Value of PRAGMA auto_vacuum in incremental mode
+    private static final long AUTO_VACUUM_INCREMENTAL = 2;
+
+    private static volatile TaskRepository instance;
+
     private final TaskDbHelper dbHelper;
+    private final ExecutorService ioExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<TaskChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final QueryMetrics metrics = new QueryMetrics();
+    private TaskStatementCache statementCache;
+
+    // Holds private copies, since callers are free to mutate the Tasks they receive
+    private final LruCache<Long, Task> taskCache = new LruCache<>(TASK_CACHE_SIZE);
+    // Bumped on every write so a read that raced with it does not cache a stale row
+    private long taskCacheVersion;
+
+    /**
+     * Get the process-wide repository, opening the database on first use
+     *
+     * @param context Any context; only its application context is retained
+     * @return The shared repository
+     */
+    public static TaskRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (TaskRepository.class) {
+                if (instance == null) {
+                    instance = new TaskRepository(new TaskDbHelper(context.getApplicationContext()));
+                }
+            }
+        }
+        return instance;
+    }
+
+    TaskRepository(TaskDbHelper dbHelper) {
+        this.dbHelper = dbHelper;
+        this.ioExecutor = DatabaseExecutor.get();
+    }
+
+    /**
+     * Callback interface for asynchronous repository operations. Both methods are
+     * invoked on the main thread.
+     */
+    public interface Callback<T> {
+        void onSuccess(T result);
+
+        default void onError(Exception e) {
+            Log.e(TAG, "Repository operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Listener for committed task changes. Always invoked on the main thread.
+     */
+    public interface TaskChangeListener {
+        void onTasksChanged(TaskChangeEvent event);
+    }
+
+    /**
+     * @return Bounded executor that all background database work should run on
+     */
+    public ExecutorService getIoExecutor() {
+        return ioExecutor;
+    }
+
+    /**
+     * @return Latency statistics and slow-query log of every repository operation
+     */
+    public QueryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Open the database, run any pending migrations and build the statement cache
+     * ahead of the first screen's queries, then read the task counts so that their
+     * pages are cached. Blocking; call it on a background thread at startup.
+     */
+    public void warmUp() {
+        long startNanos = metrics.start();
+        getStatementCache(dbHelper.getWritableDatabase());
+        getStatistics();
+        metrics.record("warmUp", startNanos, 0);
+    }
+
+    /**
+     * Run work on the database executor and deliver its result to the main thread
+     *
+     * @param work Blocking repository work
+     * @param callback Receives the result on the main thread; may be null
+     * @return Handle that can cancel the call or bind it to a lifecycle
+     */
+    public <T> RepositoryCall<T> submit(Callable<T> work, Callback<T> callback) {
+        RepositoryCall<T> call = new RepositoryCall<>(work, callback);
+        call.setFuture(ioExecutor.submit(call));
+        return call;
+    }
+
+    /**
+     * Register a listener for as long as the owner is alive. Must be called on the main thread.
+     *
+     * @param owner Lifecycle that bounds the subscription, e.g. a fragment's view lifecycle owner
+     * @param listener Listener to notify after each committed change
+     */
+    public void observeChanges(LifecycleOwner owner, TaskChangeListener listener) {
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            return;
+        }
+
+        addChangeListener(listener);
+        owner.getLifecycle().addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    removeChangeListener(listener);
+                    source.getLifecycle().removeObserver(this);
+                }
+            }
+        });
+    }
+
+    public void addChangeListener(TaskChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(TaskChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Publish a change for every ID whose matching result reports success
+     *
+     * @param type Kind of change
+     * @param taskIds Candidate task IDs
+     * @param results Per-ID results; values greater than zero mark a change
+     */
+    private void publishChange(TaskChangeEvent.Type type, long[] taskIds, long[] results) {
+        int count = 0;
+        long[] changedIds = new long[taskIds.length];
+        for (int i = 0; i < taskIds.length; i++) {
+            if (results[i] > 0) {
+                changedIds[count++] = taskIds[i];
+            }
+        }
+        if (count == 0 || changeListeners.isEmpty()) {
+            return;
+        }
+
+        TaskChangeEvent event = new TaskChangeEvent(type, Arrays.copyOf(changedIds, count));
+        mainHandler.post(() -> {
+            for (TaskChangeListener listener : changeListeners) {
+                listener.onTasksChanged(event);
+            }
+        });
+    }
 
-    public TaskRepository(Context context) {
-        this.dbHelper = new TaskDbHelper(context);
+    private static long[] toLongs(int[] values) {
+        long[] longs = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            longs[i] = values[i];
+        }
+        return longs;
+    }
+
+    public RepositoryCall<List<Task>> getAllTasksAsync(Callback<List<Task>> callback) {
+        return submit(this::getAllTasks, callback);
+    }
+
+    public RepositoryCall<List<Task>> getTasksPageAsync(Task after, int pageSize, Callback<List<Task>> callback) {
+        return submit(() -> getTasksPage(after, pageSize), callback);
+    }
+
+    public RepositoryCall<List<Task>> getTasksByIdsAsync(long[] taskIds, Callback<List<Task>> callback) {
+        return submit(() -> getTasksByIds(taskIds), callback);
+    }
+
+    public RepositoryCall<List<TaskSummary>> getTaskSummariesPageAsync(TaskSummary after, int pageSize,
+                                                                       Callback<List<TaskSummary>> callback) {
+        return submit(() -> getTaskSummariesPage(after, pageSize), callback);
+    }
+
+    public RepositoryCall<List<TaskSummary>> getTaskSummariesPageBeforeAsync(TaskSummary before, int pageSize,
+                                                                             Callback<List<TaskSummary>> callback) {
+        return submit(() -> getTaskSummariesPageBefore(before, pageSize), callback);
+    }
+
+    public RepositoryCall<List<TaskSummary>> getTaskSummariesByIdsAsync(long[] taskIds,
+                                                                        Callback<List<TaskSummary>> callback) {
+        return submit(() -> getTaskSummariesByIds(taskIds), callback);
+    }
+
+    public RepositoryCall<Task> getTaskByIdAsync(long taskId, Callback<Task> callback) {
+        return submit(() -> getTaskById(taskId), callback);
+    }
+
+    public RepositoryCall<Long> addTaskAsync(Task task, Callback<Long> callback) {
+        return submit(() -> addTask(task), callback);
+    }
+
+    public RepositoryCall<Integer> updateTaskAsync(Task task, Callback<Integer> callback) {
+        return submit(() -> updateTask(task), callback);
+    }
+
+    public RepositoryCall<Integer> setTaskCompletedAsync(long taskId, boolean completed,
+                                                         Callback<Integer> callback) {
+        return submit(() -> setTaskCompleted(taskId, completed), callback);
+    }
+
+    public RepositoryCall<Integer> deleteTaskAsync(long taskId, Callback<Integer> callback) {
+        return submit(() -> deleteTask(taskId), callback);
     }
 
     /**
      * Get all tasks from the database
      */
     public List<Task> getAllTasks() {
+        long startNanos = metrics.start();
         SQLiteDatabase db = dbHelper.getReadableDatabase();
+        TaskStatementCache cache = getStatementCache(db);
         List<Task> tasks = new ArrayList<>();
 
-        // Get the table info to check if created_at column exists
-        boolean hasCreatedAtColumn = hasColumn(db, TaskContract.TaskEntry.TABLE_NAME, 
-                                              TaskContract.TaskEntry.COLUMN_CREATED_AT);
-        
-        // Build projection based on available columns
-        List<String> projectionList = new ArrayList<>();
-        projectionList.add(TaskContract.TaskEntry._ID);
-        projectionList.add(TaskContract.TaskEntry.COLUMN_TITLE);
-        projectionList.add(TaskContract.TaskEntry.COLUMN_DESCRIPTION);
-        projectionList.add(TaskContract.TaskEntry.COLUMN_DUE_DATE);
-        projectionList.add(TaskContract.TaskEntry.COLUMN_PRIORITY);
-        projectionList.add(TaskContract.TaskEntry.COLUMN_COMPLETED);
-        
-        if (hasCreatedAtColumn) {
-            projectionList.add(TaskContract.TaskEntry.COLUMN_CREATED_AT);
-        }
-        
-        String[] projection = projectionList.toArray(new String[0]);
-
         try (Cursor cursor = db.query(
                 TaskContract.TaskEntry.TABLE_NAME,
-                projection,
+                cache.getTaskProjection(),
+                TaskStatementCache.LIVE,
                 null,
                 null,
                 null,
-                null,
-                TaskContract.TaskEntry.COLUMN_DUE_DATE + " ASC"
+                TaskContract.TaskEntry.COLUMN_DUE_DATE + " ASC, " + TaskContract.TaskEntry._ID + " ASC"
         )) {
+            TaskColumnIndices columns = new TaskColumnIndices(cursor);
             while (cursor.moveToNext()) {
-                Task task = extractTaskFromCursor(cursor);
+                Task task = extractTaskFromCursor(cursor, columns);
                 tasks.add(task);
             }
         } catch (Exception e) {
             Log.e(TAG, "Error getting all tasks: " + e.getMessage());
         }
 
-        return tasks;
+        return metrics.record("getAllTasks", startNanos, tasks);
+    }
+
+    /**
+     * Get one page of tasks in the same order as {@link #getAllTasks()}, starting
+     * after the given task. Uses the (due_date, _id) key rather than an OFFSET, so
+     * every page costs the same no matter how deep the user has scrolled.
+     *
+     * @param after Last task of the previous page, or null for the first page
+     * @param pageSize Maximum number of tasks to return
+     * @return Tasks of the requested page; fewer than pageSize means the end was reached
+     */
+    public List<Task> getTasksPage(Task after, int pageSize) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        TaskStatementCache cache = getStatementCache(db);
+        List<Task> tasks = new ArrayList<>(pageSize);
+
+        String sql;
+        String[] selectionArgs;
+        if (after == null) {
+            sql = cache.getFirstPageQuery() + pageSize;
+            selectionArgs = null;
+        } else {
+            sql = cache.getNextPageQuery() + pageSize;
+            String dueDate = String.valueOf(after.getDueDate());
+            selectionArgs = new String[] { dueDate, dueDate, String.valueOf(after.getId()) };
+        }
+
+        try (Cursor cursor = db.rawQuery(sql, selectionArgs)) {
+            TaskColumnIndices columns = new TaskColumnIndices(cursor);
+            while (cursor.moveToNext()) {
+                tasks.add(extractTaskFromCursor(cursor, columns));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting page of tasks: " + e.getMessage());
+        }
+
+        return metrics.record("getTasksPage", startNanos, tasks);
+    }
+
+    /**
+     * Get one page of task summaries for a list, in the same order and with the
+     * same keyset as {@link #getTasksPage(Task, int)}. Only a prefix of each
+     * description is read, so long notes are never copied out of the database.
+     *
+     * @param after Last summary of the previous page, or null for the first page
+     * @param pageSize Maximum number of summaries to return
+     * @return Summaries of the requested page; fewer than pageSize means the end was reached
+     */
+    public List<TaskSummary> getTaskSummariesPage(TaskSummary after, int pageSize) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        TaskStatementCache cache = getStatementCache(db);
+        List<TaskSummary> summaries = new ArrayList<>(pageSize);
+
+        String sql;
+        String[] selectionArgs;
+        if (after == null) {
+            sql = cache.getFirstSummaryPageQuery() + pageSize;
+            selectionArgs = null;
+        } else {
+            sql = cache.getNextSummaryPageQuery() + pageSize;
+            String dueDate = String.valueOf(after.getDueDate());
+            selectionArgs = new String[] { dueDate, dueDate, String.valueOf(after.getId()) };
+        }
+
+        try (TaskSummaryCursor cursor = new TaskSummaryCursor(db.rawQuery(sql, selectionArgs))) {
+            while (cursor.moveToNext()) {
+                summaries.add(cursor.fill(new TaskSummary()));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting page of task summaries: " + e.getMessage());
+        }
+
+        return metrics.record("getTaskSummariesPage", startNanos, summaries);
+    }
+
+    /**
+     * Get the page of task summaries just before a summary, for scrolling a list
+     * back up after its first rows were released. Summaries are returned in list order.
+     *
+     * @param before First summary currently held by the list
+     * @param pageSize Maximum number of summaries to return
+     * @return Summaries of the requested page; fewer than pageSize means the start was reached
+     */
+    public List<TaskSummary> getTaskSummariesPageBefore(TaskSummary before, int pageSize) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        TaskStatementCache cache = getStatementCache(db);
+        List<TaskSummary> summaries = new ArrayList<>(pageSize);
+
+        String sql = cache.getPreviousSummaryPageQuery() + pageSize;
+        String dueDate = String.valueOf(before.getDueDate());
+        String[] selectionArgs = new String[] { dueDate, dueDate, String.valueOf(before.getId()) };
+
+        try (TaskSummaryCursor cursor = new TaskSummaryCursor(db.rawQuery(sql, selectionArgs))) {
+            while (cursor.moveToNext()) {
+                summaries.add(cursor.fill(new TaskSummary()));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting previous page of task summaries: " + e.getMessage());
+        }
+
+        // The query walks backwards from the key
+        Collections.reverse(summaries);
+        return metrics.record("getTaskSummariesPageBefore", startNanos, summaries);
+    }
+
+    /**
+     * Get a batch of active tasks in ID order, for walking the whole table in constant memory.
+     * Each batch is a fresh query that seeks straight to its first row.
+     *
+     * @param afterId ID of the last task of the previous batch, or 0 for the first batch
+     * @param limit Maximum number of tasks to return
+     * @return Tasks with IDs greater than afterId; fewer than limit means the end was reached
+     */
+    public List<Task> getTasksAfterId(long afterId, int limit) {
+        return getTasksAfterId(TaskScope.ACTIVE, afterId, limit);
+    }
+
+    /**
+     * Get a batch of tasks from the given scope in ID order. Archived tasks keep
+     * their IDs, so batches of {@link TaskScope#ALL} interleave both tables.
+     *
+     * @param scope Tables to read
+     * @param afterId ID of the last task of the previous batch, or 0 for the first batch
+     * @param limit Maximum number of tasks to return
+     * @return Tasks with IDs greater than afterId; fewer than limit means the end was reached
+     */
+    public List<Task> getTasksAfterId(TaskScope scope, long afterId, int limit) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        TaskStatementCache cache = getStatementCache(db);
+        List<Task> tasks = new ArrayList<>(limit);
+        String bound = String.valueOf(afterId);
+
+        try (Cursor cursor = db.rawQuery(cache.getTasksAfterIdQuery(scope, limit),
+                scope == TaskScope.ALL ? new String[] { bound, bound } : new String[] { bound })) {
+            TaskColumnIndices columns = new TaskColumnIndices(cursor);
+            while (cursor.moveToNext()) {
+                tasks.add(extractTaskFromCursor(cursor, columns));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting tasks by ID range: " + e.getMessage());
+        }
+
+        return metrics.record("getTasksAfterId", startNanos, tasks);
+    }
+
+    /**
+     * Get summaries of several tasks by ID in a single query per chunk
+     *
+     * @param taskIds IDs to look up
+     * @return Summaries of the tasks that exist, in no particular order
+     */
+    public List<TaskSummary> getTaskSummariesByIds(long[] taskIds) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        TaskStatementCache cache = getStatementCache(db);
+        List<TaskSummary> summaries = new ArrayList<>(taskIds.length);
+
+        for (int start = 0; start < taskIds.length; start += MAX_BIND_ARGS) {
+            int end = Math.min(taskIds.length, start + MAX_BIND_ARGS);
+            String[] selectionArgs = new String[end - start];
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                selectionArgs[i - start] = String.valueOf(taskIds[i]);
+                placeholders.append(i == start ? "?" : ", ?");
+            }
+
+            try (TaskSummaryCursor cursor = new TaskSummaryCursor(db.query(
+                    TaskContract.TaskEntry.TABLE_NAME,
+                    cache.getSummaryProjection(),
+                    TaskContract.TaskEntry._ID + " IN (" + placeholders + ") AND " + TaskStatementCache.LIVE,
+                    selectionArgs,
+                    null,
+                    null,
+                    null
+            ))) {
+                while (cursor.moveToNext()) {
+                    summaries.add(cursor.fill(new TaskSummary()));
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error getting task summaries by ID: " + e.getMessage());
+            }
+        }
+
+        return metrics.record("getTaskSummariesByIds", startNanos, summaries);
     }
 
     /**
      * Get task by ID
      */
     public Task getTaskById(long taskId) {
+        long startNanos = metrics.start();
+        long cacheVersion;
+        synchronized (taskCache) {
+            Task cached = taskCache.get(taskId);
+            if (cached != null) {
+                return metrics.record("getTaskById", startNanos, new Task(cached));
+            }
+            cacheVersion = taskCacheVersion;
+        }
+
         SQLiteDatabase db = dbHelper.getReadableDatabase();
+        TaskStatementCache cache = getStatementCache(db);
         Task task = null;
 
-        // Get the table info to check if created_at column exists
-        boolean hasCreatedAtColumn = hasColumn(db, TaskContract.TaskEntry.TABLE_NAME, 
-                                              TaskContract.TaskEntry.COLUMN_CREATED_AT);
-        
-        // Build projection based on available columns
-        List<String> projectionList = new ArrayList<>();
-        projectionList.add(TaskContract.TaskEntry._ID);
-        projectionList.add(TaskContract.TaskEntry.COLUMN_TITLE);
-        projectionList.add(TaskContract.TaskEntry.COLUMN_DESCRIPTION);
-        projectionList.add(TaskContract.TaskEntry.COLUMN_DUE_DATE);
-        projectionList.add(TaskContract.TaskEntry.COLUMN_PRIORITY);
-        projectionList.add(TaskContract.TaskEntry.COLUMN_COMPLETED);
-        
-        if (hasCreatedAtColumn) {
-            projectionList.add(TaskContract.TaskEntry.COLUMN_CREATED_AT);
-        }
-        
-        String[] projection = projectionList.toArray(new String[0]);
-
-        String selection = TaskContract.TaskEntry._ID + " = ?";
+        String selection = TaskContract.TaskEntry._ID + " = ? AND " + TaskStatementCache.LIVE;
         String[] selectionArgs = { String.valueOf(taskId) };
 
         try (Cursor cursor = db.query(
                 TaskContract.TaskEntry.TABLE_NAME,
-                projection,
+                cache.getTaskProjection(),
                 selection,
                 selectionArgs,
                 null,
@@ -104,214 +501,1194 @@ public class TaskRepository {
                 null
         )) {
             if (cursor != null && cursor.moveToFirst()) {
-                task = extractTaskFromCursor(cursor);
+                task = extractTaskFromCursor(cursor, new TaskColumnIndices(cursor));
             }
         } catch (Exception e) {
             Log.e(TAG, "Error getting task by ID: " + e.getMessage());
         }
 
-        return task;
+        if (task != null) {
+            synchronized (taskCache) {
+                if (cacheVersion == taskCacheVersion) {
+                    taskCache.put(taskId, new Task(task));
+                }
+            }
+        }
+
+        return metrics.record("getTaskById", startNanos, task);
     }
 
     /**
-     * Insert a new task
+     * Get several tasks by ID in a single query per chunk
+     *
+     * @param taskIds IDs to look up
+     * @return Tasks that exist, in no particular order
      */
-    public long insertTask(Task task) {
-        return addTask(task);
+    public List<Task> getTasksByIds(long[] taskIds) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        TaskStatementCache cache = getStatementCache(db);
+        List<Task> tasks = new ArrayList<>(taskIds.length);
+
+        // Stay well below SQLite's default limit of 999 bound parameters
+        for (int start = 0; start < taskIds.length; start += MAX_BIND_ARGS) {
+            int end = Math.min(taskIds.length, start + MAX_BIND_ARGS);
+            String[] selectionArgs = new String[end - start];
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                selectionArgs[i - start] = String.valueOf(taskIds[i]);
+                placeholders.append(i == start ? "?" : ", ?");
+            }
+
+            try (Cursor cursor = db.query(
+                    TaskContract.TaskEntry.TABLE_NAME,
+                    cache.getTaskProjection(),
+                    TaskContract.TaskEntry._ID + " IN (" + placeholders + ") AND " + TaskStatementCache.LIVE,
+                    selectionArgs,
+                    null,
+                    null,
+                    null
+            )) {
+                TaskColumnIndices columns = new TaskColumnIndices(cursor);
+                while (cursor.moveToNext()) {
+                    tasks.add(extractTaskFromCursor(cursor, columns));
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error getting tasks by ID: " + e.getMessage());
+            }
+        }
+
+        return metrics.record("getTasksByIds", startNanos, tasks);
     }
 
     /**
-     * Add a task
+     * Full-text search over task titles and descriptions. Every word in the query
+     * must match, and each word also matches as a prefix ("meet" finds "meeting").
+     * Tasks matching in the title rank above description-only matches.
+     *
+     * @param query Free-text query typed by the user
+     * @param limit Maximum number of results
+     * @return Matching tasks in rank order; empty if the query has no searchable words
      */
-    public long addTask(Task task) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+    public List<Task> searchTasks(String query, int limit) {
+        long startNanos = metrics.start();
+        List<Task> tasks = new ArrayList<>();
+        List<String> terms = tokenizeSearchQuery(query);
+        if (terms.isEmpty()) {
+            return metrics.record("searchTasks", startNanos, tasks);
+        }
 
-        ContentValues values = new ContentValues();
-        values.put(TaskContract.TaskEntry.COLUMN_TITLE, task.getTitle());
-        values.put(TaskContract.TaskEntry.COLUMN_DESCRIPTION, task.getDescription());
-        values.put(TaskContract.TaskEntry.COLUMN_DUE_DATE, task.getDueDate());
-        values.put(TaskContract.TaskEntry.COLUMN_PRIORITY, task.getPriority());
-        values.put(TaskContract.TaskEntry.COLUMN_COMPLETED, task.isCompleted() ? 1 : 0);
-        
-        // Check if column exists in database before adding value
-        if (hasColumn(db, TaskContract.TaskEntry.TABLE_NAME, TaskContract.TaskEntry.COLUMN_CREATED_AT)) {
-            // Check if createdAt is greater than 0 and use the constant from TaskContract
-            if (task.getCreatedAt() > 0) {
-                values.put(TaskContract.TaskEntry.COLUMN_CREATED_AT, task.getCreatedAt());
-            } else {
-                values.put(TaskContract.TaskEntry.COLUMN_CREATED_AT, System.currentTimeMillis());
+        StringBuilder matchAll = new StringBuilder();
+        StringBuilder matchTitle = new StringBuilder();
+        for (String term : terms) {
+            if (matchAll.length() > 0) {
+                matchAll.append(' ');
+                matchTitle.append(' ');
+            }
+            matchAll.append(term).append('*');
+            matchTitle.append(TaskContract.TaskEntry.COLUMN_TITLE).append(':').append(term).append('*');
+        }
+
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        TaskStatementCache cache = getStatementCache(db);
+        String[] selectionArgs = { matchAll.toString(), matchTitle.toString() };
+
+        try (Cursor cursor = db.rawQuery(cache.getSearchQuery() + limit, selectionArgs)) {
+            TaskColumnIndices columns = new TaskColumnIndices(cursor);
+            while (cursor.moveToNext()) {
+                tasks.add(extractTaskFromCursor(cursor, columns));
             }
+        } catch (Exception e) {
+            Log.e(TAG, "Error searching tasks: " + e.getMessage());
         }
 
-        return db.insert(TaskContract.TaskEntry.TABLE_NAME, null, values);
+        return metrics.record("searchTasks", startNanos, tasks);
     }
 
-    /**
-     * Update an existing task
-     * 
-     * @param task The task to update
-     * @return Number of rows affected (should be 1 if successful)
-     */
-    public int updateTask(Task task) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
-        
-        ContentValues values = new ContentValues();
-        values.put(TaskContract.TaskEntry.COLUMN_TITLE, task.getTitle());
-        values.put(TaskContract.TaskEntry.COLUMN_DESCRIPTION, task.getDescription());
-        values.put(TaskContract.TaskEntry.COLUMN_DUE_DATE, task.getDueDate());
-        values.put(TaskContract.TaskEntry.COLUMN_PRIORITY, task.getPriority());
-        values.put(TaskContract.TaskEntry.COLUMN_COMPLETED, task.isCompleted() ? 1 : 0);
-        
-        // Check if column exists before trying to update it
-        if (hasColumn(db, TaskContract.TaskEntry.TABLE_NAME, TaskContract.TaskEntry.COLUMN_CREATED_AT)) {
-            values.put(TaskContract.TaskEntry.COLUMN_CREATED_AT, task.getCreatedAt());
-        }
-        
-        String selection = TaskContract.TaskEntry._ID + " = ?";
-        String[] selectionArgs = { String.valueOf(task.getId()) };
-        
-        return db.update(
-            TaskContract.TaskEntry.TABLE_NAME,
-            values,
-            selection,
-            selectionArgs
-        );
-    }
-    
-    /**
-     * Delete a task by its ID
-     * 
-     * @param taskId ID of the task to delete
-     * @return Number of rows affected (should be 1 if successful)
-     */
-    public int deleteTask(long taskId) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
-        
-        String selection = TaskContract.TaskEntry._ID + " = ?";
-        String[] selectionArgs = { String.valueOf(taskId) };
-        
-        return db.delete(
-            TaskContract.TaskEntry.TABLE_NAME,
-            selection,
-            selectionArgs
-        );
+    public RepositoryCall<List<Task>> searchTasksAsync(String query, int limit, Callback<List<Task>> callback) {
+        return submit(() -> searchTasks(query, limit), callback);
     }
-    
+
     /**
-     * Get all tasks due between two timestamps
-     * 
-     * @param startTime Start timestamp (inclusive)
-     * @param endTime End timestamp (inclusive)
-     * @return List of tasks due between the specified times
+     * Split a user query into plain alphanumeric terms, dropping punctuation so that
+     * arbitrary input can never form an invalid MATCH expression. Terms are lowercased
+     * and FTS4 only reads uppercase AND, OR, NOT and NEAR as operators, so those words
+     * are searched like any other.
      */
-    public List<Task> getTasksDueBetween(long startTime, long endTime) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        List<Task> tasks = new ArrayList<>();
-        
-        // Get the table info to check if created_at column exists
-        boolean hasCreatedAtColumn = hasColumn(db, TaskContract.TaskEntry.TABLE_NAME, 
-                                              TaskContract.TaskEntry.COLUMN_CREATED_AT);
-        
-        // Build projection based on available columns
-        List<String> projectionList = new ArrayList<>();
-        projectionList.add(TaskContract.TaskEntry._ID);
-        projectionList.add(TaskContract.TaskEntry.COLUMN_TITLE);
-        projectionList.add(TaskContract.TaskEntry.COLUMN_DESCRIPTION);
-        projectionList.add(TaskContract.TaskEntry.COLUMN_DUE_DATE);
-        projectionList.add(TaskContract.TaskEntry.COLUMN_PRIORITY);
-        projectionList.add(TaskContract.TaskEntry.COLUMN_COMPLETED);
-        
-        if (hasCreatedAtColumn) {
-            projectionList.add(TaskContract.TaskEntry.COLUMN_CREATED_AT);
-        }
-        
-        String[] projection = projectionList.toArray(new String[0]);
-        
-        String selection = TaskContract.TaskEntry.COLUMN_DUE_DATE + " >= ? AND " +
-                           TaskContract.TaskEntry.COLUMN_DUE_DATE + " <= ?";
-        String[] selectionArgs = { String.valueOf(startTime), String.valueOf(endTime) };
-        
-        try (Cursor cursor = db.query(
-                TaskContract.TaskEntry.TABLE_NAME,
-                projection,
-                selection,
-                selectionArgs,
-                null,
-                null,
-                TaskContract.TaskEntry.COLUMN_DUE_DATE + " ASC"
-        )) {
-            while (cursor.moveToNext()) {
-                Task task = extractTaskFromCursor(cursor);
-                tasks.add(task);
+    static List<String> tokenizeSearchQuery(String query) {
+        List<String> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= query.length(); i++) {
+            char c = i < query.length() ? query.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                term.append(Character.toLowerCase(c));
+            } else if (term.length() > 0) {
+                terms.add(term.toString());
+                term.setLength(0);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting tasks due between timestamps: " + e.getMessage());
         }
-        
-        return tasks;
+        return terms;
     }
-    
+
     /**
-     * Check if a column exists in a database table
+     * Get aggregate counts. Pending, completed and per-priority counts come from
+     * the trigger-maintained summary table; overdue and due-today counts are index
+     * range counts over pending tasks.
      *
-     * @param db Database to check
-     * @param tableName Table name to check
-     * @param columnName Column name to check
-     * @return True if column exists, false otherwise
+     * @return Current statistics snapshot
      */
-    private boolean hasColumn(SQLiteDatabase db, String tableName, String columnName) {
-        boolean columnExists = false;
-        
-        try (Cursor cursor = db.rawQuery("PRAGMA table_info(" + tableName + ")", null)) {
-            if (cursor != null) {
-                while (cursor.moveToNext()) {
-                    int nameColumnIndex = cursor.getColumnIndex("name");
-                    if (nameColumnIndex != -1) {
-                        String name = cursor.getString(nameColumnIndex);
-                        if (columnName.equalsIgnoreCase(name)) {
-                            columnExists = true;
-                            break;
-                        }
+    public TaskStatistics getStatistics() {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        int pending = 0;
+        int completed = 0;
+        int[] pendingByPriority = new int[Task.PRIORITY_HIGH + 1];
+
+        try (Cursor cursor = db.query(
+                TaskContract.TaskCountEntry.TABLE_NAME,
+                new String[] {
+                        TaskContract.TaskCountEntry.COLUMN_PRIORITY,
+                        TaskContract.TaskCountEntry.COLUMN_COMPLETED,
+                        TaskContract.TaskCountEntry.COLUMN_COUNT
+                },
+                null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                int priority = cursor.getInt(0);
+                int count = cursor.getInt(2);
+                if (cursor.getInt(1) == 1) {
+                    completed += count;
+                } else {
+                    pending += count;
+                    if (priority >= 0 && priority < pendingByPriority.length) {
+                        pendingByPriority[priority] += count;
                     }
                 }
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error checking if column exists: " + e.getMessage());
+            Log.e(TAG, "Error reading task counts: " + e.getMessage());
+        }
+
+        long now = System.currentTimeMillis();
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long startOfToday = calendar.getTimeInMillis();
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        long startOfTomorrow = calendar.getTimeInMillis();
+
+        // A due date of 0 means the task has none, so it is never overdue
+        int overdue = countPendingDueBetween(db, 1, now);
+        int dueToday = countPendingDueBetween(db, startOfToday, startOfTomorrow);
+
+        return metrics.record("getStatistics", startNanos,
+                new TaskStatistics(pending, completed, overdue, dueToday, pendingByPriority));
+    }
+
+    public RepositoryCall<TaskStatistics> getStatisticsAsync(Callback<TaskStatistics> callback) {
+        return submit(this::getStatistics, callback);
+    }
+
+    // Count pending tasks due in [startTime, endTime)
+    private int countPendingDueBetween(SQLiteDatabase db, long startTime, long endTime) {
+        try {
+            return (int) DatabaseUtils.longForQuery(db,
+                    "SELECT COUNT(*) FROM " + TaskContract.TaskEntry.TABLE_NAME +
+                            " WHERE " + TaskContract.TaskEntry.COLUMN_COMPLETED + " = 0 AND " +
+                            TaskStatementCache.LIVE + " AND " +
+                            TaskContract.TaskEntry.COLUMN_DUE_DATE + " >= ? AND " +
+                            TaskContract.TaskEntry.COLUMN_DUE_DATE + " < ?",
+                    new String[] { String.valueOf(startTime), String.valueOf(endTime) });
+        } catch (Exception e) {
+            Log.e(TAG, "Error counting due tasks: " + e.getMessage());
+            return 0;
         }
-        
-        return columnExists;
     }
-    
+
     /**
-     * Extract a Task object from a cursor
-     *
-     * @param cursor Cursor positioned at the task data
-     * @return Task object with data from cursor
+     * Insert a new task
      */
-    private Task extractTaskFromCursor(Cursor cursor) {
-        long id = cursor.getLong(cursor.getColumnIndexOrThrow(TaskContract.TaskEntry._ID));
-        String title = cursor.getString(cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_TITLE));
-        String description = cursor.getString(cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_DESCRIPTION));
-        long dueDate = cursor.getLong(cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_DUE_DATE));
-        int priority = cursor.getInt(cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_PRIORITY));
-        boolean completed = cursor.getInt(cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_COMPLETED)) == 1;
-        
-        // Create Task using default constructor and set properties individually
+    public long insertTask(Task task) {
+        return addTask(task);
+    }
+
+    /**
+     * Add a task
+     *
+     * @param task The task to add
+     * @return Row ID of the new task, or -1 if an error occurred
+     */
+    public long addTask(Task task) {
+        return addTasks(Collections.singletonList(task))[0];
+    }
+
+    /**
+     * Add several tasks in a single transaction
+     *
+     * @param tasks Tasks to add
+     * @return Row ID of each new task in iteration order, or -1 for tasks that failed
+     */
+    public long[] addTasks(Collection<Task> tasks) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        TaskStatementCache cache = getStatementCache(db);
+        SQLiteStatement statement = cache.getInsertStatement();
+        long[] results = new long[tasks.size()];
+        List<Task> insertedRows = new ArrayList<>(tasks.size());
+
+        synchronized (statement) {
+            db.beginTransaction();
+            try {
+                int i = 0;
+                for (Task task : tasks) {
+                    try {
+                        Task row = new Task(task);
+                        if (row.getCreatedAt() <= 0) {
+                            row.setCreatedAt(System.currentTimeMillis());
+                        }
+                        bindTask(statement, row, cache.hasCreatedAtColumn());
+                        results[i] = statement.executeInsert();
+                        if (results[i] > 0) {
+                            row.setId(results[i]);
+                            insertedRows.add(row);
+                        }
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error adding task: " + e.getMessage());
+                        results[i] = -1;
+                    } finally {
+                        statement.clearBindings();
+                    }
+                    i++;
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+
+        updateTaskCache(insertedRows, null);
+        publishChange(TaskChangeEvent.Type.INSERTED, results, results);
+        return metrics.record("addTasks", startNanos, results);
+    }
+
+    /**
+     * Update an existing task
+     *
+     * @param task The task to update
+     * @return Number of rows affected (should be 1 if successful)
+     */
+    public int updateTask(Task task) {
+        return updateTasks(Collections.singletonList(task))[0];
+    }
+
+    /**
+     * Update several tasks in a single transaction
+     *
+     * @param tasks Tasks to update, matched by ID
+     * @return Number of rows affected for each task in iteration order
+     */
+    public int[] updateTasks(Collection<Task> tasks) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        TaskStatementCache cache = getStatementCache(db);
+        SQLiteStatement statement = cache.getUpdateStatement();
+        int[] results = new int[tasks.size()];
+        long[] taskIds = new long[tasks.size()];
+        List<Task> updatedRows = new ArrayList<>(tasks.size());
+
+        synchronized (statement) {
+            db.beginTransaction();
+            try {
+                int i = 0;
+                for (Task task : tasks) {
+                    taskIds[i] = task.getId();
+                    try {
+                        int idIndex = bindTask(statement, task, cache.hasCreatedAtColumn());
+                        statement.bindLong(idIndex, task.getId());
+                        results[i] = statement.executeUpdateDelete();
+                        if (results[i] > 0) {
+                            updatedRows.add(new Task(task));
+                        }
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error updating task: " + e.getMessage());
+                        results[i] = 0;
+                    } finally {
+                        statement.clearBindings();
+                    }
+                    i++;
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+
+        updateTaskCache(updatedRows, null);
+        publishChange(TaskChangeEvent.Type.UPDATED, taskIds, toLongs(results));
+        return metrics.record("updateTasks", startNanos, results);
+    }
+
+    /**
+     * Mark a task complete or incomplete without rewriting its other columns, so
+     * callers holding only a {@link TaskSummary} never need the full task
+     *
+     * @param taskId ID of the task to change
+     * @param completed New completion state
+     * @return Number of rows affected (should be 1 if successful)
+     */
+    public int setTaskCompleted(long taskId, boolean completed) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteStatement statement = getStatementCache(db).getSetCompletedStatement();
+        int result;
+
+        synchronized (statement) {
+            try {
+                statement.bindLong(1, completed ? 1 : 0);
+                statement.bindLong(2, taskId);
+                result = statement.executeUpdateDelete();
+            } catch (Exception e) {
+                Log.e(TAG, "Error updating task completion: " + e.getMessage());
+                result = 0;
+            } finally {
+                statement.clearBindings();
+            }
+        }
+
+        if (result > 0) {
+            synchronized (taskCache) {
+                taskCacheVersion++;
+                Task cached = taskCache.get(taskId);
+                if (cached != null) {
+                    cached.setCompleted(completed);
+                }
+            }
+        }
+        publishChange(TaskChangeEvent.Type.UPDATED, new long[] { taskId }, new long[] { result });
+        return metrics.record("setTaskCompleted", startNanos, result);
+    }
+
+    /**
+     * Delete a task by its ID. The row is only marked with a tombstone, which makes
+     * this as cheap as an update; {@link TaskCompactionJob} removes it later.
+     *
+     * @param taskId ID of the task to delete
+     * @return Number of rows affected (should be 1 if successful)
+     */
+    public int deleteTask(long taskId) {
+        return deleteTasks(Collections.singletonList(taskId))[0];
+    }
+
+    /**
+     * Delete several tasks in a single transaction, marking each with a tombstone
+     *
+     * @param taskIds IDs of the tasks to delete
+     * @return Number of rows affected for each ID in iteration order
+     */
+    public int[] deleteTasks(Collection<Long> taskIds) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteStatement statement = getStatementCache(db).getTombstoneStatement();
+        int[] results = new int[taskIds.size()];
+        long[] ids = new long[taskIds.size()];
+        long deletedAt = System.currentTimeMillis();
+
+        synchronized (statement) {
+            db.beginTransaction();
+            try {
+                int i = 0;
+                for (long taskId : taskIds) {
+                    ids[i] = taskId;
+                    try {
+                        statement.bindLong(1, deletedAt);
+                        statement.bindLong(2, taskId);
+                        results[i] = statement.executeUpdateDelete();
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error deleting task: " + e.getMessage());
+                        results[i] = 0;
+                    } finally {
+                        statement.clearBindings();
+                    }
+                    i++;
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+
+        updateTaskCache(null, ids);
+        publishChange(TaskChangeEvent.Type.DELETED, ids, toLongs(results));
+        return metrics.record("deleteTasks", startNanos, results);
+    }
+
+    /**
+     * Get IDs of tombstoned tasks, oldest deletion first. The task with the highest
+     * ID is left out, since purging it would let SQLite reuse IDs.
+     *
+     * @param limit Maximum number of IDs to return
+     * @return Up to limit IDs of tasks awaiting purge
+     */
+    long[] getTombstonedTaskIds(int limit) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        try (Cursor cursor = db.query(
+                TaskContract.TaskEntry.TABLE_NAME,
+                new String[] { TaskContract.TaskEntry._ID },
+                TaskContract.TaskEntry.COLUMN_DELETED_AT + " IS NOT NULL AND " + TaskStatementCache.BELOW_NEWEST,
+                null,
+                null,
+                null,
+                TaskContract.TaskEntry.COLUMN_DELETED_AT + " ASC",
+                String.valueOf(limit))) {
+            long[] taskIds = new long[cursor.getCount()];
+            int i = 0;
+            while (cursor.moveToNext()) {
+                taskIds[i++] = cursor.getLong(0);
+            }
+            return metrics.record("getTombstonedTaskIds", startNanos, taskIds);
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting tombstoned tasks: " + e.getMessage());
+            return metrics.record("getTombstonedTaskIds", startNanos, new long[0]);
+        }
+    }
+
+    /**
+     * Permanently remove tombstoned tasks in a single transaction. Live tasks and the
+     * task with the highest ID are never touched, even if their IDs are passed in.
+     *
+     * @param taskIds IDs of tombstoned tasks
+     * @return Number of rows removed
+     */
+    int purgeTasks(long[] taskIds) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteStatement statement = getStatementCache(db).getPurgeStatement();
+        int purged = 0;
+
+        synchronized (statement) {
+            db.beginTransaction();
+            try {
+                for (long taskId : taskIds) {
+                    try {
+                        statement.bindLong(1, taskId);
+                        purged += statement.executeUpdateDelete();
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error purging task: " + e.getMessage());
+                    } finally {
+                        statement.clearBindings();
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+
+        return metrics.record("purgeTasks", startNanos, purged);
+    }
+
+    /**
+     * Return free pages at the end of the database file to the file system
+     *
+     * @param maxPages Upper bound on pages to release in this call, to keep the write lock short
+     * @return Number of free pages left in the file
+     */
+    int incrementalVacuum(int maxPages) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        int freePages = 0;
+        try {
+            if (DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null) != AUTO_VACUUM_INCREMENTAL) {
+                // Databases created before tombstones: switching modes needs one full rebuild
+                db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+                db.execSQL("VACUUM");
+            }
+            try (Cursor cursor = db.rawQuery("PRAGMA incremental_vacuum(" + maxPages + ")", null)) {
+                // The pragma only does its work as the statement is stepped, which getCount() forces
+                cursor.getCount();
+            }
+            freePages = (int) DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+        } catch (Exception e) {
+            Log.e(TAG, "Error vacuuming database: " + e.getMessage());
+        }
+
+        metrics.record("incrementalVacuum", startNanos, 0);
+        return freePages;
+    }
+
+    /**
+     * @return Random ID that identifies this database to the sync server
+     */
+    public String getSyncDeviceId() {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        String deviceId = DatabaseUtils.stringForQuery(db, "SELECT " + TaskContract.SyncStateEntry.COLUMN_DEVICE_ID +
+                " FROM " + TaskContract.SyncStateEntry.TABLE_NAME, null);
+        return metrics.record("getSyncDeviceId", startNanos, deviceId);
+    }
+
+    /**
+     * @return Server position up to which remote changes have been applied
+     */
+    public long getSyncPullCursor() {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        long cursor = DatabaseUtils.longForQuery(db, "SELECT " + TaskContract.SyncStateEntry.COLUMN_PULL_CURSOR +
+                " FROM " + TaskContract.SyncStateEntry.TABLE_NAME, null);
+        metrics.record("getSyncPullCursor", startNanos, 1);
+        return cursor;
+    }
+
+    /**
+     * Get local changes the server has not acknowledged yet. Journal entries for the
+     * same task are folded into one change carrying the union of their changed fields
+     * and the task's current values, so a task edited many times between syncs is
+     * sent once. Values of archived tasks are read from the archive.
+     *
+     * @param limit Maximum number of journal entries to read
+     * @return Pending changes ordered by sequence number; the last one carries the
+     *         highest sequence number read
+     */
+    public List<TaskChange> getPendingChanges(int limit) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Map<String, TaskChange> changes = new LinkedHashMap<>();
+
+        try (Cursor cursor = db.rawQuery(
+                "SELECT j." + TaskContract.TaskJournalEntry.COLUMN_SEQ +
+                        ", j." + TaskContract.TaskJournalEntry.COLUMN_SYNC_ID +
+                        ", j." + TaskContract.TaskJournalEntry.COLUMN_OPERATION +
+                        ", j." + TaskContract.TaskJournalEntry.COLUMN_FIELD_MASK +
+                        ", " + eitherTable(TaskContract.TaskEntry._ID) +
+                        ", t." + TaskContract.TaskEntry.COLUMN_DELETED_AT +
+                        ", " + eitherTable(TaskContract.TaskEntry.COLUMN_TITLE) +
+                        ", " + eitherTable(TaskContract.TaskEntry.COLUMN_DESCRIPTION) +
+                        ", " + eitherTable(TaskContract.TaskEntry.COLUMN_DUE_DATE) +
+                        ", " + eitherTable(TaskContract.TaskEntry.COLUMN_PRIORITY) +
+                        ", " + eitherTable(TaskContract.TaskEntry.COLUMN_COMPLETED) +
+                        ", " + eitherTable(TaskContract.TaskEntry.COLUMN_CREATED_AT) +
+                        " FROM " + TaskContract.TaskJournalEntry.TABLE_NAME + " j LEFT JOIN " +
+                        TaskContract.TaskEntry.TABLE_NAME + " t ON t." + TaskContract.TaskEntry.COLUMN_SYNC_ID +
+                        " = j." + TaskContract.TaskJournalEntry.COLUMN_SYNC_ID +
+                        // Tasks archived before their changes were pushed are still live on the server
+                        " LEFT JOIN " + TaskContract.TaskArchiveEntry.TABLE_NAME + " a ON a." +
+                        TaskContract.TaskArchiveEntry.COLUMN_SYNC_ID + " = j." +
+                        TaskContract.TaskJournalEntry.COLUMN_SYNC_ID +
+                        " WHERE j." + TaskContract.TaskJournalEntry.COLUMN_SEQ + " > (SELECT " +
+                        TaskContract.SyncStateEntry.COLUMN_PUSHED_SEQ + " FROM " +
+                        TaskContract.SyncStateEntry.TABLE_NAME + ")" +
+                        " ORDER BY j." + TaskContract.TaskJournalEntry.COLUMN_SEQ + " ASC LIMIT ?",
+                new String[] { String.valueOf(limit) })) {
+            while (cursor.moveToNext()) {
+                String syncId = cursor.getString(1);
+                // Re-inserting moves the change to the position of its newest entry
+                TaskChange change = changes.remove(syncId);
+                if (change == null) {
+                    change = new TaskChange();
+                    change.setSyncId(syncId);
+                }
+                change.setSeq(cursor.getLong(0));
+                change.setFieldMask(change.getFieldMask() |
+                        (cursor.getInt(3) & TaskContract.TaskJournalEntry.ALL_FIELDS));
+
+                // Purged and tombstoned rows can only be sent as deletes
+                boolean deleted = cursor.getInt(2) == TaskContract.TaskJournalEntry.OPERATION_DELETE ||
+                        cursor.isNull(4) || !cursor.isNull(5);
+                change.setDeleted(deleted);
+                if (!deleted) {
+                    change.setTitle(cursor.getString(6));
+                    change.setDescription(cursor.getString(7));
+                    change.setDueDate(cursor.getLong(8));
+                    change.setPriority(cursor.getInt(9));
+                    change.setCompleted(cursor.getInt(10) == 1);
+                    change.setCreatedAt(cursor.getLong(11));
+                }
+                changes.put(syncId, change);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading change journal: " + e.getMessage());
+        }
+
+        return metrics.record("getPendingChanges", startNanos, new ArrayList<TaskChange>(changes.values()));
+    }
+
+    // A task lives in exactly one of the two tables, so the value comes from whichever holds it
+    private static String eitherTable(String column) {
+        return "IFNULL(t." + column + ", a." + column + ")";
+    }
+
+    /**
+     * Record that the server has stored every local change up to a sequence number,
+     * and drop those entries from the journal
+     *
+     * @param seq Highest acknowledged journal sequence number
+     */
+    public void acknowledgeChanges(long seq) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.execSQL("UPDATE " + TaskContract.SyncStateEntry.TABLE_NAME + " SET " +
+                    TaskContract.SyncStateEntry.COLUMN_PUSHED_SEQ + " = max(" +
+                    TaskContract.SyncStateEntry.COLUMN_PUSHED_SEQ + ", ?)", new Object[] { seq });
+            db.delete(TaskContract.TaskJournalEntry.TABLE_NAME,
+                    TaskContract.TaskJournalEntry.COLUMN_SEQ + " <= ?",
+                    new String[] { String.valueOf(seq) });
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        metrics.record("acknowledgeChanges", startNanos, 0);
+    }
+
+    /**
+     * Apply changes pulled from the server in a single transaction. The journal is
+     * muted meanwhile, so remote changes are never pushed back. Deletes win over
+     * updates: a task tombstoned on either side stays deleted. An update to an
+     * archived task moves it back to the tasks table before it is applied.
+     *
+     * @param changes Remote changes in server order
+     * @param pullCursor Server position to resume the next pull from
+     * @return Number of changes that modified a task
+     */
+    public int applyRemoteChanges(List<TaskChange> changes, long pullCursor) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        List<Long> inserted = new ArrayList<>();
+        List<Long> updated = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        db.beginTransaction();
+        try {
+            setJournalMuted(db, true);
+
+            for (TaskChange change : changes) {
+                long taskId = 0;
+                boolean live = false;
+                try (Cursor cursor = db.query(
+                        TaskContract.TaskEntry.TABLE_NAME,
+                        new String[] { TaskContract.TaskEntry._ID, TaskContract.TaskEntry.COLUMN_DELETED_AT },
+                        TaskContract.TaskEntry.COLUMN_SYNC_ID + " = ?",
+                        new String[] { change.getSyncId() },
+                        null,
+                        null,
+                        null)) {
+                    if (cursor.moveToFirst()) {
+                        taskId = cursor.getLong(0);
+                        live = cursor.isNull(1);
+                    }
+                }
+                boolean restored = false;
+                if (taskId == 0 && !change.isDeleted()) {
+                    taskId = restoreArchivedTask(db, change.getSyncId());
+                    live = restored = taskId != 0;
+                    if (restored) {
+                        inserted.add(taskId);
+                    }
+                }
+
+                if (change.isDeleted()) {
+                    if (live) {
+                        ContentValues values = new ContentValues();
+                        values.put(TaskContract.TaskEntry.COLUMN_DELETED_AT, now);
+                        db.update(TaskContract.TaskEntry.TABLE_NAME, values,
+                                TaskContract.TaskEntry._ID + " = ?", new String[] { String.valueOf(taskId) });
+                        deleted.add(taskId);
+                    } else if (taskId == 0) {
+                        db.delete(TaskContract.TaskArchiveEntry.TABLE_NAME,
+                                TaskContract.TaskArchiveEntry.COLUMN_SYNC_ID + " = ?",
+                                new String[] { change.getSyncId() });
+                    }
+                } else if (taskId == 0) {
+                    if (change.getTitle() == null) {
+                        // A partial change for a task this device never saw; nothing to build it from
+                        continue;
+                    }
+                    ContentValues values = remoteValues(change, TaskChange.ALL_FIELDS);
+                    values.put(TaskContract.TaskEntry.COLUMN_SYNC_ID, change.getSyncId());
+                    values.put(TaskContract.TaskEntry.COLUMN_CREATED_AT,
+                            change.getCreatedAt() > 0 ? change.getCreatedAt() : now);
+                    long newId = db.insert(TaskContract.TaskEntry.TABLE_NAME, null, values);
+                    if (newId > 0) {
+                        inserted.add(newId);
+                    }
+                } else if (live && change.getFieldMask() != 0) {
+                    db.update(TaskContract.TaskEntry.TABLE_NAME, remoteValues(change, change.getFieldMask()),
+                            TaskContract.TaskEntry._ID + " = ?", new String[] { String.valueOf(taskId) });
+                    if (!restored) {
+                        updated.add(taskId);
+                    }
+                }
+            }
+
+            setJournalMuted(db, false);
+            db.execSQL("UPDATE " + TaskContract.SyncStateEntry.TABLE_NAME + " SET " +
+                    TaskContract.SyncStateEntry.COLUMN_PULL_CURSOR + " = ?", new Object[] { pullCursor });
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        long[] insertedIds = toLongArray(inserted);
+        long[] updatedIds = toLongArray(updated);
+        long[] deletedIds = toLongArray(deleted);
+        updateTaskCache(null, updatedIds);
+        updateTaskCache(null, deletedIds);
+        publishChange(TaskChangeEvent.Type.INSERTED, insertedIds, insertedIds);
+        publishChange(TaskChangeEvent.Type.UPDATED, updatedIds, updatedIds);
+        publishChange(TaskChangeEvent.Type.DELETED, deletedIds, deletedIds);
+        return metrics.record("applyRemoteChanges", startNanos,
+                insertedIds.length + updatedIds.length + deletedIds.length);
+    }
+
+    /**
+     * Move an archived task back to the tasks table under its original ID. Only call
+     * inside a transaction.
+     *
+     * @return ID of the restored task, or 0 if the archive has no task with this sync ID
+     */
+    private static long restoreArchivedTask(SQLiteDatabase db, String syncId) {
+        long taskId;
+        try (Cursor cursor = db.query(
+                TaskContract.TaskArchiveEntry.TABLE_NAME,
+                new String[] { TaskContract.TaskArchiveEntry._ID },
+                TaskContract.TaskArchiveEntry.COLUMN_SYNC_ID + " = ?",
+                new String[] { syncId },
+                null,
+                null,
+                null)) {
+            if (!cursor.moveToFirst()) {
+                return 0;
+            }
+            taskId = cursor.getLong(0);
+        }
+
+        String[] idArgs = new String[] { String.valueOf(taskId) };
+        db.execSQL("INSERT INTO " + TaskContract.TaskEntry.TABLE_NAME + " (" +
+                TaskContract.TaskArchiveEntry.COPIED_COLUMNS + ") SELECT " +
+                TaskContract.TaskArchiveEntry.COPIED_COLUMNS + " FROM " +
+                TaskContract.TaskArchiveEntry.TABLE_NAME + " WHERE " + TaskContract.TaskArchiveEntry._ID + " = ?",
+                idArgs);
+        db.delete(TaskContract.TaskArchiveEntry.TABLE_NAME, TaskContract.TaskArchiveEntry._ID + " = ?", idArgs);
+        return taskId;
+    }
+
+    /**
+     * Stop or resume journaling of task writes. Only call inside a transaction, so
+     * that a failure can never leave the journal muted.
+     */
+    private static void setJournalMuted(SQLiteDatabase db, boolean muted) {
+        db.execSQL("UPDATE " + TaskContract.SyncStateEntry.TABLE_NAME + " SET " +
+                TaskContract.SyncStateEntry.COLUMN_APPLYING_REMOTE + " = " + (muted ? 1 : 0));
+    }
+
+    /**
+     * Move one batch of old completed tasks from the tasks table to the archive, in a
+     * single transaction. The newest task is never moved, and compaction never purges
+     * it either, so SQLite cannot hand an archived ID to a new task.
+     *
+     * @param cutoff Tasks due and created before this time are archived
+     * @param limit Maximum number of tasks to move
+     * @return Number of tasks archived
+     */
+    int archiveCompletedTasks(long cutoff, int limit) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        long[] taskIds;
+
+        db.beginTransaction();
+        try {
+            try (Cursor cursor = db.rawQuery(
+                    "SELECT " + TaskContract.TaskEntry._ID + " FROM " + TaskContract.TaskEntry.TABLE_NAME +
+                            " WHERE " + TaskContract.TaskEntry.COLUMN_COMPLETED + " = 1 AND " +
+                            TaskContract.TaskEntry.COLUMN_DUE_DATE + " < ? AND " + TaskStatementCache.LIVE +
+                            " AND IFNULL(" + TaskContract.TaskEntry.COLUMN_CREATED_AT + ", 0) < ?" +
+                            " AND " + TaskStatementCache.BELOW_NEWEST +
+                            " ORDER BY " + TaskContract.TaskEntry.COLUMN_DUE_DATE + " ASC LIMIT " + limit,
+                    new String[] { String.valueOf(cutoff), String.valueOf(cutoff) })) {
+                taskIds = new long[cursor.getCount()];
+                int i = 0;
+                while (cursor.moveToNext()) {
+                    taskIds[i++] = cursor.getLong(0);
+                }
+            }
+
+            if (taskIds.length > 0) {
+                String[] selectionArgs = new String[taskIds.length];
+                StringBuilder placeholders = new StringBuilder();
+                for (int i = 0; i < taskIds.length; i++) {
+                    selectionArgs[i] = String.valueOf(taskIds[i]);
+                    placeholders.append(i == 0 ? "?" : ", ?");
+                }
+                String inIds = TaskContract.TaskEntry._ID + " IN (" + placeholders + ")";
+
+                // Archiving moves rows rather than deleting them, so it must not reach other devices
+                setJournalMuted(db, true);
+                db.execSQL("INSERT INTO " + TaskContract.TaskArchiveEntry.TABLE_NAME + " (" +
+                        TaskContract.TaskArchiveEntry.COPIED_COLUMNS + ", " +
+                        TaskContract.TaskArchiveEntry.COLUMN_ARCHIVED_AT + ") SELECT " +
+                        TaskContract.TaskArchiveEntry.COPIED_COLUMNS + ", " + System.currentTimeMillis() +
+                        " FROM " + TaskContract.TaskEntry.TABLE_NAME + " WHERE " + inIds, selectionArgs);
+                db.delete(TaskContract.TaskEntry.TABLE_NAME, inIds, selectionArgs);
+                setJournalMuted(db, false);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        // Archived tasks leave every active view, which listeners handle like a delete
+        updateTaskCache(null, taskIds);
+        publishChange(TaskChangeEvent.Type.DELETED, taskIds, taskIds);
+        return metrics.record("archiveCompletedTasks", startNanos, taskIds.length);
+    }
+
+    private static ContentValues remoteValues(TaskChange change, int fieldMask) {
+        ContentValues values = new ContentValues();
+        if ((fieldMask & TaskChange.FIELD_TITLE) != 0) {
+            values.put(TaskContract.TaskEntry.COLUMN_TITLE, change.getTitle());
+        }
+        if ((fieldMask & TaskChange.FIELD_DESCRIPTION) != 0) {
+            values.put(TaskContract.TaskEntry.COLUMN_DESCRIPTION, change.getDescription());
+        }
+        if ((fieldMask & TaskChange.FIELD_DUE_DATE) != 0) {
+            values.put(TaskContract.TaskEntry.COLUMN_DUE_DATE, change.getDueDate());
+        }
+        if ((fieldMask & TaskChange.FIELD_PRIORITY) != 0) {
+            values.put(TaskContract.TaskEntry.COLUMN_PRIORITY, change.getPriority());
+        }
+        if ((fieldMask & TaskChange.FIELD_COMPLETED) != 0) {
+            values.put(TaskContract.TaskEntry.COLUMN_COMPLETED, change.isCompleted() ? 1 : 0);
+        }
+        return values;
+    }
+
+    private static long[] toLongArray(List<Long> values) {
+        long[] longs = new long[values.size()];
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = values.get(i);
+        }
+        return longs;
+    }
+
+    /**
+     * Get all tasks due between two timestamps
+     *
+     * @param startTime Start timestamp (inclusive)
+     * @param endTime End timestamp (inclusive)
+     * @return List of tasks due between the specified times
+     */
+    public List<Task> getTasksDueBetween(long startTime, long endTime) {
+        return getTasksDueBetween(TaskScope.ACTIVE, startTime, endTime);
+    }
+
+    /**
+     * Get tasks from the given scope due between two timestamps
+     *
+     * @param scope Tables to read
+     * @param startTime Start timestamp (inclusive)
+     * @param endTime End timestamp (inclusive)
+     * @return List of tasks due between the specified times, in due date order
+     */
+    public List<Task> getTasksDueBetween(TaskScope scope, long startTime, long endTime) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        String start = String.valueOf(startTime);
+        String end = String.valueOf(endTime);
+        List<Task> tasks = queryDueWindow(db, getStatementCache(db).getDueBetweenQuery(scope),
+                scope == TaskScope.ALL ? new String[] { start, end, start, end } : new String[] { start, end });
+        return metrics.record("getTasksDueBetween", startNanos, tasks);
+    }
+
+    /**
+     * Get incomplete tasks due between two timestamps. Served by the partial
+     * pending-task index, so completed history is never scanned.
+     *
+     * @param startTime Start timestamp (inclusive)
+     * @param endTime End timestamp (inclusive)
+     * @return List of incomplete tasks due between the specified times
+     */
+    public List<Task> getPendingTasksDueBetween(long startTime, long endTime) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        List<Task> tasks = queryDueWindow(db, getStatementCache(db).getPendingDueBetweenQuery(),
+                new String[] { String.valueOf(startTime), String.valueOf(endTime) });
+        return metrics.record("getPendingTasksDueBetween", startNanos, tasks);
+    }
+
+    /**
+     * Find the next instant at which a pending task needs attention: its
+     * reminder, leadTime before it is due, or its due time
+     *
+     * @param after Only instants later than this count
+     * @param leadTime How long before its due time a task's reminder fires
+     * @return The earliest such instant, or -1 if there is none
+     */
+    public long getNextReminderTime(long after, long leadTime) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        long next = -1;
+
+        try (Cursor cursor = db.rawQuery(getStatementCache(db).getNextReminderQuery(), new String[] {
+                String.valueOf(after), String.valueOf(leadTime), String.valueOf(after + leadTime) })) {
+            if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                next = cursor.getLong(0);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error finding next reminder time: " + e.getMessage());
+        }
+
+        metrics.record("getNextReminderTime", startNanos, next == -1 ? 0 : 1);
+        return next;
+    }
+
+    /**
+     * Get incomplete tasks due in a window that have not yet had a notification
+     * of a kind for their current due date. The ledger is consulted per task by
+     * primary key, so already delivered tasks cost one index seek each.
+     *
+     * @param kind {@link TaskContract.NotificationLedgerEntry#KIND_REMINDER} or
+     *             {@link TaskContract.NotificationLedgerEntry#KIND_DUE}
+     * @param startTime Start timestamp (inclusive)
+     * @param endTime End timestamp (inclusive)
+     * @return Tasks still owed a notification, by due date
+     */
+    public List<Task> getUndeliveredTasksDueBetween(int kind, long startTime, long endTime) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        List<Task> tasks = queryDueWindow(db, getStatementCache(db).getUndeliveredDueBetweenQuery(),
+                new String[] { String.valueOf(startTime), String.valueOf(endTime), String.valueOf(kind) });
+        return metrics.record("getUndeliveredTasksDueBetween", startNanos, tasks);
+    }
+
+    /**
+     * Record that tasks have had a notification of a kind for their current due
+     * date, so {@link #getUndeliveredTasksDueBetween} skips them from now on
+     *
+     * @param kind Kind of notification delivered
+     * @param tasks Tasks notified
+     * @param deliveredAt Time of delivery
+     * @return Number of new ledger entries
+     */
+    public int recordNotificationsDelivered(int kind, Collection<Task> tasks, long deliveredAt) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteStatement statement = getStatementCache(db).getRecordDeliveryStatement();
+        int recorded = 0;
+
+        synchronized (statement) {
+            db.beginTransaction();
+            try {
+                for (Task task : tasks) {
+                    try {
+                        statement.bindLong(1, task.getId());
+                        statement.bindLong(2, kind);
+                        statement.bindLong(3, task.getDueDate());
+                        statement.bindLong(4, deliveredAt);
+                        if (statement.executeInsert() != -1) {
+                            recorded++;
+                        }
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error recording notification: " + e.getMessage());
+                    } finally {
+                        statement.clearBindings();
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+
+        return metrics.record("recordNotificationsDelivered", startNanos, recorded);
+    }
+
+    /**
+     * Record that the user dismissed the notifications delivered for a task
+     *
+     * @param taskId ID of the task
+     * @param dismissedAt Time of dismissal
+     * @return Number of ledger entries updated
+     */
+    public int recordNotificationDismissed(long taskId, long dismissedAt) {
+        long startNanos = metrics.start();
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteStatement statement = getStatementCache(db).getRecordDismissalStatement();
+        int result;
+
+        synchronized (statement) {
+            try {
+                statement.bindLong(1, dismissedAt);
+                statement.bindLong(2, taskId);
+                result = statement.executeUpdateDelete();
+            } catch (Exception e) {
+                Log.e(TAG, "Error recording dismissal: " + e.getMessage());
+                result = 0;
+            } finally {
+                statement.clearBindings();
+            }
+        }
+
+        return metrics.record("recordNotificationDismissed", startNanos, result);
+    }
+
+    private List<Task> queryDueWindow(SQLiteDatabase db, String sql, String[] selectionArgs) {
+        List<Task> tasks = new ArrayList<>();
+
+        try (Cursor cursor = db.rawQuery(sql, selectionArgs)) {
+            TaskColumnIndices columns = new TaskColumnIndices(cursor);
+            while (cursor.moveToNext()) {
+                Task task = extractTaskFromCursor(cursor, columns);
+                tasks.add(task);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting tasks due between timestamps: " + e.getMessage());
+        }
+
+        return tasks;
+    }
+
+    /**
+     * Write committed rows through to the task cache
+     *
+     * @param rows Rows to store; the cache takes ownership of these copies
+     * @param evictedIds IDs to drop from the cache
+     */
+    private void updateTaskCache(List<Task> rows, long[] evictedIds) {
+        synchronized (taskCache) {
+            taskCacheVersion++;
+            if (rows != null) {
+                for (Task row : rows) {
+                    taskCache.put(row.getId(), row);
+                }
+            }
+            if (evictedIds != null) {
+                for (long taskId : evictedIds) {
+                    taskCache.remove(taskId);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Number of getTaskById calls served from the cache
+     */
+    public int getCacheHitCount() {
+        synchronized (taskCache) {
+            return taskCache.hitCount();
+        }
+    }
+
+    /**
+     * @return Number of getTaskById calls that had to read the database
+     */
+    public int getCacheMissCount() {
+        synchronized (taskCache) {
+            return taskCache.missCount();
+        }
+    }
+
+    /**
+     * Get the statement cache for the given database, rebuilding it if the
+     * database has been reopened since the cache was created
+     *
+     * @param db Currently open database
+     * @return Statement cache bound to that database
+     */
+    private synchronized TaskStatementCache getStatementCache(SQLiteDatabase db) {
+        if (statementCache == null || !statementCache.isValidFor(db)) {
+            if (statementCache != null) {
+                statementCache.close();
+            }
+            statementCache = new TaskStatementCache(db);
+        }
+        return statementCache;
+    }
+
+    /**
+     * Bind the task's columns to an insert or update statement
+     *
+     * @param statement Statement compiled by {@link TaskStatementCache}
+     * @param task Task to bind
+     * @param hasCreatedAtColumn Whether the schema has a created_at column
+     * @return Index of the next unbound parameter
+     */
+    private static int bindTask(SQLiteStatement statement, Task task, boolean hasCreatedAtColumn) {
+        bindStringOrNull(statement, 1, task.getTitle());
+        bindStringOrNull(statement, 2, task.getDescription());
+        statement.bindLong(3, task.getDueDate());
+        statement.bindLong(4, task.getPriority());
+        statement.bindLong(5, task.isCompleted() ? 1 : 0);
+
+        if (!hasCreatedAtColumn) {
+            return 6;
+        }
+
+        statement.bindLong(6, task.getCreatedAt());
+        return 7;
+    }
+
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    /**
+     * Extract a Task object from a cursor
+     *
+     * @param cursor Cursor positioned at the task data
+     * @param columns Column indices resolved once for this cursor
+     * @return Task object with data from cursor
+     */
+    private Task extractTaskFromCursor(Cursor cursor, TaskColumnIndices columns) {
+        // Create Task using default constructor and set properties individually
         Task task = new Task();
-        task.setId(id);
-        task.setTitle(title);
-        task.setDescription(description);
-        task.setDueDate(dueDate);
-        task.setPriority(priority);
-        task.setCompleted(completed);
-        
-        // Check if created_at column exists in the cursor
-        int createdAtColumnIndex = cursor.getColumnIndex(TaskContract.TaskEntry.COLUMN_CREATED_AT);
-        if (createdAtColumnIndex != -1) {
-            long createdAt = cursor.getLong(createdAtColumnIndex);
-            task.setCreatedAt(createdAt);
-        }
-        
+        task.setId(cursor.getLong(columns.id));
+        task.setTitle(cursor.getString(columns.title));
+        task.setDescription(cursor.getString(columns.description));
+        task.setDueDate(cursor.getLong(columns.dueDate));
+        task.setPriority(cursor.getInt(columns.priority));
+        task.setCompleted(cursor.getInt(columns.completed) == 1);
+
+        // created_at is only projected when the column exists
+        if (columns.createdAt != -1) {
+            task.setCreatedAt(cursor.getLong(columns.createdAt));
+        }
+
         return task;
     }
+
+    /**
+     * Column indices of a task cursor, resolved once per query instead of once per row
+     */
+    private static final class TaskColumnIndices {
+        final int id;
+        final int title;
+        final int description;
+        final int dueDate;
+        final int priority;
+        final int completed;
+        final int createdAt;
+
+        TaskColumnIndices(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow(TaskContract.TaskEntry._ID);
+            title = cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_TITLE);
+            description = cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_DESCRIPTION);
+            dueDate = cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_DUE_DATE);
+            priority = cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_PRIORITY);
+            completed = cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_COMPLETED);
+            createdAt = cursor.getColumnIndex(TaskContract.TaskEntry.COLUMN_CREATED_AT);
+        }
+    }
 }
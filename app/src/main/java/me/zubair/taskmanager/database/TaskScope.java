@@ -0,0 +1,11 @@
+package me.zubair.taskmanager.database;
+
+/**
+ * Which tables a task query reads: the hot tasks table, the archive of old
+ * completed tasks, or both
+ */
+public enum TaskScope {
+    ACTIVE,
+    ARCHIVED,
+    ALL
+}
@@ -0,0 +1,460 @@
+package me.zubair.taskmanager.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import me.zubair.taskmanager.models.TaskSummary;
+
+/**
+ * Schema capabilities and compiled statements for one open database connection.
+ * The schema is probed once when the cache is created, and statements are compiled
+ * lazily the first time they are needed. A new cache must be created whenever the
+ * underlying database is reopened.
+ */
+final class TaskStatementCache {
+    private static final String TAG = "TaskStatementCache";
+
+    // Every read of live tasks carries this condition
+    static final String LIVE = TaskContract.TaskEntry.COLUMN_DELETED_AT + " IS NULL";
+
+    // Rows that may leave the tasks table. SQLite gives a new row the highest ID plus one,
+    // so keeping the newest row keeps archived and purged IDs from being handed out again
+    static final String BELOW_NEWEST = TaskContract.TaskEntry._ID + " < (SELECT MAX(" +
+            TaskContract.TaskEntry._ID + ") FROM " + TaskContract.TaskEntry.TABLE_NAME + ")";
+
+    // Alias of the truncated description in summary projections
+    static final String COLUMN_DESCRIPTION_PREVIEW = "description_preview";
+
+    private static final String[] SUMMARY_PROJECTION = {
+            TaskContract.TaskEntry._ID,
+            TaskContract.TaskEntry.COLUMN_TITLE,
+            "substr(" + TaskContract.TaskEntry.COLUMN_DESCRIPTION + ", 1, " +
+                    TaskSummary.DESCRIPTION_PREVIEW_LENGTH + ") AS " + COLUMN_DESCRIPTION_PREVIEW,
+            TaskContract.TaskEntry.COLUMN_DUE_DATE,
+            TaskContract.TaskEntry.COLUMN_PRIORITY,
+            TaskContract.TaskEntry.COLUMN_COMPLETED
+    };
+
+    private final SQLiteDatabase db;
+    private final boolean hasCreatedAtColumn;
+    private final String[] taskProjection;
+    private final String dueBetweenQuery;
+    private final String archivedDueBetweenQuery;
+    private final String allDueBetweenQuery;
+    private final String selectFromTasks;
+    private final String selectFromArchive;
+    private final String pendingDueBetweenQuery;
+    private final String nextReminderQuery;
+    private final String undeliveredDueBetweenQuery;
+    private final String firstPageQuery;
+    private final String nextPageQuery;
+    private final String searchQuery;
+    private final String firstSummaryPageQuery;
+    private final String nextSummaryPageQuery;
+    private final String previousSummaryPageQuery;
+
+    private SQLiteStatement insertStatement;
+    private SQLiteStatement updateStatement;
+    private SQLiteStatement tombstoneStatement;
+    private SQLiteStatement purgeStatement;
+    private SQLiteStatement setCompletedStatement;
+    private SQLiteStatement recordDeliveryStatement;
+    private SQLiteStatement recordDismissalStatement;
+
+    TaskStatementCache(SQLiteDatabase db) {
+        this.db = db;
+        this.hasCreatedAtColumn = hasColumn(db, TaskContract.TaskEntry.TABLE_NAME,
+                TaskContract.TaskEntry.COLUMN_CREATED_AT);
+
+        // Build projection based on available columns
+        List<String> projectionList = new ArrayList<>();
+        projectionList.add(TaskContract.TaskEntry._ID);
+        projectionList.add(TaskContract.TaskEntry.COLUMN_TITLE);
+        projectionList.add(TaskContract.TaskEntry.COLUMN_DESCRIPTION);
+        projectionList.add(TaskContract.TaskEntry.COLUMN_DUE_DATE);
+        projectionList.add(TaskContract.TaskEntry.COLUMN_PRIORITY);
+        projectionList.add(TaskContract.TaskEntry.COLUMN_COMPLETED);
+
+        if (hasCreatedAtColumn) {
+            projectionList.add(TaskContract.TaskEntry.COLUMN_CREATED_AT);
+        }
+
+        this.taskProjection = projectionList.toArray(new String[0]);
+        String projection = TextUtils.join(", ", taskProjection);
+        this.selectFromTasks = "SELECT " + projection + " FROM " + TaskContract.TaskEntry.TABLE_NAME + " WHERE ";
+        // The archive shares the task column names, so the same projection and row mapping apply
+        this.selectFromArchive = "SELECT " + projection + " FROM " + TaskContract.TaskArchiveEntry.TABLE_NAME +
+                " WHERE ";
+        String dueWindow = TaskContract.TaskEntry.COLUMN_DUE_DATE + " >= ? AND " +
+                TaskContract.TaskEntry.COLUMN_DUE_DATE + " <= ?" +
+                " ORDER BY " + TaskContract.TaskEntry.COLUMN_DUE_DATE + " ASC";
+        this.dueBetweenQuery = selectFromTasks + LIVE + " AND " + dueWindow;
+        this.archivedDueBetweenQuery = selectFromArchive + dueWindow;
+        this.allDueBetweenQuery = selectFromTasks + LIVE + " AND " + TaskContract.TaskEntry.COLUMN_DUE_DATE +
+                " >= ? AND " + TaskContract.TaskEntry.COLUMN_DUE_DATE + " <= ?" +
+                " UNION ALL " + selectFromArchive + dueWindow;
+        // "completed = 0 AND deleted_at IS NULL" stays a literal so SQLite can pick the partial pending index
+        this.pendingDueBetweenQuery = selectFromTasks +
+                TaskContract.TaskEntry.COLUMN_COMPLETED + " = 0 AND " + LIVE + " AND " + dueWindow;
+        // Anti-join on the ledger's primary key: one seek per candidate task. Bind order: start, end, kind.
+        String ledger = TaskContract.NotificationLedgerEntry.TABLE_NAME;
+        this.undeliveredDueBetweenQuery = selectFromTasks +
+                TaskContract.TaskEntry.COLUMN_COMPLETED + " = 0 AND " + LIVE + " AND " +
+                TaskContract.TaskEntry.COLUMN_DUE_DATE + " >= ? AND " +
+                TaskContract.TaskEntry.COLUMN_DUE_DATE + " <= ? AND NOT EXISTS (SELECT 1 FROM " + ledger +
+                " WHERE " + TaskContract.NotificationLedgerEntry.COLUMN_TASK_ID + " = " +
+                TaskContract.TaskEntry.TABLE_NAME + "." + TaskContract.TaskEntry._ID +
+                " AND " + TaskContract.NotificationLedgerEntry.COLUMN_KIND + " = ?" +
+                " AND " + ledger + "." + TaskContract.NotificationLedgerEntry.COLUMN_DUE_DATE + " = " +
+                TaskContract.TaskEntry.TABLE_NAME + "." + TaskContract.TaskEntry.COLUMN_DUE_DATE + ")" +
+                " ORDER BY " + TaskContract.TaskEntry.COLUMN_DUE_DATE + " ASC";
+        // Each arm is a single seek on the partial pending index
+        String firstPendingDueAfter = "SELECT MIN(" + TaskContract.TaskEntry.COLUMN_DUE_DATE + ")";
+        String pendingAfter = " FROM " + TaskContract.TaskEntry.TABLE_NAME + " WHERE " +
+                TaskContract.TaskEntry.COLUMN_COMPLETED + " = 0 AND " + LIVE + " AND " +
+                TaskContract.TaskEntry.COLUMN_DUE_DATE + " > ?";
+        this.nextReminderQuery = "SELECT MIN(instant) FROM (" +
+                firstPendingDueAfter + " AS instant" + pendingAfter + " UNION ALL " +
+                firstPendingDueAfter + " - ?" + pendingAfter + ")";
+
+        // Keyset pagination over (due_date, _id); the due_date range keeps the index usable
+        String pageOrder = " ORDER BY " + TaskContract.TaskEntry.COLUMN_DUE_DATE + " ASC, " +
+                TaskContract.TaskEntry._ID + " ASC LIMIT ";
+        this.firstPageQuery = selectFromTasks + LIVE + pageOrder;
+        String afterKey = TaskContract.TaskEntry.COLUMN_DUE_DATE + " >= ? AND (" +
+                TaskContract.TaskEntry.COLUMN_DUE_DATE + " > ? OR " +
+                TaskContract.TaskEntry._ID + " > ?)";
+        this.nextPageQuery = selectFromTasks + LIVE + " AND " + afterKey + pageOrder;
+
+        // Same pages for list rows, reading only a prefix of each description
+        String selectSummaries = "SELECT " + TextUtils.join(", ", SUMMARY_PROJECTION) +
+                " FROM " + TaskContract.TaskEntry.TABLE_NAME + " WHERE " + LIVE;
+        this.firstSummaryPageQuery = selectSummaries + pageOrder;
+        this.nextSummaryPageQuery = selectSummaries + " AND " + afterKey + pageOrder;
+        this.previousSummaryPageQuery = selectSummaries + " AND " +
+                TaskContract.TaskEntry.COLUMN_DUE_DATE + " <= ? AND (" +
+                TaskContract.TaskEntry.COLUMN_DUE_DATE + " < ? OR " +
+                TaskContract.TaskEntry._ID + " < ?) ORDER BY " +
+                TaskContract.TaskEntry.COLUMN_DUE_DATE + " DESC, " +
+                TaskContract.TaskEntry._ID + " DESC LIMIT ";
+
+        // Full-text matches, title matches first, then pending before completed, then by due date
+        String[] qualifiedProjection = new String[taskProjection.length];
+        for (int i = 0; i < taskProjection.length; i++) {
+            qualifiedProjection[i] = "t." + taskProjection[i];
+        }
+        String fts = TaskContract.TaskSearchEntry.TABLE_NAME;
+        String docid = TaskContract.TaskSearchEntry.COLUMN_DOCID;
+        this.searchQuery = "SELECT " + TextUtils.join(", ", qualifiedProjection) +
+                " FROM " + fts + " JOIN " + TaskContract.TaskEntry.TABLE_NAME + " t ON t." +
+                TaskContract.TaskEntry._ID + " = " + fts + "." + docid +
+                " WHERE " + fts + " MATCH ? AND t." + LIVE +
+                " ORDER BY (t." + TaskContract.TaskEntry._ID + " IN (SELECT " + docid + " FROM " + fts +
+                " WHERE " + fts + " MATCH ?)) DESC, t." + TaskContract.TaskEntry.COLUMN_COMPLETED + " ASC, t." +
+                TaskContract.TaskEntry.COLUMN_DUE_DATE + " ASC LIMIT ";
+    }
+
+    /**
+     * @return True if this cache was built for the given, still open, database
+     */
+    boolean isValidFor(SQLiteDatabase other) {
+        return db == other && db.isOpen();
+    }
+
+    boolean hasCreatedAtColumn() {
+        return hasCreatedAtColumn;
+    }
+
+    /**
+     * @return Projection covering every task column present in the schema
+     */
+    String[] getTaskProjection() {
+        return taskProjection;
+    }
+
+    /**
+     * @return SQL selecting tasks of a scope whose due date lies in an inclusive [start, end]
+     *         window; for {@link TaskScope#ALL} bind the window twice
+     */
+    String getDueBetweenQuery(TaskScope scope) {
+        switch (scope) {
+            case ARCHIVED:
+                return archivedDueBetweenQuery;
+            case ALL:
+                return allDueBetweenQuery;
+            default:
+                return dueBetweenQuery;
+        }
+    }
+
+    /**
+     * SQL selecting tasks of a scope with IDs above a bound, in ID order. For
+     * {@link TaskScope#ALL} each table contributes at most limit rows before the
+     * merge, so the sort never grows with the size of either table.
+     *
+     * @return SQL taking the bound once, or twice for {@link TaskScope#ALL}
+     */
+    String getTasksAfterIdQuery(TaskScope scope, int limit) {
+        String idOrder = " ORDER BY " + TaskContract.TaskEntry._ID + " ASC LIMIT " + limit;
+        String hot = selectFromTasks + TaskContract.TaskEntry._ID + " > ? AND " + LIVE + idOrder;
+        String cold = selectFromArchive + TaskContract.TaskArchiveEntry._ID + " > ?" + idOrder;
+        switch (scope) {
+            case ARCHIVED:
+                return cold;
+            case ALL:
+                return "SELECT * FROM (" + hot + ") UNION ALL SELECT * FROM (" + cold + ")" + idOrder;
+            default:
+                return hot;
+        }
+    }
+
+    /**
+     * @return SQL selecting incomplete tasks whose due date lies in an inclusive [start, end] window
+     */
+    String getPendingDueBetweenQuery() {
+        return pendingDueBetweenQuery;
+    }
+
+    /**
+     * @return SQL selecting incomplete tasks due in an inclusive [start, end]
+     *         window that have no ledger entry of a kind for their current due date
+     */
+    String getUndeliveredDueBetweenQuery() {
+        return undeliveredDueBetweenQuery;
+    }
+
+    /**
+     * @return SQL selecting the earliest due time after a bound and the earliest
+     *         reminder time after it; bind the bound, the lead time, then bound + lead time
+     */
+    String getNextReminderQuery() {
+        return nextReminderQuery;
+    }
+
+    /**
+     * @return SQL prefix selecting the first page of tasks; append the page size
+     */
+    String getFirstPageQuery() {
+        return firstPageQuery;
+    }
+
+    /**
+     * @return SQL prefix selecting the page after a (due date, due date, id) key; append the page size
+     */
+    String getNextPageQuery() {
+        return nextPageQuery;
+    }
+
+    /**
+     * @return Projection for list rows: every column except the full description
+     */
+    String[] getSummaryProjection() {
+        return SUMMARY_PROJECTION;
+    }
+
+    /**
+     * @return SQL prefix selecting the first page of task summaries; append the page size
+     */
+    String getFirstSummaryPageQuery() {
+        return firstSummaryPageQuery;
+    }
+
+    /**
+     * @return SQL prefix selecting the summary page after a (due date, due date, id) key;
+     *         append the page size
+     */
+    String getNextSummaryPageQuery() {
+        return nextSummaryPageQuery;
+    }
+
+    /**
+     * @return SQL prefix selecting the summary page before a (due date, due date, id) key,
+     *         nearest row first; append the page size
+     */
+    String getPreviousSummaryPageQuery() {
+        return previousSummaryPageQuery;
+    }
+
+    /**
+     * @return SQL prefix for a full-text search; bind the full match expression and
+     *         the title-only match expression, then append the result limit
+     */
+    String getSearchQuery() {
+        return searchQuery;
+    }
+
+    /**
+     * Compiled INSERT. Bind order: title, description, due date, priority, completed,
+     * and created at when the column exists.
+     */
+    synchronized SQLiteStatement getInsertStatement() {
+        if (insertStatement == null) {
+            String sql = "INSERT INTO " + TaskContract.TaskEntry.TABLE_NAME + " (" +
+                    TaskContract.TaskEntry.COLUMN_TITLE + ", " +
+                    TaskContract.TaskEntry.COLUMN_DESCRIPTION + ", " +
+                    TaskContract.TaskEntry.COLUMN_DUE_DATE + ", " +
+                    TaskContract.TaskEntry.COLUMN_PRIORITY + ", " +
+                    TaskContract.TaskEntry.COLUMN_COMPLETED +
+                    (hasCreatedAtColumn ? ", " + TaskContract.TaskEntry.COLUMN_CREATED_AT + ") VALUES (?, ?, ?, ?, ?, ?)"
+                            : ") VALUES (?, ?, ?, ?, ?)");
+            insertStatement = db.compileStatement(sql);
+        }
+        return insertStatement;
+    }
+
+    /**
+     * Compiled UPDATE by id. Bind order matches the insert statement, followed by the id.
+     */
+    synchronized SQLiteStatement getUpdateStatement() {
+        if (updateStatement == null) {
+            String sql = "UPDATE " + TaskContract.TaskEntry.TABLE_NAME + " SET " +
+                    TaskContract.TaskEntry.COLUMN_TITLE + " = ?, " +
+                    TaskContract.TaskEntry.COLUMN_DESCRIPTION + " = ?, " +
+                    TaskContract.TaskEntry.COLUMN_DUE_DATE + " = ?, " +
+                    TaskContract.TaskEntry.COLUMN_PRIORITY + " = ?, " +
+                    TaskContract.TaskEntry.COLUMN_COMPLETED + " = ?" +
+                    (hasCreatedAtColumn ? ", " + TaskContract.TaskEntry.COLUMN_CREATED_AT + " = ?" : "") +
+                    " WHERE " + TaskContract.TaskEntry._ID + " = ? AND " + LIVE;
+            updateStatement = db.compileStatement(sql);
+        }
+        return updateStatement;
+    }
+
+    /**
+     * Compiled soft delete by id, marking a live task with a tombstone.
+     * Bind order: deleted at, id.
+     */
+    synchronized SQLiteStatement getTombstoneStatement() {
+        if (tombstoneStatement == null) {
+            tombstoneStatement = db.compileStatement("UPDATE " + TaskContract.TaskEntry.TABLE_NAME +
+                    " SET " + TaskContract.TaskEntry.COLUMN_DELETED_AT + " = ?" +
+                    " WHERE " + TaskContract.TaskEntry._ID + " = ? AND " + LIVE);
+        }
+        return tombstoneStatement;
+    }
+
+    /**
+     * Compiled DELETE by id that only removes tombstoned rows, and never the row
+     * holding the highest ID.
+     */
+    synchronized SQLiteStatement getPurgeStatement() {
+        if (purgeStatement == null) {
+            purgeStatement = db.compileStatement("DELETE FROM " + TaskContract.TaskEntry.TABLE_NAME +
+                    " WHERE " + TaskContract.TaskEntry._ID + " = ? AND " +
+                    TaskContract.TaskEntry.COLUMN_DELETED_AT + " IS NOT NULL AND " + BELOW_NEWEST);
+        }
+        return purgeStatement;
+    }
+
+    /**
+     * Compiled UPDATE of the completed flag alone. Bind order: completed, id.
+     */
+    synchronized SQLiteStatement getSetCompletedStatement() {
+        if (setCompletedStatement == null) {
+            setCompletedStatement = db.compileStatement("UPDATE " + TaskContract.TaskEntry.TABLE_NAME +
+                    " SET " + TaskContract.TaskEntry.COLUMN_COMPLETED + " = ?" +
+                    " WHERE " + TaskContract.TaskEntry._ID + " = ? AND " + LIVE);
+        }
+        return setCompletedStatement;
+    }
+
+    /**
+     * Compiled ledger insert that keeps an existing entry. Bind order: task id,
+     * kind, due date, delivered at.
+     */
+    synchronized SQLiteStatement getRecordDeliveryStatement() {
+        if (recordDeliveryStatement == null) {
+            recordDeliveryStatement = db.compileStatement("INSERT OR IGNORE INTO " +
+                    TaskContract.NotificationLedgerEntry.TABLE_NAME + " (" +
+                    TaskContract.NotificationLedgerEntry.COLUMN_TASK_ID + ", " +
+                    TaskContract.NotificationLedgerEntry.COLUMN_KIND + ", " +
+                    TaskContract.NotificationLedgerEntry.COLUMN_DUE_DATE + ", " +
+                    TaskContract.NotificationLedgerEntry.COLUMN_DELIVERED_AT + ") VALUES (?, ?, ?, ?)");
+        }
+        return recordDeliveryStatement;
+    }
+
+    /**
+     * Compiled UPDATE marking a task's delivered, not yet dismissed entries as
+     * dismissed. Bind order: dismissed at, task id.
+     */
+    synchronized SQLiteStatement getRecordDismissalStatement() {
+        if (recordDismissalStatement == null) {
+            recordDismissalStatement = db.compileStatement("UPDATE " +
+                    TaskContract.NotificationLedgerEntry.TABLE_NAME + " SET " +
+                    TaskContract.NotificationLedgerEntry.COLUMN_DISMISSED_AT + " = ?" +
+                    " WHERE " + TaskContract.NotificationLedgerEntry.COLUMN_TASK_ID + " = ? AND " +
+                    TaskContract.NotificationLedgerEntry.COLUMN_DISMISSED_AT + " IS NULL");
+        }
+        return recordDismissalStatement;
+    }
+
+    /**
+     * Release every compiled statement held by this cache
+     */
+    synchronized void close() {
+        if (insertStatement != null) {
+            insertStatement.close();
+            insertStatement = null;
+        }
+        if (updateStatement != null) {
+            updateStatement.close();
+            updateStatement = null;
+        }
+        if (tombstoneStatement != null) {
+            tombstoneStatement.close();
+            tombstoneStatement = null;
+        }
+        if (purgeStatement != null) {
+            purgeStatement.close();
+            purgeStatement = null;
+        }
+        if (setCompletedStatement != null) {
+            setCompletedStatement.close();
+            setCompletedStatement = null;
+        }
+        if (recordDeliveryStatement != null) {
+            recordDeliveryStatement.close();
+            recordDeliveryStatement = null;
+        }
+        if (recordDismissalStatement != null) {
+            recordDismissalStatement.close();
+            recordDismissalStatement = null;
+        }
+    }
+
+    /**
+     * Check if a column exists in a database table
+     *
+     * @param db Database to check
+     * @param tableName Table name to check
+     * @param columnName Column name to check
+     * @return True if column exists, false otherwise
+     */
+    private static boolean hasColumn(SQLiteDatabase db, String tableName, String columnName) {
+        boolean columnExists = false;
+
+        try (Cursor cursor = db.rawQuery("PRAGMA table_info(" + tableName + ")", null)) {
+            if (cursor != null) {
+                int nameColumnIndex = cursor.getColumnIndex("name");
+                while (nameColumnIndex != -1 && cursor.moveToNext()) {
+                    String name = cursor.getString(nameColumnIndex);
+                    if (columnName.equalsIgnoreCase(name)) {
+                        columnExists = true;
+                        break;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error checking if column exists: " + e.getMessage());
+        }
+
+        return columnExists;
+    }
+}
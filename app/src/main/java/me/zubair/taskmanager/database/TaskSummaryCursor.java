@@ -0,0 +1,53 @@
+package me.zubair.taskmanager.database;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+
+import me.zubair.taskmanager.models.TaskSummary;
+
+/**
+ * Cursor over task summary rows that converts a row into a {@link TaskSummary}
+ * only on request. Rows are read through SQLite's cursor window, so only the rows
+ * around the current position are held in memory, whatever the size of the table.
+ */
+public class TaskSummaryCursor extends CursorWrapper {
+    private final int idColumn;
+    private final int titleColumn;
+    private final int descriptionPreviewColumn;
+    private final int dueDateColumn;
+    private final int priorityColumn;
+    private final int completedColumn;
+
+    TaskSummaryCursor(Cursor cursor) {
+        super(cursor);
+        idColumn = cursor.getColumnIndexOrThrow(TaskContract.TaskEntry._ID);
+        titleColumn = cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_TITLE);
+        descriptionPreviewColumn = cursor.getColumnIndexOrThrow(TaskStatementCache.COLUMN_DESCRIPTION_PREVIEW);
+        dueDateColumn = cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_DUE_DATE);
+        priorityColumn = cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_PRIORITY);
+        completedColumn = cursor.getColumnIndexOrThrow(TaskContract.TaskEntry.COLUMN_COMPLETED);
+    }
+
+    /**
+     * @return ID of the task at the current position
+     */
+    public long getTaskId() {
+        return getLong(idColumn);
+    }
+
+    /**
+     * Copy the row at the current position into an existing summary
+     *
+     * @param summary Object to overwrite, typically one owned by a recycled view holder
+     * @return The same summary, for chaining
+     */
+    public TaskSummary fill(TaskSummary summary) {
+        summary.setId(getLong(idColumn));
+        summary.setTitle(getString(titleColumn));
+        summary.setDescriptionPreview(getString(descriptionPreviewColumn));
+        summary.setDueDate(getLong(dueDateColumn));
+        summary.setPriority(getInt(priorityColumn));
+        summary.setCompleted(getInt(completedColumn) == 1);
+        return summary;
+    }
+}
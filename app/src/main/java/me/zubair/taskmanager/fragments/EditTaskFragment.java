@@ -58,7 +58,7 @@ public class EditTaskFragment extends Fragment {
         btnUpdateTask.setText(R.string.update_task);
 
         // Initialize other components
-        taskRepository = new TaskRepository(requireContext());
+        taskRepository = TaskRepository.getInstance(requireContext());
         calendar = Calendar.getInstance();
 
         return view;
@@ -85,13 +85,15 @@ public class EditTaskFragment extends Fragment {
     }
 
     private void loadTask() {
-        currentTask = taskRepository.getTaskById(taskId);
-        if (currentTask != null) {
-            populateTaskData();
-        } else {
-            Toast.makeText(requireContext(), R.string.task_not_found, Toast.LENGTH_SHORT).show();
-            navigateBack();
-        }
+        taskRepository.getTaskByIdAsync(taskId, task -> {
+            currentTask = task;
+            if (currentTask != null) {
+                populateTaskData();
+            } else {
+                Toast.makeText(requireContext(), R.string.task_not_found, Toast.LENGTH_SHORT).show();
+                navigateBack();
+            }
+        }).bindTo(getViewLifecycleOwner());
     }
 
     private void populateTaskData() {
@@ -159,6 +161,11 @@ public class EditTaskFragment extends Fragment {
     }
 
     private void updateTask() {
+        if (currentTask == null) {
+            // Still loading
+            return;
+        }
+
         String title = etTitle.getText().toString().trim();
         String description = etDescription.getText().toString().trim();
         
@@ -186,14 +193,15 @@ public class EditTaskFragment extends Fragment {
         currentTask.setDueDate(calendar.getTimeInMillis());
         currentTask.setPriority(priority);
 
-        // Save to database
-        int rowsAffected = taskRepository.updateTask(currentTask);
-        if (rowsAffected > 0) {
-            Toast.makeText(requireContext(), R.string.task_updated_success, Toast.LENGTH_SHORT).show();
-            navigateToTaskDetails();
-        } else {
-            Toast.makeText(requireContext(), R.string.failed_update_task, Toast.LENGTH_SHORT).show();
-        }
+        // Save a copy, so a second tap cannot change the task while the write reads it
+        taskRepository.updateTaskAsync(new Task(currentTask), rowsAffected -> {
+            if (rowsAffected > 0) {
+                Toast.makeText(requireContext(), R.string.task_updated_success, Toast.LENGTH_SHORT).show();
+                navigateToTaskDetails();
+            } else {
+                Toast.makeText(requireContext(), R.string.failed_update_task, Toast.LENGTH_SHORT).show();
+            }
+        }).bindTo(getViewLifecycleOwner());
     }
 
     private void navigateToTaskDetails() {
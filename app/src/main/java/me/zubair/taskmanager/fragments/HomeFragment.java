@@ -15,13 +15,13 @@ import androidx.fragment.app.Fragment;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 import java.util.Random;
 
 import me.zubair.taskmanager.R;
+import me.zubair.taskmanager.TaskManagerApplication;
 import me.zubair.taskmanager.database.TaskRepository;
-import me.zubair.taskmanager.models.Task;
+import me.zubair.taskmanager.utils.QuoteApiClient;
 
 public class HomeFragment extends Fragment {
 
@@ -58,13 +58,11 @@ public class HomeFragment extends Fragment {
         btnViewTasks = view.findViewById(R.id.button_view_tasks);
 
         // Initialize repository
-        taskRepository = new TaskRepository(requireContext());
+        taskRepository = TaskRepository.getInstance(requireContext());
 
-        // Set random motivational quote
+        // Show a bundled quote right away and look for a fresh one once the app is on screen
         setRandomQuote();
-
-        // Set task count
-        updateTaskCount();
+        TaskManagerApplication.get(requireContext()).runAfterFirstDraw(this::fetchQuote);
 
         // Setup clock updates
         setupClock();
@@ -106,21 +104,42 @@ public class HomeFragment extends Fragment {
         tvQuoteAuthor.setText("- " + quotes[randomIndex][1]);
     }
 
+    private void fetchQuote() {
+        if (getView() == null) {
+            return;
+        }
+        TaskManagerApplication.get(requireContext()).getQuoteApiClient().fetchRandomQuote(
+                new QuoteApiClient.QuoteCallback() {
+                    @Override
+                    public void onQuoteFetched(String quote, String author) {
+                        if (getView() != null) {
+                            tvQuote.setText(quote);
+                            tvQuoteAuthor.setText("- " + author);
+                        }
+                    }
+
+                    @Override
+                    public void onError(String errorMessage) {
+                        // Keep the bundled quote
+                    }
+                });
+    }
+
     private void updateTaskCount() {
-        List<Task> tasks = taskRepository.getAllTasks();
-        int pendingTasks = 0;
-        
-        for (Task task : tasks) {
-            if (!task.isCompleted()) {
-                pendingTasks++;
+        taskRepository.getStatisticsAsync(statistics -> {
+            int pendingTasks = statistics.getPendingCount();
+
+            String taskText = pendingTasks == 1
+                ? "You have 1 pending task"
+                : "You have " + pendingTasks + " pending tasks";
+
+            tvTaskCount.setText(taskText);
+
+            // The home screen is usable once the count is shown; report it for the cold start only
+            if (TaskManagerApplication.get(requireContext()).onHomeInteractive()) {
+                requireActivity().reportFullyDrawn();
             }
-        }
-        
-        String taskText = pendingTasks == 1 
-            ? "You have 1 pending task" 
-            : "You have " + pendingTasks + " pending tasks";
-        
-        tvTaskCount.setText(taskText);
+        }).bindTo(getViewLifecycleOwner());
     }
 
     private void navigateToTaskList() {
@@ -131,10 +150,18 @@ public class HomeFragment extends Fragment {
                 .commit();
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        updateTaskCount();
+
+        // Recount only when tasks actually change
+        taskRepository.observeChanges(getViewLifecycleOwner(), event -> updateTaskCount());
+    }
+
     @Override
     public void onResume() {
         super.onResume();
-        updateTaskCount();
         updateDateTime();
         timeHandler.post(timeRunnable);
     }
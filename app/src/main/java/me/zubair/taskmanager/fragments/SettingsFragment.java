@@ -1,30 +1,85 @@
 package me.zubair.taskmanager.fragments;
 
+import android.app.Activity;
+import android.content.ContentResolver;
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.Switch;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
 import me.zubair.taskmanager.R;
+import me.zubair.taskmanager.TaskManagerApplication;
+import me.zubair.taskmanager.database.QueryMetrics;
+import me.zubair.taskmanager.database.TaskRepository;
 import me.zubair.taskmanager.preferences.UserPreferencesManager;
+import me.zubair.taskmanager.services.AlarmAudioEngine;
 import me.zubair.taskmanager.services.NotificationService;
+import me.zubair.taskmanager.services.TaskAlarmScheduler;
+import me.zubair.taskmanager.sync.TaskSyncClient;
+import me.zubair.taskmanager.utils.StartupTracer;
+import me.zubair.taskmanager.utils.TaskExporter;
+import me.zubair.taskmanager.utils.TaskImporter;
+import me.zubair.taskmanager.utils.TaskTransfer;
+import me.zubair.taskmanager.utils.TaskWorkloadGenerator;
 
 /**
  * Fragment for app settings
  */
 public class SettingsFragment extends Fragment {
 
+    private static final int REQUEST_CODE_EXPORT = 201;
+    private static final int REQUEST_CODE_IMPORT = 202;
+    private static final int REQUEST_CODE_EXPORT_QUERY_LOG = 203;
+    // Operations listed in the diagnostics summary, slowest p95 first
+    private static final int DIAGNOSTICS_SUMMARY_ROWS = 8;
+    private static final String STATE_EXPORT_FORMAT = "export_format";
+
     private Switch switchNotifications;
     private Button btnClearData;
+    private Button btnExportTasks;
+    private Button btnImportTasks;
+    private Button btnCancelTransfer;
+    private TextView tvTransferStatus;
+    private EditText etArchiveDays;
+    private EditText etSyncUrl;
+    private Button btnSyncNow;
+    private TextView tvSyncStatus;
+    private TextView tvQueryMetrics;
+    private Button btnGenerateWorkload;
     private UserPreferencesManager preferencesManager;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Format chosen for the export whose destination is being picked
+    private TaskTransfer.Format exportFormat = TaskTransfer.Format.JSON;
+    private TaskTransfer activeTransfer;
 
     @Nullable
     @Override
@@ -34,6 +89,20 @@ public class SettingsFragment extends Fragment {
         // Initialize views
         switchNotifications = view.findViewById(R.id.switch_notifications);
         btnClearData = view.findViewById(R.id.btn_clear_data);
+        btnExportTasks = view.findViewById(R.id.btn_export_tasks);
+        btnImportTasks = view.findViewById(R.id.btn_import_tasks);
+        btnCancelTransfer = view.findViewById(R.id.btn_cancel_transfer);
+        tvTransferStatus = view.findViewById(R.id.tv_transfer_status);
+        etArchiveDays = view.findViewById(R.id.et_archive_days);
+        etSyncUrl = view.findViewById(R.id.et_sync_url);
+        btnSyncNow = view.findViewById(R.id.btn_sync_now);
+        tvSyncStatus = view.findViewById(R.id.tv_sync_status);
+        tvQueryMetrics = view.findViewById(R.id.tv_query_metrics);
+
+        if (savedInstanceState != null) {
+            exportFormat = TaskTransfer.Format.valueOf(
+                    savedInstanceState.getString(STATE_EXPORT_FORMAT, TaskTransfer.Format.JSON.name()));
+        }
 
         // Initialize preferences manager
         preferencesManager = new UserPreferencesManager(requireContext());
@@ -63,8 +132,9 @@ public class SettingsFragment extends Fragment {
 
                 Toast.makeText(requireContext(), "Notifications enabled", Toast.LENGTH_SHORT).show();
             } else {
-                // Stop notification service
+                // Stop notification service and its alarm
                 requireContext().stopService(new Intent(requireContext(), NotificationService.class));
+                TaskAlarmScheduler.cancel(requireContext());
 
                 Toast.makeText(requireContext(), "Notifications disabled", Toast.LENGTH_SHORT).show();
             }
@@ -72,6 +142,55 @@ public class SettingsFragment extends Fragment {
 
         // Handle clear data button click
         btnClearData.setOnClickListener(v -> showClearDataConfirmation());
+
+        // Handle task import and export
+        btnExportTasks.setOnClickListener(v -> showExportFormatChooser());
+        btnImportTasks.setOnClickListener(v -> pickImportFile());
+        btnCancelTransfer.setOnClickListener(v -> {
+            if (activeTransfer != null) {
+                activeTransfer.cancel();
+            }
+        });
+
+        // Handle the archive age; TaskArchiveJob reads it on its next pass
+        etArchiveDays.setText(String.valueOf(preferencesManager.getArchiveAfterDays()));
+        etArchiveDays.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                try {
+                    preferencesManager.setArchiveAfterDays(Integer.parseInt(s.toString()));
+                } catch (NumberFormatException e) {
+                    // Leave the saved age alone while the field is empty or out of range
+                }
+            }
+        });
+
+        // Handle sync with the configured server
+        etSyncUrl.setText(preferencesManager.getSyncServerUrl());
+        btnSyncNow.setOnClickListener(v -> syncNow());
+
+        // Query timings are only surfaced in debuggable builds
+        if ((requireContext().getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            view.findViewById(R.id.card_diagnostics).setVisibility(View.VISIBLE);
+            view.findViewById(R.id.btn_export_query_log).setOnClickListener(v -> pickQueryLogFile());
+            view.findViewById(R.id.btn_reset_query_log).setOnClickListener(v -> {
+                TaskRepository.getInstance(requireContext()).getMetrics().reset();
+                showQueryMetrics();
+            });
+            EditText etWorkloadSeed = view.findViewById(R.id.et_workload_seed);
+            btnGenerateWorkload = view.findViewById(R.id.btn_generate_workload);
+            btnGenerateWorkload.setOnClickListener(v -> showWorkloadChooser(etWorkloadSeed.getText().toString()));
+            showQueryMetrics();
+            showStartupLog(view.findViewById(R.id.tv_startup_log));
+        }
         
         // Remove back button handling as it's now handled by MainActivity
     }
@@ -89,10 +208,325 @@ public class SettingsFragment extends Fragment {
 
                     // Reset UI
                     switchNotifications.setChecked(preferencesManager.areNotificationsEnabled());
+                    etArchiveDays.setText(String.valueOf(preferencesManager.getArchiveAfterDays()));
+                    etSyncUrl.setText(preferencesManager.getSyncServerUrl());
 
                     Toast.makeText(requireContext(), "App data cleared", Toast.LENGTH_SHORT).show();
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
     }
+
+    @Override
+    public void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_EXPORT_FORMAT, exportFormat.name());
+    }
+
+    /**
+     * Ask which format to export, then let the user pick the destination file
+     */
+    private void showExportFormatChooser() {
+        TaskTransfer.Format[] formats = TaskTransfer.Format.values();
+        CharSequence[] names = new CharSequence[formats.length];
+        for (int i = 0; i < formats.length; i++) {
+            names[i] = formats[i].name();
+        }
+
+        new android.app.AlertDialog.Builder(requireContext())
+                .setTitle("Export Format")
+                .setItems(names, (dialog, which) -> {
+                    exportFormat = formats[which];
+                    Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+                    intent.addCategory(Intent.CATEGORY_OPENABLE);
+                    intent.setType(exportFormat.mimeType);
+                    intent.putExtra(Intent.EXTRA_TITLE, "tasks." + exportFormat.extension);
+                    startActivityForResult(intent, REQUEST_CODE_EXPORT);
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    /**
+     * Let the user pick a JSON or CSV file to import
+     */
+    private void pickImportFile() {
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("*/*");
+        intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[] {
+                TaskTransfer.Format.JSON.mimeType,
+                TaskTransfer.Format.CSV.mimeType,
+                "text/comma-separated-values",
+                "text/plain"
+        });
+        startActivityForResult(intent, REQUEST_CODE_IMPORT);
+    }
+
+    @Override
+    public void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+
+        if (resultCode != Activity.RESULT_OK || data == null || data.getData() == null) {
+            return;
+        }
+
+        if (requestCode == REQUEST_CODE_EXPORT) {
+            exportTasks(data.getData(), exportFormat);
+        } else if (requestCode == REQUEST_CODE_IMPORT) {
+            importTasks(data.getData());
+        } else if (requestCode == REQUEST_CODE_EXPORT_QUERY_LOG) {
+            exportQueryLog(data.getData());
+        }
+    }
+
+    private void exportTasks(Uri uri, TaskTransfer.Format format) {
+        ContentResolver resolver = requireContext().getContentResolver();
+        TaskRepository repository = TaskRepository.getInstance(requireContext());
+        TaskExporter exporter = new TaskExporter(repository);
+        startTransfer(exporter, "Exporting tasks...");
+
+        repository.submit(() -> {
+            try (OutputStream out = resolver.openOutputStream(uri)) {
+                if (out == null) {
+                    throw new IOException("Cannot open destination file");
+                }
+                return exporter.export(out, format, done -> postTransferProgress("Exported", done));
+            }
+        }, new TaskRepository.Callback<Integer>() {
+            @Override
+            public void onSuccess(Integer count) {
+                finishTransfer(exporter, exporter.isCancelled()
+                        ? "Export cancelled after " + count + " tasks; the file is incomplete"
+                        : "Exported " + count + " tasks");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                finishTransfer(exporter, "Export failed: " + e.getMessage());
+            }
+        }).bindTo(getViewLifecycleOwner());
+    }
+
+    private void importTasks(Uri uri) {
+        ContentResolver resolver = requireContext().getContentResolver();
+        TaskRepository repository = TaskRepository.getInstance(requireContext());
+        TaskImporter importer = new TaskImporter(repository);
+        TaskTransfer.Format format = TaskTransfer.Format.detect(resolver.getType(uri), uri.getLastPathSegment());
+        startTransfer(importer, "Importing tasks...");
+
+        repository.submit(() -> {
+            try (InputStream in = resolver.openInputStream(uri)) {
+                if (in == null) {
+                    throw new IOException("Cannot open file");
+                }
+                return importer.importTasks(in, format, done -> postTransferProgress("Imported", done));
+            }
+        }, new TaskRepository.Callback<Integer>() {
+            @Override
+            public void onSuccess(Integer count) {
+                finishTransfer(importer, importer.isCancelled()
+                        ? "Import cancelled; " + count + " tasks were added"
+                        : "Imported " + count + " tasks");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                finishTransfer(importer, "Import failed: " + e.getMessage());
+            }
+        }).bindTo(getViewLifecycleOwner());
+    }
+
+    /**
+     * Save the entered server address and exchange changes with it
+     */
+    private void syncNow() {
+        String url = etSyncUrl.getText().toString().trim();
+        preferencesManager.setSyncServerUrl(url);
+        if (url.isEmpty()) {
+            Toast.makeText(requireContext(), "Enter the sync server address first", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        TaskSyncClient syncClient = new TaskSyncClient(TaskRepository.getInstance(requireContext()), url);
+        btnSyncNow.setEnabled(false);
+        tvSyncStatus.setVisibility(View.VISIBLE);
+        tvSyncStatus.setText("Syncing...");
+
+        syncClient.syncAsync(new TaskSyncClient.SyncCallback() {
+            @Override
+            public void onSyncComplete(TaskSyncClient.SyncResult result) {
+                syncClient.shutdown();
+                if (getView() != null) {
+                    btnSyncNow.setEnabled(true);
+                    tvSyncStatus.setText(String.format(Locale.getDefault(),
+                            "Sent %d changes, received %d", result.pushed, result.pulled));
+                }
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                syncClient.shutdown();
+                if (getView() != null) {
+                    btnSyncNow.setEnabled(true);
+                    tvSyncStatus.setText("Sync failed: " + errorMessage);
+                }
+            }
+        });
+    }
+
+    /**
+     * Summarize the slowest repository operations recorded since launch
+     */
+    private void showQueryMetrics() {
+        QueryMetrics metrics = TaskRepository.getInstance(requireContext()).getMetrics();
+        List<QueryMetrics.OperationStats> stats = metrics.getOperationStats();
+        Collections.sort(stats, (a, b) -> Long.compare(b.getPercentileMicros(95), a.getPercentileMicros(95)));
+
+        StringBuilder summary = new StringBuilder();
+        for (int i = 0; i < stats.size() && i < DIAGNOSTICS_SUMMARY_ROWS; i++) {
+            QueryMetrics.OperationStats operation = stats.get(i);
+            summary.append(String.format(Locale.US, "%s: n=%d p50=%dus p95=%dus main=%d%n",
+                    operation.name, operation.getCount(), operation.getPercentileMicros(50),
+                    operation.getPercentileMicros(95), operation.getMainThreadCount()));
+        }
+        summary.append(String.format(Locale.US, "Slow queries logged: %d", metrics.getSlowQueries().size()));
+        long playerMillis = AlarmAudioEngine.getInstance(requireContext()).getPlayerCreationMillis();
+        if (playerMillis >= 0) {
+            summary.append(String.format(Locale.US, "%nAlarm player created in %d ms", playerMillis));
+        }
+        tvQueryMetrics.setText(summary);
+    }
+
+    /**
+     * Show the phase timings of the last few cold starts, newest first
+     */
+    private void showStartupLog(TextView tvStartupLog) {
+        File logFile = TaskManagerApplication.get(requireContext()).getStartupLogFile();
+        TaskRepository.getInstance(requireContext()).submit(() -> StartupTracer.readLog(logFile),
+                new TaskRepository.Callback<List<String>>() {
+                    @Override
+                    public void onSuccess(List<String> startups) {
+                        Collections.reverse(startups);
+                        tvStartupLog.setText(startups.isEmpty()
+                                ? "No cold start recorded yet"
+                                : TextUtils.join("\n", startups));
+                    }
+                }).bindTo(getViewLifecycleOwner());
+    }
+
+    /**
+     * Let the developer pick a dataset size, then generate it from the given seed
+     */
+    private void showWorkloadChooser(String seedText) {
+        long seed;
+        try {
+            seed = Long.parseLong(seedText.trim());
+        } catch (NumberFormatException e) {
+            Toast.makeText(requireContext(), "Enter a numeric seed", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        TaskWorkloadGenerator.Profile[] profiles = {
+                TaskWorkloadGenerator.Profile.light(),
+                TaskWorkloadGenerator.Profile.heavy(),
+                TaskWorkloadGenerator.Profile.extreme()
+        };
+        CharSequence[] names = { "Light (1,000 tasks)", "Heavy (10,000 tasks)", "Extreme (100,000 tasks)" };
+
+        new android.app.AlertDialog.Builder(requireContext())
+                .setTitle("Generate Tasks")
+                .setItems(names, (dialog, which) -> generateWorkload(profiles[which].setSeed(seed)))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void generateWorkload(TaskWorkloadGenerator.Profile profile) {
+        TaskRepository repository = TaskRepository.getInstance(requireContext());
+        TaskWorkloadGenerator generator = new TaskWorkloadGenerator(requireContext(), repository, profile);
+        startTransfer(generator, "Generating tasks...");
+
+        repository.submit(() -> generator.generate(done -> postTransferProgress("Generated", done)),
+                new TaskRepository.Callback<Integer>() {
+                    @Override
+                    public void onSuccess(Integer count) {
+                        finishTransfer(generator, "Generated " + count + " tasks");
+                        showQueryMetrics();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        finishTransfer(generator, "Generation failed: " + e.getMessage());
+                    }
+                }).bindTo(getViewLifecycleOwner());
+    }
+
+    private void pickQueryLogFile() {
+        Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("application/json");
+        intent.putExtra(Intent.EXTRA_TITLE, "query_metrics.json");
+        startActivityForResult(intent, REQUEST_CODE_EXPORT_QUERY_LOG);
+    }
+
+    private void exportQueryLog(Uri uri) {
+        ContentResolver resolver = requireContext().getContentResolver();
+        TaskRepository repository = TaskRepository.getInstance(requireContext());
+
+        repository.submit(() -> {
+            try (OutputStream out = resolver.openOutputStream(uri)) {
+                if (out == null) {
+                    throw new IOException("Cannot open destination file");
+                }
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                repository.getMetrics().writeJson(writer);
+                return null;
+            }
+        }, new TaskRepository.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                Toast.makeText(requireContext(), "Query log exported", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(requireContext(), "Export failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        }).bindTo(getViewLifecycleOwner());
+    }
+
+    private void startTransfer(TaskTransfer transfer, String status) {
+        activeTransfer = transfer;
+        btnExportTasks.setEnabled(false);
+        btnImportTasks.setEnabled(false);
+        if (btnGenerateWorkload != null) {
+            btnGenerateWorkload.setEnabled(false);
+        }
+        btnCancelTransfer.setVisibility(View.VISIBLE);
+        tvTransferStatus.setVisibility(View.VISIBLE);
+        tvTransferStatus.setText(status);
+    }
+
+    // Called on the transfer thread after each batch
+    private void postTransferProgress(String verb, int done) {
+        mainHandler.post(() -> {
+            if (getView() != null) {
+                tvTransferStatus.setText(String.format(Locale.getDefault(), "%s %,d tasks...", verb, done));
+            }
+        });
+    }
+
+    private void finishTransfer(TaskTransfer transfer, String message) {
+        if (activeTransfer == transfer) {
+            activeTransfer = null;
+        }
+        btnExportTasks.setEnabled(true);
+        btnImportTasks.setEnabled(true);
+        if (btnGenerateWorkload != null) {
+            btnGenerateWorkload.setEnabled(true);
+        }
+        btnCancelTransfer.setVisibility(View.GONE);
+        tvTransferStatus.setText(message);
+        Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
+    }
 }
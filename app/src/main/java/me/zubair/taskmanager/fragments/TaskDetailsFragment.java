@@ -65,7 +65,7 @@ public class TaskDetailsFragment extends Fragment {
         btnViewFiles = view.findViewById(R.id.btn_view_files);
 
         // Initialize repository and helper
-        taskRepository = new TaskRepository(requireContext());
+        taskRepository = TaskRepository.getInstance(requireContext());
         fileHelper = new FileHelper();
 
         return view;
@@ -110,13 +110,15 @@ public class TaskDetailsFragment extends Fragment {
      * Load task details from the database
      */
     private void loadTask() {
-        task = taskRepository.getTaskById(taskId);
-        if (task != null) {
-            displayTaskDetails();
-        } else {
-            Toast.makeText(requireContext(), "Task not found", Toast.LENGTH_SHORT).show();
-            requireActivity().getSupportFragmentManager().popBackStack();
-        }
+        taskRepository.getTaskByIdAsync(taskId, loadedTask -> {
+            task = loadedTask;
+            if (task != null) {
+                displayTaskDetails();
+            } else {
+                Toast.makeText(requireContext(), "Task not found", Toast.LENGTH_SHORT).show();
+                requireActivity().getSupportFragmentManager().popBackStack();
+            }
+        }).bindTo(getViewLifecycleOwner());
     }
 
     /**
@@ -172,16 +174,23 @@ public class TaskDetailsFragment extends Fragment {
      * Toggle task completion status
      */
     private void toggleTaskCompletion() {
-        task.setCompleted(!task.isCompleted());
-        int rowsAffected = taskRepository.updateTask(task);
-
-        if (rowsAffected > 0) {
-            displayTaskDetails();
-            String message = task.isCompleted() ? "Task marked as complete" : "Task marked as incomplete";
-            Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
-        } else {
-            Toast.makeText(requireContext(), "Failed to update task", Toast.LENGTH_SHORT).show();
+        if (task == null) {
+            // Still loading
+            return;
         }
+
+        // Only the flag is written, so the background thread never reads the task the UI holds
+        boolean completed = !task.isCompleted();
+        taskRepository.setTaskCompletedAsync(taskId, completed, rowsAffected -> {
+            if (rowsAffected > 0) {
+                task.setCompleted(completed);
+                displayTaskDetails();
+                String message = completed ? "Task marked as complete" : "Task marked as incomplete";
+                Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(requireContext(), "Failed to update task", Toast.LENGTH_SHORT).show();
+            }
+        }).bindTo(getViewLifecycleOwner());
     }
 
     /**
@@ -24,7 +24,7 @@ public class TaskDialogFragment extends DialogFragment {
     @NonNull
     @Override
     public Dialog onCreateDialog(@Nullable Bundle savedInstanceState) {
-        taskRepository = new TaskRepository(requireContext());
+        taskRepository = TaskRepository.getInstance(requireContext());
         
         AlertDialog.Builder builder = new AlertDialog.Builder(requireContext());
         LayoutInflater inflater = requireActivity().getLayoutInflater();
@@ -53,17 +53,15 @@ public class TaskDialogFragment extends DialogFragment {
             newTask.setDescription(description);
             newTask.setCreatedAt(System.currentTimeMillis());
             
-            long result = taskRepository.insertTask(newTask);
-            if (result > 0) {
-                Toast.makeText(getContext(), "Task added successfully", Toast.LENGTH_SHORT).show();
-                dialog.dismiss();
-                // Refresh the task list
-                if (getParentFragment() instanceof TaskListFragment) {
-                    ((TaskListFragment) getParentFragment()).onResume();
+            taskRepository.addTaskAsync(newTask, result -> {
+                if (result > 0) {
+                    Toast.makeText(getContext(), "Task added successfully", Toast.LENGTH_SHORT).show();
+                    // The task list picks up the new task from the repository's change event
+                    dialog.dismiss();
+                } else {
+                    Toast.makeText(getContext(), "Failed to add task", Toast.LENGTH_SHORT).show();
                 }
-            } else {
-                Toast.makeText(getContext(), "Failed to add task", Toast.LENGTH_SHORT).show();
-            }
+            }).bindTo(this);
         });
         
         btnCancel.setOnClickListener(v -> dialog.dismiss());
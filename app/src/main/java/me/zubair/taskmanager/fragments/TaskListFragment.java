@@ -16,20 +16,34 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import me.zubair.taskmanager.R;
 import me.zubair.taskmanager.adapters.TaskAdapter;
+import me.zubair.taskmanager.database.RepositoryCall;
+import me.zubair.taskmanager.database.TaskChangeEvent;
 import me.zubair.taskmanager.database.TaskRepository;
-import me.zubair.taskmanager.models.Task;
-import me.zubair.taskmanager.utils.FileHelper;
+import me.zubair.taskmanager.models.TaskSummary;
 
 public class TaskListFragment extends Fragment implements TaskAdapter.OnTaskClickListener {
 
+    private static final int PAGE_SIZE = 50;
+    // Rows kept in memory; pages scrolled further away are dropped and refetched on return
+    private static final int MAX_LOADED_TASKS = PAGE_SIZE * 5;
+    // Events touching more tasks than this reread the list instead of fetching each row
+    private static final int BULK_CHANGE_SIZE = PAGE_SIZE;
+
     private RecyclerView recyclerView;
     private TaskAdapter taskAdapter;
     private TaskRepository taskRepository;
-    private FileHelper fileHelper;
+    private boolean hasMoreBefore;
+    private boolean hasMoreAfter;
+    private RepositoryCall<List<TaskSummary>> pendingLoad;
+    // Newest change event per task whose row is still being fetched
+    private final Map<Long, Long> latestChanges = new HashMap<>();
+    private long changeCount;
 
     @Nullable
     @Override
@@ -41,10 +55,28 @@ public class TaskListFragment extends Fragment implements TaskAdapter.OnTaskClic
         FloatingActionButton fabAddTask = view.findViewById(R.id.fab_add_task);
 
         // Setup RecyclerView
-        recyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
-        taskRepository = new TaskRepository(requireContext());
-        fileHelper = new FileHelper(); // Fixed constructor call
-        loadTasks();
+        LinearLayoutManager layoutManager = new LinearLayoutManager(requireContext());
+        recyclerView.setLayoutManager(layoutManager);
+        taskAdapter = new TaskAdapter(requireContext(), this);
+        recyclerView.setAdapter(taskAdapter);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                // Fetch the neighbouring page once the user is within half a page of either end
+                if (pendingLoad != null) {
+                    return;
+                }
+                if (dy < 0) {
+                    if (hasMoreBefore && layoutManager.findFirstVisibleItemPosition() <= PAGE_SIZE / 2) {
+                        loadPreviousPage();
+                    }
+                } else if (hasMoreAfter
+                        && layoutManager.findLastVisibleItemPosition() >= taskAdapter.getItemCount() - PAGE_SIZE / 2) {
+                    loadNextPage();
+                }
+            }
+        });
+        taskRepository = TaskRepository.getInstance(requireContext());
 
         // Set up FAB click listener
         fabAddTask.setOnClickListener(v -> showAddTaskDialog());
@@ -53,16 +85,115 @@ public class TaskListFragment extends Fragment implements TaskAdapter.OnTaskClic
     }
 
     @Override
-    public void onResume() {
-        super.onResume();
-        // Refresh the task list when returning to this fragment
-        loadTasks();
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        loadTasks(null, PAGE_SIZE);
+
+        // Apply changes as they are committed instead of reloading on every resume
+        taskRepository.observeChanges(getViewLifecycleOwner(), this::onTasksChanged);
     }
 
-    private void loadTasks() {
-        List<Task> tasks = taskRepository.getAllTasks();
-        taskAdapter = new TaskAdapter(requireContext(), tasks, this);
-        recyclerView.setAdapter(taskAdapter);
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        taskAdapter = null;
+        // Fetches still running were cancelled with the view
+        latestChanges.clear();
+    }
+
+    // Load as many rows as asked for after a key, or from the top, and replace what is shown
+    private void loadTasks(TaskSummary after, int count) {
+        if (pendingLoad != null) {
+            pendingLoad.cancel();
+        }
+        pendingLoad = taskRepository.getTaskSummariesPageAsync(after, count, tasks -> {
+            pendingLoad = null;
+            if (tasks.isEmpty() && after != null) {
+                // Everything from the key on is gone
+                loadTasks(null, count);
+                return;
+            }
+            hasMoreBefore = after != null;
+            hasMoreAfter = tasks.size() == count;
+            taskAdapter.setTasks(tasks);
+        }).bindTo(getViewLifecycleOwner());
+    }
+
+    private void loadNextPage() {
+        pendingLoad = taskRepository.getTaskSummariesPageAsync(taskAdapter.getLastTask(), PAGE_SIZE, tasks -> {
+            pendingLoad = null;
+            hasMoreAfter = tasks.size() == PAGE_SIZE;
+            taskAdapter.appendTasks(tasks);
+            int excess = taskAdapter.getItemCount() - MAX_LOADED_TASKS;
+            if (excess > 0) {
+                taskAdapter.dropFirst(excess);
+                hasMoreBefore = true;
+            }
+        }).bindTo(getViewLifecycleOwner());
+    }
+
+    private void loadPreviousPage() {
+        pendingLoad = taskRepository.getTaskSummariesPageBeforeAsync(taskAdapter.getFirstTask(), PAGE_SIZE, tasks -> {
+            pendingLoad = null;
+            hasMoreBefore = tasks.size() == PAGE_SIZE;
+            taskAdapter.prependTasks(tasks);
+            int excess = taskAdapter.getItemCount() - MAX_LOADED_TASKS;
+            if (excess > 0) {
+                taskAdapter.dropLast(excess);
+                hasMoreAfter = true;
+            }
+        }).bindTo(getViewLifecycleOwner());
+    }
+
+    private void onTasksChanged(TaskChangeEvent event) {
+        long[] taskIds = event.getTaskIds();
+        if (taskIds.length > BULK_CHANGE_SIZE) {
+            // Imports and bulk edits: reread the window from its first row, so the list keeps its place
+            TaskSummary first = taskAdapter.getFirstTask();
+            TaskSummary after = null;
+            if (hasMoreBefore && first != null) {
+                // Key just before the first row, so that row is read again too
+                after = new TaskSummary();
+                after.setDueDate(first.getDueDate());
+                after.setId(first.getId() - 1);
+            }
+            loadTasks(after, Math.max(PAGE_SIZE, taskAdapter.getItemCount()));
+            return;
+        }
+
+        if (event.getType() == TaskChangeEvent.Type.DELETED) {
+            for (long taskId : taskIds) {
+                latestChanges.remove(taskId);
+                taskAdapter.removeTask(taskId);
+            }
+            return;
+        }
+
+        // Inserted or updated: fetch just those rows and place them
+        long change = ++changeCount;
+        for (long taskId : taskIds) {
+            latestChanges.put(taskId, change);
+        }
+        taskRepository.getTaskSummariesByIdsAsync(taskIds, tasks -> {
+            Map<Long, TaskSummary> found = new HashMap<>();
+            for (TaskSummary task : tasks) {
+                found.put(task.getId(), task);
+            }
+            for (long taskId : taskIds) {
+                // A later change to the same task has its own fetch, which wins
+                Long latest = latestChanges.get(taskId);
+                if (latest == null || latest != change) {
+                    continue;
+                }
+                latestChanges.remove(taskId);
+                TaskSummary task = found.get(taskId);
+                if (task != null) {
+                    taskAdapter.upsertTask(task, !hasMoreBefore, !hasMoreAfter);
+                } else {
+                    taskAdapter.removeTask(taskId);
+                }
+            }
+        }).bindTo(getViewLifecycleOwner());
     }
 
     private void showAddTaskDialog() {
@@ -72,7 +203,7 @@ public class TaskListFragment extends Fragment implements TaskAdapter.OnTaskClic
     }
 
     @Override
-    public void onTaskClick(Task task) {
+    public void onTaskClick(TaskSummary task) {
         // Navigate to task details fragment
         TaskDetailsFragment detailsFragment = new TaskDetailsFragment();
         
@@ -89,21 +220,23 @@ public class TaskListFragment extends Fragment implements TaskAdapter.OnTaskClic
     }
 
     @Override
-    public void onTaskLongClick(Task task, View view) {
+    public void onTaskLongClick(TaskSummary task, View view) {
         showTaskOptionsMenu(task, view);
     }
 
-    private void showTaskOptionsMenu(final Task task, View view) {
+    private void showTaskOptionsMenu(final TaskSummary task, View view) {
+        // The summary belongs to a recycled row, so keep only the ID
+        final long taskId = task.getId();
         PopupMenu popup = new PopupMenu(requireContext(), view);
         popup.inflate(R.menu.menu_task_options);
         
         popup.setOnMenuItemClickListener(item -> {
             int itemId = item.getItemId();
             if (itemId == R.id.action_edit) {
-                navigateToEditTask(task.getId());
+                navigateToEditTask(taskId);
                 return true;
             } else if (itemId == R.id.action_delete) {
-                deleteTask(task);
+                deleteTask(taskId);
                 return true;
             }
             return false;
@@ -124,23 +257,22 @@ public class TaskListFragment extends Fragment implements TaskAdapter.OnTaskClic
                 .commit();
     }
 
-    private void deleteTask(Task task) {
-        try {
-            // Delete associated files first
-            if (fileHelper != null) {
-                fileHelper.deleteTaskFiles(requireContext(), task.getId()); // Fixed method call
+    private void deleteTask(long taskId) {
+        // Only marks the task deleted; its row and files are reclaimed by TaskCompactionJob
+        taskRepository.deleteTaskAsync(taskId, new TaskRepository.Callback<Integer>() {
+            @Override
+            public void onSuccess(Integer result) {
+                if (result > 0) {
+                    Toast.makeText(requireContext(), "Task deleted", Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(requireContext(), "Error deleting task", Toast.LENGTH_SHORT).show();
+                }
             }
-            
-            // Then delete the task from database
-            int result = taskRepository.deleteTask(task.getId());
-            if (result > 0) {
-                Toast.makeText(requireContext(), "Task deleted", Toast.LENGTH_SHORT).show();
-                loadTasks(); // Refresh the list
-            } else {
-                Toast.makeText(requireContext(), "Error deleting task", Toast.LENGTH_SHORT).show();
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(requireContext(), "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
             }
-        } catch (Exception e) {
-            Toast.makeText(requireContext(), "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-        }
+        }).bindTo(getViewLifecycleOwner());
     }
 }
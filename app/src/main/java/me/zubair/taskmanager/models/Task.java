@@ -31,6 +31,17 @@ public class Task {
         this.createdAt = System.currentTimeMillis();
     }
 
+    // Copy constructor
+    public Task(Task other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.description = other.description;
+        this.dueDate = other.dueDate;
+        this.priority = other.priority;
+        this.completed = other.completed;
+        this.createdAt = other.createdAt;
+    }
+
     // Getters and setters
     public long getId() {
         return id;
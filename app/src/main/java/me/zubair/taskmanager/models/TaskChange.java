@@ -0,0 +1,123 @@
+package me.zubair.taskmanager.models;
+
+/**
+ * One task change exchanged with the sync server. Only the fields named in the
+ * field mask are meaningful; a delete carries no fields at all.
+ */
+public class TaskChange {
+    // Field mask bits, matching the bits recorded in the change journal
+    public static final int FIELD_TITLE = 1;
+    public static final int FIELD_DESCRIPTION = 1 << 1;
+    public static final int FIELD_DUE_DATE = 1 << 2;
+    public static final int FIELD_PRIORITY = 1 << 3;
+    public static final int FIELD_COMPLETED = 1 << 4;
+    public static final int ALL_FIELDS = FIELD_TITLE | FIELD_DESCRIPTION | FIELD_DUE_DATE |
+            FIELD_PRIORITY | FIELD_COMPLETED;
+
+    private long seq;
+    private String syncId;
+    private boolean deleted;
+    private int fieldMask;
+    private String title;
+    private String description;
+    private long dueDate;
+    private int priority;
+    private boolean completed;
+    private long createdAt;
+
+    // Default constructor
+    public TaskChange() {
+    }
+
+    // Getters and setters
+
+    // Journal sequence number of the newest local change folded into this one
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public String getSyncId() {
+        return syncId;
+    }
+
+    public void setSyncId(String syncId) {
+        this.syncId = syncId;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    public int getFieldMask() {
+        return fieldMask;
+    }
+
+    public void setFieldMask(int fieldMask) {
+        this.fieldMask = fieldMask;
+    }
+
+    public boolean hasField(int field) {
+        return (fieldMask & field) != 0;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public long getDueDate() {
+        return dueDate;
+    }
+
+    public void setDueDate(long dueDate) {
+        this.dueDate = dueDate;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return (deleted ? "delete " : "upsert ") + syncId + " mask=" + fieldMask + " seq=" + seq;
+    }
+}
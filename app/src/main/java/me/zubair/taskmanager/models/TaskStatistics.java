@@ -0,0 +1,54 @@
+package me.zubair.taskmanager.models;
+
+/**
+ * Snapshot of aggregate task counts
+ */
+public class TaskStatistics {
+    private final int pendingCount;
+    private final int completedCount;
+    private final int overdueCount;
+    private final int dueTodayCount;
+    private final int[] pendingByPriority;
+
+    public TaskStatistics(int pendingCount, int completedCount, int overdueCount, int dueTodayCount,
+                          int[] pendingByPriority) {
+        this.pendingCount = pendingCount;
+        this.completedCount = completedCount;
+        this.overdueCount = overdueCount;
+        this.dueTodayCount = dueTodayCount;
+        this.pendingByPriority = pendingByPriority.clone();
+    }
+
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    public int getCompletedCount() {
+        return completedCount;
+    }
+
+    public int getTotalCount() {
+        return pendingCount + completedCount;
+    }
+
+    // Pending tasks whose due date has passed
+    public int getOverdueCount() {
+        return overdueCount;
+    }
+
+    // Pending tasks due at any time today
+    public int getDueTodayCount() {
+        return dueTodayCount;
+    }
+
+    /**
+     * @param priority One of the Task.PRIORITY_* constants
+     * @return Number of pending tasks with that priority
+     */
+    public int getPendingCountForPriority(int priority) {
+        if (priority < 0 || priority >= pendingByPriority.length) {
+            return 0;
+        }
+        return pendingByPriority[priority];
+    }
+}
@@ -0,0 +1,82 @@
+package me.zubair.taskmanager.models;
+
+/**
+ * Lightweight row for task lists. Carries only what a list item displays, with
+ * the description cut down to a short preview; load the full {@link Task} by ID
+ * when it is needed.
+ */
+public class TaskSummary {
+    // Enough for the two-line preview in a list item
+    public static final int DESCRIPTION_PREVIEW_LENGTH = 200;
+
+    private long id;
+    private String title;
+    private String descriptionPreview;
+    private long dueDate;
+    private int priority;
+    private boolean completed;
+
+    // Default constructor
+    public TaskSummary() {
+    }
+
+    public TaskSummary(long id, String title, String descriptionPreview, long dueDate, int priority,
+                       boolean completed) {
+        this.id = id;
+        this.title = title;
+        this.descriptionPreview = descriptionPreview;
+        this.dueDate = dueDate;
+        this.priority = priority;
+        this.completed = completed;
+    }
+
+    // Getters and setters
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    // At most DESCRIPTION_PREVIEW_LENGTH characters of the description
+    public String getDescriptionPreview() {
+        return descriptionPreview;
+    }
+
+    public void setDescriptionPreview(String descriptionPreview) {
+        this.descriptionPreview = descriptionPreview;
+    }
+
+    public long getDueDate() {
+        return dueDate;
+    }
+
+    public void setDueDate(long dueDate) {
+        this.dueDate = dueDate;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+}
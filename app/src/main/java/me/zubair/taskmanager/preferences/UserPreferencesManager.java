@@ -10,6 +10,9 @@ public class UserPreferencesManager {
 
     private static final String PREF_NAME = "task_manager_preferences";
     private static final String KEY_NOTIFICATIONS_ENABLED = "notifications_enabled";
+    private static final String KEY_SYNC_SERVER_URL = "sync_server_url";
+    private static final String KEY_ARCHIVE_AFTER_DAYS = "archive_after_days";
+    private static final int DEFAULT_ARCHIVE_AFTER_DAYS = 30;
 
     private final SharedPreferences sharedPreferences;
 
@@ -36,6 +39,42 @@ public class UserPreferencesManager {
         editor.apply();
     }
 
+    /**
+     * Get the address of the task sync server
+     * @return The server URL, or an empty string if sync is not set up
+     */
+    public String getSyncServerUrl() {
+        return sharedPreferences.getString(KEY_SYNC_SERVER_URL, "");
+    }
+
+    /**
+     * Set the address of the task sync server
+     * @param url Server URL; empty to turn sync off
+     */
+    public void setSyncServerUrl(String url) {
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        editor.putString(KEY_SYNC_SERVER_URL, url);
+        editor.apply();
+    }
+
+    /**
+     * Get how long completed tasks stay in the active list before they are archived
+     * @return Age in days, or 0 if completed tasks are never archived
+     */
+    public int getArchiveAfterDays() {
+        return sharedPreferences.getInt(KEY_ARCHIVE_AFTER_DAYS, DEFAULT_ARCHIVE_AFTER_DAYS);
+    }
+
+    /**
+     * Set how long completed tasks stay in the active list before they are archived
+     * @param days Age in days; 0 turns archiving off
+     */
+    public void setArchiveAfterDays(int days) {
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        editor.putInt(KEY_ARCHIVE_AFTER_DAYS, days);
+        editor.apply();
+    }
+
     /**
      * Clear all user preferences
      */
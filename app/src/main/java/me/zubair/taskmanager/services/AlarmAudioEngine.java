@@ -0,0 +1,270 @@
+package me.zubair.taskmanager.services;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioFocusRequest;
+import android.media.AudioManager;
+import android.media.MediaPlayer;
+import android.media.RingtoneManager;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Plays the alarm sound for every ringing task through one looping
+ * {@link MediaPlayer}. The player is prepared once and kept; tasks acquire and
+ * release the sound by ID, so it starts with the first alarm, holds audio
+ * focus once, and stops when the last alarm is dismissed.
+ *
+ * Safe to call from any thread, and no call waits for the player: it is
+ * created, prepared and driven on a dedicated audio thread, and the lock only
+ * guards the set of ringing tasks.
+ */
+public final class AlarmAudioEngine {
+    private static final String TAG = "AlarmAudioEngine";
+
+    private static AlarmAudioEngine instance;
+
+    private final Context context;
+    private final AudioManager audioManager;
+    private final AudioAttributes attributes = new AudioAttributes.Builder()
+            .setUsage(AudioAttributes.USAGE_ALARM)
+            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+            .build();
+    private final AudioManager.OnAudioFocusChangeListener focusListener = focusChange -> {};
+    private final Handler audioHandler;
+    // Tasks whose alarm is sounding; the sound plays while this is not empty. Guarded by this
+    private final Set<Long> activeAlarms = new HashSet<>();
+    // Audio thread only
+    private AudioFocusRequest focusRequest;
+    private MediaPlayer player;
+    private boolean prepared;
+    private long prepareStartNanos;
+    private volatile long playerCreationMillis = -1;
+
+    private AlarmAudioEngine(Context context) {
+        this.context = context.getApplicationContext();
+        this.audioManager = (AudioManager) this.context.getSystemService(Context.AUDIO_SERVICE);
+        HandlerThread thread = new HandlerThread("AlarmAudio", Process.THREAD_PRIORITY_AUDIO);
+        thread.start();
+        this.audioHandler = new Handler(thread.getLooper());
+    }
+
+    public static synchronized AlarmAudioEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new AlarmAudioEngine(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Start preparing the player ahead of the first alarm, so that it can start at once
+     */
+    public void preload() {
+        audioHandler.post(this::prepare);
+    }
+
+    /**
+     * Start sounding for a task, unless it already is. If the player is still
+     * being prepared, the sound starts as soon as it is ready.
+     *
+     * @param alarmId ID of the task ringing
+     * @return True if the task was not sounding yet
+     */
+    public synchronized boolean acquire(long alarmId) {
+        if (!activeAlarms.add(alarmId)) {
+            return false;
+        }
+        if (activeAlarms.size() == 1) {
+            audioHandler.post(this::start);
+        }
+        return true;
+    }
+
+    /**
+     * Stop sounding for a task; the sound stops with the last one
+     *
+     * @param alarmId ID of the dismissed task
+     */
+    public synchronized void release(long alarmId) {
+        if (activeAlarms.remove(alarmId) && activeAlarms.isEmpty()) {
+            audioHandler.post(this::stop);
+        }
+    }
+
+    /**
+     * Stop sounding for every task
+     */
+    public synchronized void releaseAll() {
+        if (!activeAlarms.isEmpty()) {
+            activeAlarms.clear();
+            audioHandler.post(this::stop);
+        }
+    }
+
+    public synchronized boolean isPlaying() {
+        return !activeAlarms.isEmpty();
+    }
+
+    /**
+     * @return Number of tasks currently sounding
+     */
+    public synchronized int getActiveCount() {
+        return activeAlarms.size();
+    }
+
+    /**
+     * @return Time taken to create and prepare the player, or -1 if it has not been prepared
+     */
+    public long getPlayerCreationMillis() {
+        return playerCreationMillis;
+    }
+
+    /**
+     * Stop the sound and free the player's native resources. The next alarm prepares a new one.
+     */
+    public void shutdown() {
+        releaseAll();
+        audioHandler.post(this::releasePlayer);
+    }
+
+    // Create the player and prepare it in the background; the ringtone is read on this thread
+    private void prepare() {
+        if (player != null) {
+            return;
+        }
+        Uri alarmSound = getAlarmUri();
+        if (alarmSound == null) {
+            Log.e(TAG, "No alarm sound available");
+            return;
+        }
+
+        prepareStartNanos = System.nanoTime();
+        MediaPlayer mediaPlayer = new MediaPlayer();
+        // Created on the audio thread, so the callbacks run here as well
+        mediaPlayer.setOnPreparedListener(this::onPrepared);
+        mediaPlayer.setOnErrorListener((mp, what, extra) -> {
+            Log.e(TAG, "Alarm player error " + what + "/" + extra);
+            releasePlayer();
+            return true;
+        });
+        try {
+            // Attributes must be set before preparing to route the sound to the alarm stream
+            mediaPlayer.setAudioAttributes(attributes);
+            mediaPlayer.setDataSource(context, alarmSound);
+            mediaPlayer.setLooping(true);
+            mediaPlayer.prepareAsync();
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to prepare alarm sound", e);
+            mediaPlayer.release();
+            return;
+        }
+        player = mediaPlayer;
+    }
+
+    private void onPrepared(MediaPlayer mediaPlayer) {
+        if (mediaPlayer != player) {
+            return;
+        }
+        prepared = true;
+        playerCreationMillis = (System.nanoTime() - prepareStartNanos) / 1_000_000;
+        Log.i(TAG, "Alarm player created in " + playerCreationMillis + " ms");
+        // An alarm that came in while preparing is waiting for the sound
+        start();
+    }
+
+    private void start() {
+        if (!isPlaying()) {
+            return;
+        }
+        if (!prepared) {
+            // onPrepared comes back here once the player is ready
+            prepare();
+            return;
+        }
+        if (player.isPlaying()) {
+            return;
+        }
+
+        requestFocus();
+        // Alarms must be heard, so the alarm stream goes to full volume as before
+        int maxVolume = audioManager.getStreamMaxVolume(AudioManager.STREAM_ALARM);
+        audioManager.setStreamVolume(AudioManager.STREAM_ALARM, maxVolume, 0);
+        try {
+            player.start();
+            Log.d(TAG, "Started alarm sound");
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "Error playing alarm sound", e);
+        }
+    }
+
+    private void stop() {
+        // A task may have started ringing again since the stop was posted
+        if (isPlaying()) {
+            return;
+        }
+        if (prepared && player.isPlaying()) {
+            try {
+                // Paused rather than stopped, so the prepared player can start again at once
+                player.pause();
+                player.seekTo(0);
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "Error stopping alarm sound", e);
+            }
+        }
+        abandonFocus();
+        Log.d(TAG, "Stopped alarm sound");
+    }
+
+    private void releasePlayer() {
+        if (player != null) {
+            player.release();
+            player = null;
+            prepared = false;
+        }
+        abandonFocus();
+    }
+
+    private void requestFocus() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            if (focusRequest == null) {
+                focusRequest = new AudioFocusRequest.Builder(AudioManager.AUDIOFOCUS_GAIN_TRANSIENT)
+                        .setAudioAttributes(attributes)
+                        .setOnAudioFocusChangeListener(focusListener)
+                        .build();
+            }
+            audioManager.requestAudioFocus(focusRequest);
+        } else {
+            audioManager.requestAudioFocus(focusListener, AudioManager.STREAM_ALARM,
+                    AudioManager.AUDIOFOCUS_GAIN_TRANSIENT);
+        }
+    }
+
+    private void abandonFocus() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            if (focusRequest != null) {
+                audioManager.abandonAudioFocusRequest(focusRequest);
+            }
+        } else {
+            audioManager.abandonAudioFocus(focusListener);
+        }
+    }
+
+    // The alarm tone, falling back to the notification and ringtone sounds if none is set
+    private Uri getAlarmUri() {
+        Uri uri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
+        if (uri == null) {
+            uri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
+        }
+        if (uri == null) {
+            uri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_RINGTONE);
+        }
+        return uri;
+    }
+}
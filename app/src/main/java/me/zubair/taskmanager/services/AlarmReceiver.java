@@ -6,6 +6,10 @@ import android.content.Intent;
 import android.os.PowerManager;
 import android.util.Log;
 
+import java.util.Arrays;
+
+import me.zubair.taskmanager.activities.AlarmActivity;
+
 /**
  * BroadcastReceiver for handling alarm dismissal actions.
  */
@@ -29,14 +33,17 @@ public class AlarmReceiver extends BroadcastReceiver {
         try {
             if (intent != null && ACTION_DISMISS_ALARM.equals(intent.getAction())) {
                 long taskId = intent.getLongExtra("TASK_ID", -1);
+                long[] taskIds = intent.getLongArrayExtra(AlarmActivity.EXTRA_TASK_IDS);
 
-                if (taskId != -1) {
-                    Log.d(TAG, "Dismissing alarm for task ID: " + taskId);
+                if (taskId != -1 || taskIds != null) {
+                    Log.d(TAG, "Dismissing alarm for task ID: " +
+                            (taskIds != null ? Arrays.toString(taskIds) : taskId));
 
                     // Forward the dismiss action to the service
                     Intent serviceIntent = new Intent(context, NotificationService.class);
                     serviceIntent.setAction(ACTION_DISMISS_ALARM);
                     serviceIntent.putExtra("TASK_ID", taskId);
+                    serviceIntent.putExtra(AlarmActivity.EXTRA_TASK_IDS, taskIds);
 
                     if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
                         context.startForegroundService(serviceIntent);
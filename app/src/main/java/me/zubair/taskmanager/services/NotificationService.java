@@ -1,6 +1,5 @@
 package me.zubair.taskmanager.services;
 
-import android.app.AlarmManager;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
@@ -10,26 +9,28 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.media.AudioAttributes;
-import android.media.MediaPlayer;
 import android.media.RingtoneManager;
-import android.net.Uri;
 import android.os.Build;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.os.PowerManager;
-import android.os.SystemClock;
+import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 import me.zubair.taskmanager.R;
 import me.zubair.taskmanager.activities.MainActivity;
 import me.zubair.taskmanager.activities.AlarmActivity;
+import me.zubair.taskmanager.database.TaskContract;
 import me.zubair.taskmanager.database.TaskRepository;
 import me.zubair.taskmanager.models.Task;
 
@@ -40,18 +41,45 @@ public class NotificationService extends Service {
     private static final int NOTIFICATION_ID = 1;
     public static final String ACTION_CHECK_TASKS = "me.zubair.taskmanager.CHECK_TASKS";
     public static final String ACTION_DISMISS_ALARM = "me.zubair.taskmanager.DISMISS_ALARM";
+    private static final String GROUP_ALARMS = "me.zubair.taskmanager.ALARMS";
+    private static final String GROUP_REMINDERS = "me.zubair.taskmanager.REMINDERS";
+    private static final int ALARM_SUMMARY_ID = 2;
+    private static final int REMINDER_SUMMARY_ID = 3;
+    // Tasks found within this long of each other share one sound, summary and alarm screen
+    static final long COALESCE_WINDOW = 2000;
 
-    private ScheduledExecutorService scheduler;
     private TaskRepository taskRepository;
-    private Map<Long, MediaPlayer> activeAlarms = new HashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Waiting out the coalescing window; main thread only
+    private final List<Task> pendingReminders = new ArrayList<>();
+    private final List<Task> pendingAlarms = new ArrayList<>();
+    private final Runnable flushNotifications = this::flushNotifications;
+    // Set in onDestroy, after which batches are posted as soon as they arrive; main thread only
+    private boolean destroyed;
+    // Tasks whose alarm is ringing, in the order they came due; main thread only
+    private final Map<Long, Task> ringingTasks = new LinkedHashMap<>();
+    private AlarmAudioEngine audioEngine;
     private PowerManager.WakeLock wakeLock;
+    private ReminderDispatcher reminderDispatcher;
+    private final Object checkLock = new Object();
+    // End of the last checked window. The saved last check only catches up once every
+    // check before it has its tasks in the ledger, so a restart rescans what was lost.
+    // Both guarded by checkLock.
+    private long checkedThrough;
+    private int unrecordedChecks;
+    // Checks whose tasks wait in the pending lists; main thread only
+    private int pendingChecks;
 
     @Override
     public void onCreate() {
         super.onCreate();
         Log.d(TAG, "onCreate: Service created");
-        createNotificationChannels();
-        taskRepository = new TaskRepository(this);
+        createNotificationChannels(this);
+        taskRepository = TaskRepository.getInstance(this);
+
+        // Prepare the alarm sound now, so the first alarm starts without loading it
+        audioEngine = AlarmAudioEngine.getInstance(this);
+        audioEngine.preload();
 
         // Acquire wake lock to keep CPU running for alarms
         PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
@@ -60,88 +88,200 @@ public class NotificationService extends Service {
         // Start as foreground service
         startForeground(NOTIFICATION_ID, createServiceNotification());
 
-        scheduler = Executors.newScheduledThreadPool(1);
+        // While the service runs, reminders fire from memory rather than waiting on the alarm
+        reminderDispatcher = new ReminderDispatcher(taskRepository, TimingWheel.SYSTEM_CLOCK, this::checkTasks);
+        reminderDispatcher.start();
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         Log.d(TAG, "onStartCommand: Service started with intent: " + (intent != null ? intent.getAction() : "null"));
-        
-        // Even if no intent, start checking tasks
-        if (scheduler == null || scheduler.isShutdown()) {
-            scheduler = Executors.newScheduledThreadPool(1);
-        }
-        
+
         if (intent != null && ACTION_DISMISS_ALARM.equals(intent.getAction())) {
+            // One task from its notification, or all of them from the summary or alarm screen
+            long[] taskIds = intent.getLongArrayExtra(AlarmActivity.EXTRA_TASK_IDS);
             long taskId = intent.getLongExtra("TASK_ID", -1);
-            if (taskId != -1) {
-                Log.d(TAG, "Dismissing alarm for task: " + taskId);
-                stopAlarmSound(taskId);
-
-                // Cancel the notification
-                NotificationManager notificationManager =
-                        (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-                if (notificationManager != null) {
-                    notificationManager.cancel((int) taskId + 100);
-                }
+            if (taskIds == null && taskId != -1) {
+                taskIds = new long[] { taskId };
+            }
+            if (taskIds != null) {
+                dismissAlarms(taskIds);
             }
-        } else if (intent != null && ACTION_CHECK_TASKS.equals(intent.getAction())) {
-            // Force check tasks immediately when receiving check action
-            scheduler.submit(this::checkUpcomingTasks);
-            scheduler.submit(this::checkDueTasks);  // Check for tasks that are due right now
         } else {
-            // Schedule immediate check and periodic checks
-            scheduler.submit(this::checkUpcomingTasks);
-            scheduler.submit(this::checkDueTasks);  // Also check for already due tasks
-            scheduler.scheduleAtFixedRate(this::checkUpcomingTasks, 1, 1, TimeUnit.MINUTES);  // Check more frequently
-            scheduler.scheduleAtFixedRate(this::checkDueTasks, 1, 1, TimeUnit.MINUTES);  // Also periodically check due tasks
-            scheduleAlarm();
+            // Woken by the scheduled alarm, or started at boot or from settings;
+            // the check arms the alarm for the next instant
+            checkTasks();
         }
 
         return START_STICKY;
     }
 
-    // Check for tasks due within 30 minutes
-    private void checkUpcomingTasks() {
+    // Handle every reminder and due time since the last check, then arm the alarm for the next one
+    private void checkTasks() {
+        taskRepository.getIoExecutor().execute(() -> {
+            // The alarm and the reminder wheel can both ask for a check; one at a time keeps the windows disjoint
+            synchronized (checkLock) {
+                long currentTime = System.currentTimeMillis();
+                long lastCheck = Math.max(TaskAlarmScheduler.getLastCheck(this), checkedThrough);
+                List<Task> upcoming = checkUpcomingTasks(lastCheck, currentTime);
+                List<Task> due = checkDueTasks(lastCheck, currentTime);
+                checkedThrough = currentTime;
+                if (!upcoming.isEmpty() || !due.isEmpty()) {
+                    unrecordedChecks++;
+                    queueNotifications(upcoming, due);
+                } else if (unrecordedChecks == 0) {
+                    TaskAlarmScheduler.setLastCheck(this, currentTime);
+                }
+                TaskAlarmScheduler.rescheduleNow(this, taskRepository, checkedThrough);
+            }
+        });
+    }
+
+    // Check for tasks whose reminder time passed since the last check, i.e. due within the lead time
+    private List<Task> checkUpcomingTasks(long lastCheck, long currentTime) {
         Log.d(TAG, "Checking upcoming tasks");
-        long currentTime = System.currentTimeMillis();
-        long thirtyMinutesLater = currentTime + (30 * 60 * 1000);
+        long windowStart = Math.max(lastCheck + TaskAlarmScheduler.REMINDER_LEAD_TIME, currentTime) + 1;
+        long windowEnd = currentTime + TaskAlarmScheduler.REMINDER_LEAD_TIME;
         
         try {
-            for (Task task : taskRepository.getTasksDueBetween(currentTime, thirtyMinutesLater)) {
-                if (!task.isCompleted()) {
-                    Log.d(TAG, "Found upcoming task: " + task.getTitle() + " due at: " + task.getDueDate());
-                    // Instead of sending full alarm, send a reminder notification for upcoming tasks
-                    sendUpcomingTaskNotification(task);
-                }
+            // Tasks reminded already for their current due date are left out by the ledger
+            List<Task> tasks = taskRepository.getUndeliveredTasksDueBetween(
+                    TaskContract.NotificationLedgerEntry.KIND_REMINDER, windowStart, windowEnd);
+            for (Task task : tasks) {
+                Log.d(TAG, "Found upcoming task: " + task.getTitle() + " due at: " + task.getDueDate());
             }
+            return tasks;
         } catch (Exception e) {
             Log.e(TAG, "Error checking upcoming tasks", e);
+            return new ArrayList<>();
         }
     }
     
-    // New method: Check for tasks that are already due or overdue
-    private void checkDueTasks() {
+    // Check for tasks that became due since the last check
+    private List<Task> checkDueTasks(long lastCheck, long currentTime) {
         Log.d(TAG, "Checking due/overdue tasks");
-        long currentTime = System.currentTimeMillis();
         
         try {
-            // Get tasks that are due now or in the past (up to 1 hour ago to catch any missed alarms)
-            long oneHourAgo = currentTime - (60 * 60 * 1000);
-            for (Task task : taskRepository.getTasksDueBetween(oneHourAgo, currentTime)) {
-                if (!task.isCompleted()) {
-                    Log.d(TAG, "Found due task: " + task.getTitle() + " that was due at: " + task.getDueDate());
-                    // This is a task that's actually due now, send full alarm
-                    sendTaskAlarmNotification(task);
-                }
+            // The last check time never lies more than the catch-up window in the past
+            List<Task> tasks = taskRepository.getUndeliveredTasksDueBetween(
+                    TaskContract.NotificationLedgerEntry.KIND_DUE, lastCheck + 1, currentTime);
+            for (Task task : tasks) {
+                Log.d(TAG, "Found due task: " + task.getTitle() + " that was due at: " + task.getDueDate());
             }
+            return tasks;
         } catch (Exception e) {
             Log.e(TAG, "Error checking due tasks", e);
+            return new ArrayList<>();
         }
     }
-    
-    // New method: Create a more subtle notification for upcoming tasks
-    private void sendUpcomingTaskNotification(Task task) {
+
+    // Hand tasks found by a check to the main thread, where they wait out the coalescing window
+    private void queueNotifications(List<Task> upcoming, List<Task> due) {
+        mainHandler.post(() -> {
+            boolean idle = pendingChecks == 0;
+            pendingReminders.addAll(upcoming);
+            pendingAlarms.addAll(due);
+            pendingChecks++;
+            if (destroyed) {
+                // A check that was running when the service stopped; post and record its tasks right away
+                flushNotifications();
+            } else if (idle) {
+                mainHandler.postDelayed(flushNotifications, COALESCE_WINDOW);
+            }
+        });
+    }
+
+    // Post everything collected during the window: one group of reminders and one of alarms.
+    // Tasks go into the ledger only once their notifications are posted, and the last check
+    // moves past them only once the ledger has them.
+    private void flushNotifications() {
+        mainHandler.removeCallbacks(flushNotifications);
+        if (pendingChecks == 0) {
+            return;
+        }
+        int checks = pendingChecks;
+        pendingChecks = 0;
+        List<Task> reminded = Collections.emptyList();
+        List<Task> alarmed = Collections.emptyList();
+        if (!pendingReminders.isEmpty()) {
+            if (sendUpcomingTaskNotifications(new ArrayList<>(pendingReminders))) {
+                reminded = new ArrayList<>(pendingReminders);
+            }
+            pendingReminders.clear();
+        }
+        if (!pendingAlarms.isEmpty()) {
+            alarmed = new ArrayList<>(pendingAlarms);
+            sendTaskAlarmNotifications(alarmed);
+            pendingAlarms.clear();
+        }
+
+        long deliveredAt = System.currentTimeMillis();
+        List<Task> remindedTasks = reminded;
+        List<Task> alarmedTasks = alarmed;
+        taskRepository.getIoExecutor().execute(() -> {
+            if (!remindedTasks.isEmpty()) {
+                taskRepository.recordNotificationsDelivered(
+                        TaskContract.NotificationLedgerEntry.KIND_REMINDER, remindedTasks, deliveredAt);
+            }
+            if (!alarmedTasks.isEmpty()) {
+                taskRepository.recordNotificationsDelivered(
+                        TaskContract.NotificationLedgerEntry.KIND_DUE, alarmedTasks, deliveredAt);
+            }
+            onChecksRecorded(checks);
+        });
+    }
+
+    // Save the checked window once no check before it still has tasks waiting for the ledger
+    private void onChecksRecorded(int checks) {
+        synchronized (checkLock) {
+            unrecordedChecks -= checks;
+            if (unrecordedChecks == 0) {
+                TaskAlarmScheduler.setLastCheck(this, checkedThrough);
+            }
+        }
+    }
+
+    // Create subtle notifications for upcoming tasks, under one summary when there are several
+    private boolean sendUpcomingTaskNotifications(List<Task> tasks) {
+        NotificationManager notificationManager =
+                (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (notificationManager == null) {
+            Log.e(TAG, "NotificationManager is null");
+            return false;
+        }
+
+        boolean grouped = tasks.size() > 1;
+        for (Task task : tasks) {
+            int notificationId = (int) task.getId() + 200; // Different ID range from alarms
+            notificationManager.notify(notificationId, createUpcomingTaskNotification(task, grouped));
+        }
+        if (grouped) {
+            NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+            for (Task task : tasks) {
+                style.addLine(task.getTitle());
+            }
+            Intent intent = new Intent(this, MainActivity.class);
+            intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+            PendingIntent pendingIntent = PendingIntent.getActivity(this, REMINDER_SUMMARY_ID, intent,
+                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+            notificationManager.notify(REMINDER_SUMMARY_ID, new NotificationCompat.Builder(this, CHANNEL_ID)
+                    .setSmallIcon(android.R.drawable.ic_popup_reminder)
+                    .setContentTitle(tasks.size() + " upcoming tasks")
+                    .setContentText("Due within " + TaskAlarmScheduler.REMINDER_LEAD_TIME / (60 * 1000) + " minutes")
+                    .setStyle(style)
+                    .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+                    .setGroup(GROUP_REMINDERS)
+                    .setGroupSummary(true)
+                    .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY)
+                    .setContentIntent(pendingIntent)
+                    .setAutoCancel(true)
+                    .build());
+        }
+        return true;
+    }
+
+    private Notification createUpcomingTaskNotification(Task task, boolean grouped) {
         Intent intent = new Intent(this, MainActivity.class);
         intent.putExtra("TASK_ID", task.getId());
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
@@ -158,102 +298,109 @@ public class NotificationService extends Service {
                 .setContentText("Due in about " + minutesUntilDue + " minutes")
                 .setStyle(new NotificationCompat.BigTextStyle().bigText(task.getDescription()))
                 .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+                .setGroup(GROUP_REMINDERS)
                 .setContentIntent(pendingIntent)
                 .setAutoCancel(true);
-                
-        NotificationManager notificationManager =
-                (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-                
-        if (notificationManager != null) {
-            int notificationId = (int) task.getId() + 200; // Different ID range from alarms
-            notificationManager.notify(notificationId, builder.build());
+        if (grouped) {
+            // Only the summary makes a sound
+            builder.setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY);
         }
+        return builder.build();
     }
 
-    // Create a persistent alarm notification with sound for a specific task
-    private void sendTaskAlarmNotification(Task task) {
-        Log.d(TAG, "Sending alarm notification for task: " + task.getTitle());
-        
-        // Start playing alarm sound
-        playAlarmSound(task.getId());
+    // Ring once for a batch of due tasks: one sound, one summary and one alarm screen listing every ringing task
+    private void sendTaskAlarmNotifications(List<Task> tasks) {
+        Log.d(TAG, "Sending alarm notifications for " + tasks.size() + " tasks");
+        for (Task task : tasks) {
+            ringingTasks.put(task.getId(), task);
+        }
+
+        // Start playing alarm sound, unless it already is; a stopped service only posts the notifications
+        if (!destroyed) {
+            playAlarmSound(tasks);
+        }
 
-        // Create and show the notification
-        Notification notification = createAlarmNotification(task);
         NotificationManager notificationManager =
                 (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-
         if (notificationManager != null) {
-            int notificationId = (int) task.getId() + 100;
-            Log.d(TAG, "Showing notification with ID: " + notificationId);
-            notificationManager.notify(notificationId, notification);
+            boolean grouped = ringingTasks.size() > 1;
+            for (Task task : tasks) {
+                int notificationId = (int) task.getId() + 100;
+                notificationManager.notify(notificationId, createAlarmNotification(task, grouped));
+            }
+            updateAlarmSummary(notificationManager);
         } else {
             Log.e(TAG, "NotificationManager is null");
         }
 
         // Show full screen activity (will wake device)
         try {
-            Intent fullScreenIntent = new Intent(this, AlarmActivity.class);
-            fullScreenIntent.putExtra("TASK_ID", task.getId());
-            fullScreenIntent.putExtra("TASK_TITLE", task.getTitle());
-            fullScreenIntent.putExtra("TASK_DESCRIPTION", task.getDescription());
-            fullScreenIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-            startActivity(fullScreenIntent);
-            Log.d(TAG, "Started alarm activity for task: " + task.getId());
+            startActivity(createAlarmActivityIntent(ringingTasks.values()));
+            Log.d(TAG, "Started alarm activity for " + ringingTasks.size() + " tasks");
         } catch (Exception e) {
             Log.e(TAG, "Failed to start alarm activity", e);
         }
     }
 
-    // Play a continuous alarm sound
-    private void playAlarmSound(long taskId) {
-        if (activeAlarms.containsKey(taskId)) {
-            // Alarm already playing for this task
-            Log.d(TAG, "Alarm already playing for task: " + taskId);
-            return;
+    // Stop ringing for dismissed tasks; the sound and summary go with the last one
+    private void dismissAlarms(long[] taskIds) {
+        NotificationManager notificationManager =
+                (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        for (long taskId : taskIds) {
+            Log.d(TAG, "Dismissing alarm for task: " + taskId);
+            ringingTasks.remove(taskId);
+            if (notificationManager != null) {
+                notificationManager.cancel((int) taskId + 100);
+            }
         }
-
-        try {
-            // Acquire wake lock if not held
-            if (!wakeLock.isHeld()) {
-                wakeLock.acquire(10*60*1000L); // 10 minutes max
-                Log.d(TAG, "Wake lock acquired");
+        taskRepository.getIoExecutor().execute(() -> {
+            long now = System.currentTimeMillis();
+            for (long taskId : taskIds) {
+                taskRepository.recordNotificationDismissed(taskId, now);
             }
+        });
 
-            Uri alarmSound = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
-            MediaPlayer mediaPlayer = MediaPlayer.create(this, alarmSound);
-            if (mediaPlayer == null) {
-                Log.e(TAG, "Failed to create MediaPlayer for alarm sound");
-                return;
-            }
-            
-            mediaPlayer.setLooping(true);
-            mediaPlayer.start();
-            activeAlarms.put(taskId, mediaPlayer);
-            Log.d(TAG, "Started alarm sound for task: " + taskId);
-        } catch (Exception e) {
-            Log.e(TAG, "Error playing alarm sound", e);
+        stopAlarmSound(taskIds);
+        if (notificationManager != null) {
+            updateAlarmSummary(notificationManager);
         }
     }
 
-    // Stop alarm sound for a specific task
-    private void stopAlarmSound(long taskId) {
-        MediaPlayer mediaPlayer = activeAlarms.get(taskId);
-        if (mediaPlayer != null) {
-            mediaPlayer.stop();
-            mediaPlayer.release();
-            activeAlarms.remove(taskId);
-            Log.d(TAG, "Stopped alarm sound for task: " + taskId);
+    private void updateAlarmSummary(NotificationManager notificationManager) {
+        if (ringingTasks.size() > 1) {
+            notificationManager.notify(ALARM_SUMMARY_ID, createAlarmSummaryNotification());
+        } else {
+            notificationManager.cancel(ALARM_SUMMARY_ID);
+        }
+    }
+
+    // Play the shared alarm sound for newly ringing tasks
+    private void playAlarmSound(List<Task> tasks) {
+        // Acquire wake lock if not held
+        if (!wakeLock.isHeld()) {
+            wakeLock.acquire(10*60*1000L); // 10 minutes max
+            Log.d(TAG, "Wake lock acquired");
+        }
+        for (Task task : tasks) {
+            audioEngine.acquire(task.getId());
+        }
+    }
+
+    // Stop the alarm sound for dismissed tasks; it goes quiet with the last one
+    private void stopAlarmSound(long[] taskIds) {
+        for (long taskId : taskIds) {
+            audioEngine.release(taskId);
         }
 
         // Release wake lock if no more active alarms
-        if (activeAlarms.isEmpty() && wakeLock != null && wakeLock.isHeld()) {
+        if (!audioEngine.isPlaying() && wakeLock != null && wakeLock.isHeld()) {
             wakeLock.release();
             Log.d(TAG, "Wake lock released");
         }
     }
 
-    // Create an alarm-style notification
-    private Notification createAlarmNotification(Task task) {
+    // Create an alarm-style notification; grouped ones leave the sound and full screen to the summary
+    private Notification createAlarmNotification(Task task, boolean grouped) {
         // Intent for opening the app
         Intent contentIntent = new Intent(this, MainActivity.class);
         contentIntent.putExtra("TASK_ID", task.getId());
@@ -270,17 +417,7 @@ public class NotificationService extends Service {
                 this, (int)task.getId() + 1000, dismissIntent,
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
 
-        // Intent for showing full screen alarm
-        Intent fullScreenIntent = new Intent(this, AlarmActivity.class);
-        fullScreenIntent.putExtra("TASK_ID", task.getId());
-        fullScreenIntent.putExtra("TASK_TITLE", task.getTitle());
-        fullScreenIntent.putExtra("TASK_DESCRIPTION", task.getDescription());
-        fullScreenIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-        PendingIntent fullScreenPendingIntent = PendingIntent.getActivity(
-                this, (int)task.getId() + 2000, fullScreenIntent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-
-        return new NotificationCompat.Builder(this, ALARM_CHANNEL_ID)
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, ALARM_CHANNEL_ID)
                 .setSmallIcon(android.R.drawable.ic_lock_idle_alarm) // Using system icon to ensure it exists
                 .setContentTitle("Task Reminder: " + task.getTitle())
                 .setContentText(task.getDescription())
@@ -290,12 +427,87 @@ public class NotificationService extends Service {
                 .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
                 .setOngoing(true)  // Make notification persistent
                 .setAutoCancel(false)
+                .setGroup(GROUP_ALARMS)
                 .setContentIntent(contentPendingIntent)
+                .addAction(android.R.drawable.ic_menu_close_clear_cancel, "Dismiss", dismissPendingIntent);
+
+        if (grouped) {
+            builder.setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY);
+        } else {
+            // Intent for showing full screen alarm
+            PendingIntent fullScreenPendingIntent = PendingIntent.getActivity(
+                    this, (int)task.getId() + 2000, createAlarmActivityIntent(Collections.singletonList(task)),
+                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+            builder.setFullScreenIntent(fullScreenPendingIntent, true);
+        }
+        return builder.build();
+    }
+
+    // Create the summary of all ringing alarms, which alerts once and opens the alarm screen for all of them
+    private Notification createAlarmSummaryNotification() {
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+        List<String> titles = new ArrayList<>(ringingTasks.size());
+        long[] taskIds = new long[ringingTasks.size()];
+        int i = 0;
+        for (Task task : ringingTasks.values()) {
+            style.addLine(task.getTitle());
+            titles.add(task.getTitle());
+            taskIds[i++] = task.getId();
+        }
+
+        PendingIntent fullScreenPendingIntent = PendingIntent.getActivity(
+                this, ALARM_SUMMARY_ID, createAlarmActivityIntent(ringingTasks.values()),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        Intent dismissIntent = new Intent(this, AlarmReceiver.class);
+        dismissIntent.setAction(ACTION_DISMISS_ALARM);
+        dismissIntent.putExtra(AlarmActivity.EXTRA_TASK_IDS, taskIds);
+        PendingIntent dismissPendingIntent = PendingIntent.getBroadcast(
+                this, ALARM_SUMMARY_ID, dismissIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        return new NotificationCompat.Builder(this, ALARM_CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.ic_lock_idle_alarm)
+                .setContentTitle(ringingTasks.size() + " tasks due")
+                .setContentText(TextUtils.join(", ", titles))
+                .setStyle(style)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setCategory(NotificationCompat.CATEGORY_ALARM)
+                .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
+                .setOngoing(true)
+                .setAutoCancel(false)
+                // Re-posted as tasks come and go; only the first post alerts
+                .setOnlyAlertOnce(true)
+                .setGroup(GROUP_ALARMS)
+                .setGroupSummary(true)
+                .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY)
+                .setContentIntent(fullScreenPendingIntent)
                 .setFullScreenIntent(fullScreenPendingIntent, true)
-                .addAction(android.R.drawable.ic_menu_close_clear_cancel, "Dismiss", dismissPendingIntent)
+                .addAction(android.R.drawable.ic_menu_close_clear_cancel, "Dismiss all", dismissPendingIntent)
                 .build();
     }
 
+    // Intent for the alarm screen, listing the given tasks
+    private Intent createAlarmActivityIntent(Collection<Task> tasks) {
+        long[] taskIds = new long[tasks.size()];
+        String[] titles = new String[tasks.size()];
+        String[] descriptions = new String[tasks.size()];
+        int i = 0;
+        for (Task task : tasks) {
+            taskIds[i] = task.getId();
+            titles[i] = task.getTitle();
+            descriptions[i] = task.getDescription();
+            i++;
+        }
+
+        Intent intent = new Intent(this, AlarmActivity.class);
+        intent.putExtra(AlarmActivity.EXTRA_TASK_IDS, taskIds);
+        intent.putExtra(AlarmActivity.EXTRA_TASK_TITLES, titles);
+        intent.putExtra(AlarmActivity.EXTRA_TASK_DESCRIPTIONS, descriptions);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        return intent;
+    }
+
     // Create a standard notification for the service itself
     private Notification createServiceNotification() {
         Intent intent = new Intent(this, MainActivity.class);
@@ -312,11 +524,11 @@ public class NotificationService extends Service {
                 .build();
     }
 
-    // Create notification channels - one for service, one for alarms
-    private void createNotificationChannels() {
+    // Create notification channels - one for service, one for alarms. Safe to call repeatedly.
+    public static void createNotificationChannels(Context context) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationManager notificationManager =
-                    (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+                    (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
 
             if (notificationManager != null) {
                 // Regular notification channel
@@ -354,77 +566,23 @@ public class NotificationService extends Service {
         }
     }
 
-    // Schedule repeating alarm checks
-    private void scheduleAlarm() {
-        AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
-        if (alarmManager == null) {
-            Log.e(TAG, "AlarmManager is null");
-            return;
-        }
-
-        Intent intent = new Intent(this, NotificationReceiver.class);
-        intent.setAction(ACTION_CHECK_TASKS);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                this, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-
-        // Schedule more frequent checks (every minute for testing, can be increased later)
-        long interval = 60 * 1000; // 1 minute
-        long triggerTime = SystemClock.elapsedRealtime() + interval;
-
-        try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-                if (alarmManager.canScheduleExactAlarms()) {
-                    scheduleExactAlarm(alarmManager, triggerTime, pendingIntent);
-                    Log.d(TAG, "Scheduled exact alarm");
-                    
-                    // Schedule repeating alarm every minute
-                    alarmManager.setRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, 
-                        triggerTime, interval, pendingIntent);
-                } else {
-                    alarmManager.setRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, 
-                        triggerTime, interval, pendingIntent);
-                    Log.d(TAG, "Scheduled inexact repeating alarm (Android 12+ without permission)");
-                }
-            } else {
-                scheduleExactAlarm(alarmManager, triggerTime, pendingIntent);
-                // Also set repeating alarm as backup
-                alarmManager.setRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, 
-                    triggerTime, interval, pendingIntent);
-                Log.d(TAG, "Scheduled exact and repeating alarms (pre-Android 12)");
-            }
-        } catch (SecurityException e) {
-            Log.e(TAG, "SecurityException when scheduling alarm: " + e.getMessage());
-            alarmManager.setRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, 
-                triggerTime, interval, pendingIntent);
-        }
-    }
-
-    private void scheduleExactAlarm(AlarmManager alarmManager, long triggerTime, PendingIntent pendingIntent) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            alarmManager.setExactAndAllowWhileIdle(
-                    AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerTime, pendingIntent);
-        } else {
-            alarmManager.setExact(
-                    AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerTime, pendingIntent);
-        }
-    }
-
     @Override
     public void onDestroy() {
         Log.d(TAG, "onDestroy: Service being destroyed");
-        if (scheduler != null && !scheduler.isShutdown()) {
-            scheduler.shutdown();
+
+        if (reminderDispatcher != null) {
+            reminderDispatcher.stop();
         }
 
-        // Clean up all active alarms
-        for (Map.Entry<Long, MediaPlayer> entry : activeAlarms.entrySet()) {
-            MediaPlayer player = entry.getValue();
-            if (player != null) {
-                player.stop();
-                player.release();
-            }
+        // Post what is still waiting out the coalescing window rather than dropping it
+        destroyed = true;
+        flushNotifications();
+
+        // Silence the alarm and free the player
+        if (audioEngine != null) {
+            audioEngine.shutdown();
         }
-        activeAlarms.clear();
+        ringingTasks.clear();
 
         // Release wake lock if held
         if (wakeLock != null && wakeLock.isHeld()) {
@@ -0,0 +1,245 @@
+package me.zubair.taskmanager.services;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import me.zubair.taskmanager.database.TaskChangeEvent;
+import me.zubair.taskmanager.database.TaskRepository;
+import me.zubair.taskmanager.models.Task;
+
+/**
+ * Holds the reminders and due times of the next few hours in a
+ * {@link TimingWheel} while the notification service runs, so dense schedules
+ * fire to the second without a database query or alarm per task. The wheel is
+ * loaded once, then kept current from repository change events; the single
+ * alarm armed by {@link TaskAlarmScheduler} still wakes the app when the
+ * service is not running.
+ *
+ * Everything touching the wheel runs on one background thread. Queries run on
+ * the repository's IO executor one at a time, in the order they were asked
+ * for, so their results reach the wheel in the same order as the changes.
+ */
+final class ReminderDispatcher {
+    private static final String TAG = "ReminderDispatcher";
+    // How far ahead the wheel is loaded; it is reloaded halfway through
+    static final long WINDOW = TimeUnit.HOURS.toMillis(3);
+    // Payload of the entry that triggers the next reload
+    private static final long RELOAD = -1;
+
+    private final TaskRepository repository;
+    private final TimingWheel.Clock clock;
+    private final Runnable onDue;
+    private final TimingWheel<Long> wheel;
+    // Entries per task, so a changed task can be taken out of the wheel
+    private final Map<Long, List<TimingWheel.Timer<Long>>> timersByTask = new HashMap<>();
+    private final TaskRepository.TaskChangeListener changeListener = this::onTasksChanged;
+    private final Runnable pump = this::pump;
+    // Queries waiting for the one in flight, if any; guarded by itself
+    private final ArrayDeque<Runnable> queries = new ArrayDeque<>();
+    private boolean queryRunning;
+    private HandlerThread thread;
+    // Cleared by stop() on the main thread while the wheel thread may still be running
+    private volatile Handler handler;
+    private long windowEnd;
+
+    /**
+     * @param repository Source of pending tasks and their changes
+     * @param clock Wall clock the wheel runs on
+     * @param onDue Run once for every tick at which one or more entries fire
+     */
+    ReminderDispatcher(TaskRepository repository, TimingWheel.Clock clock, Runnable onDue) {
+        this.repository = repository;
+        this.clock = clock;
+        this.onDue = onDue;
+        this.wheel = new TimingWheel<>(clock);
+    }
+
+    void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new HandlerThread("ReminderWheel");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        repository.addChangeListener(changeListener);
+        reload();
+    }
+
+    void stop() {
+        if (thread == null) {
+            return;
+        }
+        repository.removeChangeListener(changeListener);
+        handler = null;
+        thread.quit();
+        thread = null;
+        synchronized (queries) {
+            queries.clear();
+        }
+    }
+
+    // Change events arrive on the main thread
+    private void onTasksChanged(TaskChangeEvent event) {
+        query(() -> {
+            List<Task> tasks = Collections.emptyList();
+            if (event.getType() != TaskChangeEvent.Type.DELETED) {
+                try {
+                    tasks = repository.getTasksByIds(event.getTaskIds());
+                } catch (Exception e) {
+                    Log.e(TAG, "Error refreshing reminders", e);
+                }
+            }
+            List<Task> changed = tasks;
+            post(() -> apply(event.getTaskIds(), changed));
+        });
+    }
+
+    private void reload() {
+        long now = clock.currentTimeMillis();
+        query(() -> {
+            List<Task> tasks = Collections.emptyList();
+            try {
+                // Reminders fire the lead time ahead, so look that much further for due times
+                tasks = repository.getPendingTasksDueBetween(now + 1,
+                        now + WINDOW + TaskAlarmScheduler.REMINDER_LEAD_TIME);
+            } catch (Exception e) {
+                Log.e(TAG, "Error loading reminders", e);
+            }
+            List<Task> pending = tasks;
+            post(() -> load(now, pending));
+        });
+    }
+
+    private void load(long now, List<Task> tasks) {
+        wheel.clear();
+        timersByTask.clear();
+        windowEnd = now + WINDOW;
+        // Anything that fell due while the query ran fires on the next tick
+        for (Task task : tasks) {
+            add(task, now);
+        }
+        wheel.schedule(now + WINDOW / 2, RELOAD);
+        Log.d(TAG, "Loaded " + timersByTask.size() + " tasks into the reminder wheel");
+        pump();
+    }
+
+    private void apply(long[] taskIds, List<Task> tasks) {
+        for (long taskId : taskIds) {
+            remove(taskId);
+        }
+        long now = clock.currentTimeMillis();
+        for (Task task : tasks) {
+            if (!task.isCompleted()) {
+                add(task, now);
+            }
+        }
+        pump();
+    }
+
+    private void post(Runnable runnable) {
+        Handler target = handler;
+        if (target != null) {
+            target.post(runnable);
+        }
+    }
+
+    // Queue a query behind the one in flight, so results are posted in request order
+    private void query(Runnable runnable) {
+        synchronized (queries) {
+            queries.add(() -> {
+                try {
+                    runnable.run();
+                } finally {
+                    runNextQuery();
+                }
+            });
+            if (!queryRunning) {
+                runNextQuery();
+            }
+        }
+    }
+
+    private void runNextQuery() {
+        synchronized (queries) {
+            Runnable next = queries.poll();
+            queryRunning = next != null;
+            if (next != null) {
+                repository.getIoExecutor().execute(next);
+            }
+        }
+    }
+
+    private void add(Task task, long now) {
+        long dueDate = task.getDueDate();
+        if (dueDate <= now || dueDate > windowEnd + TaskAlarmScheduler.REMINDER_LEAD_TIME) {
+            return;
+        }
+        List<TimingWheel.Timer<Long>> timers = new ArrayList<>(2);
+        long reminderTime = dueDate - TaskAlarmScheduler.REMINDER_LEAD_TIME;
+        if (reminderTime > now && reminderTime <= windowEnd) {
+            timers.add(wheel.schedule(reminderTime, task.getId()));
+        }
+        if (dueDate <= windowEnd) {
+            timers.add(wheel.schedule(dueDate, task.getId()));
+        }
+        if (!timers.isEmpty()) {
+            timersByTask.put(task.getId(), timers);
+        }
+    }
+
+    private void remove(long taskId) {
+        List<TimingWheel.Timer<Long>> timers = timersByTask.remove(taskId);
+        if (timers != null) {
+            for (TimingWheel.Timer<Long> timer : timers) {
+                wheel.cancel(timer);
+            }
+        }
+    }
+
+    // Fire what is due, then sleep until the wheel's next tick
+    private void pump() {
+        Handler target = handler;
+        if (target == null) {
+            return;
+        }
+        target.removeCallbacks(pump);
+
+        boolean[] due = new boolean[1];
+        boolean[] reload = new boolean[1];
+        wheel.advance(timer -> {
+            if (timer.getPayload() == RELOAD) {
+                reload[0] = true;
+            } else {
+                due[0] = true;
+                List<TimingWheel.Timer<Long>> timers = timersByTask.get(timer.getPayload());
+                if (timers != null && timers.remove(timer) && timers.isEmpty()) {
+                    timersByTask.remove(timer.getPayload());
+                }
+            }
+        });
+        // One check covers every task that fired on this tick
+        if (due[0]) {
+            onDue.run();
+        }
+        if (reload[0]) {
+            reload();
+            return;
+        }
+
+        long next = wheel.nextTickTime();
+        if (next != -1) {
+            long delay = Math.max(0, next - clock.currentTimeMillis());
+            target.postAtTime(pump, SystemClock.uptimeMillis() + delay);
+        }
+    }
+}
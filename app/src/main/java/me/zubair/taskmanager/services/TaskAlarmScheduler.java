@@ -0,0 +1,134 @@
+package me.zubair.taskmanager.services;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+
+import me.zubair.taskmanager.database.TaskRepository;
+import me.zubair.taskmanager.preferences.UserPreferencesManager;
+
+/**
+ * Keeps exactly one alarm armed, for the next instant a pending task needs
+ * attention: its reminder {@link #REMINDER_LEAD_TIME} before it is due, or its
+ * due time. The instant comes from a single indexed query, and is recomputed
+ * after each check and whenever tasks change, instead of polling every minute.
+ */
+public final class TaskAlarmScheduler {
+    private static final String TAG = "TaskAlarmScheduler";
+    private static final String PREF_NAME = "task_alarm_scheduler";
+    private static final String KEY_LAST_CHECK = "last_check";
+
+    // How long before its due time a task's reminder fires
+    public static final long REMINDER_LEAD_TIME = TimeUnit.MINUTES.toMillis(30);
+    // Oldest overdue tasks still alarmed when checks resume, e.g. after a reboot
+    static final long CATCH_UP_WINDOW = TimeUnit.HOURS.toMillis(1);
+
+    private TaskAlarmScheduler() {}
+
+    /**
+     * Recompute the next instant and arm the alarm for it on the database
+     * executor, or cancel the alarm if notifications are off or nothing is due
+     *
+     * @param context Any context
+     */
+    public static void reschedule(Context context) {
+        Context appContext = context.getApplicationContext();
+        TaskRepository repository = TaskRepository.getInstance(appContext);
+        repository.getIoExecutor().execute(() -> rescheduleNow(appContext, repository));
+    }
+
+    /**
+     * Blocking form of {@link #reschedule}, for callers already on a background thread
+     */
+    static void rescheduleNow(Context context, TaskRepository repository) {
+        rescheduleNow(context, repository, getLastCheck(context));
+    }
+
+    /**
+     * Blocking form of {@link #reschedule} for a checker whose windows run ahead
+     * of the saved last check while their tasks are still being recorded
+     *
+     * @param checkedThrough End of the last window already checked
+     */
+    static void rescheduleNow(Context context, TaskRepository repository, long checkedThrough) {
+        if (!new UserPreferencesManager(context).areNotificationsEnabled()) {
+            cancel(context);
+            return;
+        }
+
+        // Instants between the last check and now are still owed, so the alarm fires at once for them
+        long next = repository.getNextReminderTime(checkedThrough, REMINDER_LEAD_TIME);
+        if (next == -1) {
+            cancel(context);
+            Log.d(TAG, "No pending task is due; alarm cancelled");
+            return;
+        }
+        arm(context, next);
+    }
+
+    /**
+     * Stop the scheduled alarm, if any
+     */
+    public static void cancel(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager != null) {
+            alarmManager.cancel(createPendingIntent(context));
+        }
+    }
+
+    /**
+     * @return Time up to which due tasks have been alarmed and recorded in the
+     *         ledger, never earlier than the catch-up window
+     */
+    static long getLastCheck(Context context) {
+        long lastCheck = preferences(context).getLong(KEY_LAST_CHECK, 0);
+        return Math.max(lastCheck, System.currentTimeMillis() - CATCH_UP_WINDOW);
+    }
+
+    static void setLastCheck(Context context, long time) {
+        preferences(context).edit().putLong(KEY_LAST_CHECK, time).apply();
+    }
+
+    private static void arm(Context context, long triggerTime) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            Log.e(TAG, "AlarmManager is null");
+            return;
+        }
+
+        // Replaces the previously armed alarm, since the PendingIntent is the same
+        PendingIntent pendingIntent = createPendingIntent(context);
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarmManager.canScheduleExactAlarms()) {
+                alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
+                Log.d(TAG, "Armed inexact alarm for " + triggerTime + " (exact alarms not permitted)");
+            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
+                Log.d(TAG, "Armed exact alarm for " + triggerTime);
+            } else {
+                alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
+                Log.d(TAG, "Armed exact alarm for " + triggerTime);
+            }
+        } catch (SecurityException e) {
+            Log.e(TAG, "SecurityException when scheduling alarm: " + e.getMessage());
+            alarmManager.set(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
+        }
+    }
+
+    private static PendingIntent createPendingIntent(Context context) {
+        Intent intent = new Intent(context, NotificationService.NotificationReceiver.class);
+        intent.setAction(NotificationService.ACTION_CHECK_TASKS);
+        return PendingIntent.getBroadcast(
+                context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    private static SharedPreferences preferences(Context context) {
+        return context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,222 @@
+package me.zubair.taskmanager.services;
+
+/**
+ * Hierarchical timing wheel with one-second ticks. Three levels of 60 slots
+ * cover seconds, minutes and hours, so deadlines up to 60 hours ahead are
+ * accepted. Scheduling and cancelling are O(1); each entry is moved down a
+ * level at most twice before it fires.
+ *
+ * Entries fire on the first tick at or after their deadline. Time comes only
+ * from the {@link Clock}, so tests can drive the wheel with a fake one. Not
+ * thread-safe; use it from a single thread.
+ */
+public final class TimingWheel<T> {
+    static final long TICK_MILLIS = 1000;
+    private static final int SLOTS = 60;
+    private static final int LEVELS = 3;
+    // Ticks spanned by one slot of each level, and by the whole wheel
+    private static final long[] SLOT_SPAN = { 1, SLOTS, SLOTS * SLOTS };
+    static final long HORIZON_TICKS = (long) SLOTS * SLOTS * SLOTS;
+
+    /**
+     * Source of the current time in milliseconds
+     */
+    public interface Clock {
+        long currentTimeMillis();
+    }
+
+    public static final Clock SYSTEM_CLOCK = System::currentTimeMillis;
+
+    /**
+     * Receives entries as they fire
+     */
+    public interface Listener<T> {
+        void onExpired(Timer<T> timer);
+    }
+
+    /**
+     * A scheduled entry. Holds its place in a slot's list, so it can be removed without a search.
+     */
+    public static final class Timer<T> {
+        private final long deadline;
+        private final long expiryTick;
+        private final T payload;
+        private Timer<T> previous;
+        private Timer<T> next;
+
+        private Timer(long deadline, long expiryTick, T payload) {
+            this.deadline = deadline;
+            this.expiryTick = expiryTick;
+            this.payload = payload;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        boolean isScheduled() {
+            return previous != null;
+        }
+    }
+
+    private final Clock clock;
+    // Circular lists with a sentinel per slot
+    @SuppressWarnings("unchecked")
+    private final Timer<T>[][] slots = new Timer[LEVELS][SLOTS];
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(Clock clock) {
+        this.clock = clock;
+        this.currentTick = clock.currentTimeMillis() / TICK_MILLIS;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timer<T> sentinel = new Timer<>(0, 0, null);
+                sentinel.previous = sentinel;
+                sentinel.next = sentinel;
+                slots[level][slot] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * Schedule an entry. A deadline that has already passed fires on the next tick.
+     *
+     * @param deadline Time in milliseconds to fire at
+     * @param payload Value handed back when the entry fires
+     * @return Handle for {@link #cancel}, or null if the deadline lies beyond the wheel's horizon
+     */
+    public Timer<T> schedule(long deadline, T payload) {
+        long expiryTick = Math.max((deadline + TICK_MILLIS - 1) / TICK_MILLIS, currentTick + 1);
+        if (expiryTick - currentTick >= HORIZON_TICKS) {
+            return null;
+        }
+        Timer<T> timer = new Timer<>(deadline, expiryTick, payload);
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    /**
+     * @return True if the entry was still waiting and will no longer fire
+     */
+    public boolean cancel(Timer<T> timer) {
+        if (timer == null || !timer.isScheduled()) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    /**
+     * Remove every entry
+     */
+    public void clear() {
+        for (Timer<T>[] level : slots) {
+            for (Timer<T> sentinel : level) {
+                while (sentinel.next != sentinel) {
+                    unlink(sentinel.next);
+                }
+            }
+        }
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Move the wheel up to the clock's current time, firing every entry whose tick was reached
+     *
+     * @return Number of entries fired
+     */
+    public int advance(Listener<T> listener) {
+        long targetTick = clock.currentTimeMillis() / TICK_MILLIS;
+        if (size == 0) {
+            currentTick = Math.max(currentTick, targetTick);
+            return 0;
+        }
+
+        int fired = 0;
+        while (currentTick < targetTick && size > 0) {
+            currentTick++;
+            // Bring entries of the hour and minute starting now down a level, then fire this second's slot
+            if (currentTick % SLOT_SPAN[2] == 0) {
+                cascade(2);
+            }
+            if (currentTick % SLOT_SPAN[1] == 0) {
+                cascade(1);
+            }
+            Timer<T> sentinel = slots[0][(int) (currentTick % SLOTS)];
+            while (sentinel.next != sentinel) {
+                Timer<T> timer = sentinel.next;
+                unlink(timer);
+                size--;
+                fired++;
+                listener.onExpired(timer);
+            }
+        }
+        currentTick = Math.max(currentTick, targetTick);
+        return fired;
+    }
+
+    /**
+     * @return Time in milliseconds of the next tick at which an entry fires or
+     *         moves down a level, or -1 if the wheel is empty
+     */
+    public long nextTickTime() {
+        if (size == 0) {
+            return -1;
+        }
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            long span = SLOT_SPAN[level];
+            // The first slot boundary of this level after the current tick
+            long boundary = (currentTick / span + 1) * span;
+            for (int i = 0; i < SLOTS && boundary < next; i++, boundary += span) {
+                Timer<T> sentinel = slots[level][(int) ((boundary / span) % SLOTS)];
+                if (sentinel.next != sentinel) {
+                    next = boundary;
+                    break;
+                }
+            }
+        }
+        return next * TICK_MILLIS;
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.expiryTick - currentTick;
+        int level = delta < SLOT_SPAN[1] ? 0 : delta < SLOT_SPAN[2] ? 1 : 2;
+        Timer<T> sentinel = slots[level][(int) ((timer.expiryTick / SLOT_SPAN[level]) % SLOTS)];
+        timer.previous = sentinel.previous;
+        timer.next = sentinel;
+        sentinel.previous.next = timer;
+        sentinel.previous = timer;
+    }
+
+    private void cascade(int level) {
+        Timer<T> sentinel = slots[level][(int) ((currentTick / SLOT_SPAN[level]) % SLOTS)];
+        Timer<T> timer = sentinel.next;
+        sentinel.next = sentinel;
+        sentinel.previous = sentinel;
+        while (timer != sentinel) {
+            Timer<T> following = timer.next;
+            // Entries due this very tick land in the level-0 slot that is about to fire
+            place(timer);
+            timer = following;
+        }
+    }
+
+    private void unlink(Timer<T> timer) {
+        timer.previous.next = timer.next;
+        timer.next.previous = timer.previous;
+        timer.previous = null;
+        timer.next = null;
+    }
+}
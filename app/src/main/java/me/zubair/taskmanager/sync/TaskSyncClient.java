@@ -0,0 +1,341 @@
+package me.zubair.taskmanager.sync;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import me.zubair.taskmanager.database.TaskRepository;
+import me.zubair.taskmanager.models.TaskChange;
+
+/**
+ * Client for incremental sync with a task sync server. Local changes are read
+ * from the change journal and pushed in gzip-compressed batches; remote changes
+ * are pulled in batches from the last applied server position. Only changed
+ * fields travel in either direction, never the whole table.
+ *
+ * Protocol, JSON over HTTP with gzip bodies:
+ * POST {base}/push with {"device": id, "changes": [...]} answers {"ack": seq};
+ * GET {base}/pull?since=cursor&amp;device=id answers {"changes": [...], "cursor": n, "more": bool}.
+ * Each change is {"seq": n, "id": syncId, "op": "upsert"|"delete", "fields": {...}}.
+ */
+public class TaskSyncClient {
+    private static final String TAG = "TaskSyncClient";
+    private static final int PUSH_BATCH_SIZE = 500;
+    private static final int TIMEOUT_MS = 10000;
+    private static final String GZIP = "gzip";
+
+    // Wire names
+    static final String FIELD_DEVICE = "device";
+    static final String FIELD_CHANGES = "changes";
+    static final String FIELD_ACK = "ack";
+    static final String FIELD_CURSOR = "cursor";
+    static final String FIELD_MORE = "more";
+    static final String FIELD_SEQ = "seq";
+    static final String FIELD_ID = "id";
+    static final String FIELD_OP = "op";
+    static final String FIELD_FIELDS = "fields";
+    static final String OP_UPSERT = "upsert";
+    static final String OP_DELETE = "delete";
+    static final String FIELD_TITLE = "title";
+    static final String FIELD_DESCRIPTION = "description";
+    static final String FIELD_DUE_DATE = "due_date";
+    static final String FIELD_PRIORITY = "priority";
+    static final String FIELD_COMPLETED = "completed";
+    static final String FIELD_CREATED_AT = "created_at";
+
+    private final TaskRepository repository;
+    private final String baseUrl;
+    private final ExecutorService executorService;
+    private final Handler mainHandler;
+
+    /**
+     * @param repository Repository whose journal is pushed and into which pulls are applied
+     * @param baseUrl Server address, e.g. "http://10.0.2.2:8080/sync"
+     */
+    public TaskSyncClient(TaskRepository repository, String baseUrl) {
+        this.repository = repository;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        executorService = Executors.newSingleThreadExecutor();
+        mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Callback interface for sync operations
+     */
+    public interface SyncCallback {
+        void onSyncComplete(SyncResult result);
+        void onError(String errorMessage);
+    }
+
+    /**
+     * Counts of changes exchanged in one sync
+     */
+    public static class SyncResult {
+        public final int pushed;
+        public final int pulled;
+
+        public SyncResult(int pushed, int pulled) {
+            this.pushed = pushed;
+            this.pulled = pulled;
+        }
+
+        @Override
+        public String toString() {
+            return "pushed " + pushed + ", pulled " + pulled;
+        }
+    }
+
+    /**
+     * Runs a sync asynchronously
+     * @param callback The callback to handle the result, invoked on the main thread
+     */
+    public void syncAsync(SyncCallback callback) {
+        executorService.execute(() -> {
+            try {
+                SyncResult result = sync();
+                mainHandler.post(() -> callback.onSyncComplete(result));
+            } catch (UnknownHostException e) {
+                Log.e(TAG, "Network connectivity issue", e);
+                mainHandler.post(() -> callback.onError("No network connection"));
+            } catch (IOException e) {
+                Log.e(TAG, "I/O error during sync", e);
+                mainHandler.post(() -> callback.onError("Connection error: " + e.getMessage()));
+            } catch (JSONException e) {
+                Log.e(TAG, "JSON parsing error", e);
+                mainHandler.post(() -> callback.onError("Error parsing response"));
+            } catch (Exception e) {
+                Log.e(TAG, "Unexpected error during sync", e);
+                mainHandler.post(() -> callback.onError("Unexpected error: " + e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Push local changes, then pull remote ones. Blocking; run it off the main thread.
+     * Pushing first means the server orders this device's edits before anything it
+     * hands back.
+     *
+     * @return Number of changes pushed and applied
+     * @throws IOException if there's a network error
+     * @throws JSONException if the server's response is malformed
+     */
+    public SyncResult sync() throws IOException, JSONException {
+        String deviceId = repository.getSyncDeviceId();
+        int pushed = push(deviceId);
+        int pulled = pull(deviceId);
+        Log.i(TAG, "Sync finished: pushed " + pushed + ", pulled " + pulled);
+        return new SyncResult(pushed, pulled);
+    }
+
+    /**
+     * Stop the background thread. Calls already queued still run.
+     */
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    private int push(String deviceId) throws IOException, JSONException {
+        int pushed = 0;
+        while (true) {
+            List<TaskChange> changes = repository.getPendingChanges(PUSH_BATCH_SIZE);
+            if (changes.isEmpty()) {
+                return pushed;
+            }
+
+            JSONArray array = new JSONArray();
+            for (TaskChange change : changes) {
+                array.put(toJson(change));
+            }
+            JSONObject body = new JSONObject();
+            body.put(FIELD_DEVICE, deviceId);
+            body.put(FIELD_CHANGES, array);
+
+            long lastSeq = changes.get(changes.size() - 1).getSeq();
+            JSONObject response = request("POST", baseUrl + "/push", body);
+            long ack = response.getLong(FIELD_ACK);
+            repository.acknowledgeChanges(ack);
+            pushed += changes.size();
+            if (ack < lastSeq) {
+                // The server kept only part of the batch; retry the rest next sync
+                return pushed;
+            }
+        }
+    }
+
+    private int pull(String deviceId) throws IOException, JSONException {
+        int pulled = 0;
+        boolean more = true;
+        while (more) {
+            String url = Uri.parse(baseUrl + "/pull").buildUpon()
+                    .appendQueryParameter("since", String.valueOf(repository.getSyncPullCursor()))
+                    .appendQueryParameter(FIELD_DEVICE, deviceId)
+                    .build()
+                    .toString();
+            JSONObject response = request("GET", url, null);
+
+            JSONArray array = response.getJSONArray(FIELD_CHANGES);
+            List<TaskChange> changes = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                changes.add(fromJson(array.getJSONObject(i)));
+            }
+            repository.applyRemoteChanges(changes, response.getLong(FIELD_CURSOR));
+            pulled += changes.size();
+            more = response.optBoolean(FIELD_MORE) && !changes.isEmpty();
+        }
+        return pulled;
+    }
+
+    static JSONObject toJson(TaskChange change) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put(FIELD_SEQ, change.getSeq());
+        json.put(FIELD_ID, change.getSyncId());
+        json.put(FIELD_OP, change.isDeleted() ? OP_DELETE : OP_UPSERT);
+        if (change.isDeleted()) {
+            return json;
+        }
+
+        JSONObject fields = new JSONObject();
+        if (change.hasField(TaskChange.FIELD_TITLE)) {
+            fields.put(FIELD_TITLE, change.getTitle());
+        }
+        if (change.hasField(TaskChange.FIELD_DESCRIPTION)) {
+            fields.put(FIELD_DESCRIPTION, change.getDescription() == null ? JSONObject.NULL : change.getDescription());
+        }
+        if (change.hasField(TaskChange.FIELD_DUE_DATE)) {
+            fields.put(FIELD_DUE_DATE, change.getDueDate());
+        }
+        if (change.hasField(TaskChange.FIELD_PRIORITY)) {
+            fields.put(FIELD_PRIORITY, change.getPriority());
+        }
+        if (change.hasField(TaskChange.FIELD_COMPLETED)) {
+            fields.put(FIELD_COMPLETED, change.isCompleted());
+        }
+        if (change.getFieldMask() == TaskChange.ALL_FIELDS) {
+            // A full copy is how a task first reaches other devices
+            fields.put(FIELD_CREATED_AT, change.getCreatedAt());
+        }
+        json.put(FIELD_FIELDS, fields);
+        return json;
+    }
+
+    static TaskChange fromJson(JSONObject json) throws JSONException {
+        TaskChange change = new TaskChange();
+        change.setSeq(json.optLong(FIELD_SEQ));
+        change.setSyncId(json.getString(FIELD_ID));
+        change.setDeleted(OP_DELETE.equals(json.getString(FIELD_OP)));
+
+        JSONObject fields = json.optJSONObject(FIELD_FIELDS);
+        if (change.isDeleted() || fields == null) {
+            return change;
+        }
+
+        int mask = 0;
+        if (fields.has(FIELD_TITLE)) {
+            change.setTitle(fields.getString(FIELD_TITLE));
+            mask |= TaskChange.FIELD_TITLE;
+        }
+        if (fields.has(FIELD_DESCRIPTION)) {
+            change.setDescription(fields.isNull(FIELD_DESCRIPTION) ? null : fields.getString(FIELD_DESCRIPTION));
+            mask |= TaskChange.FIELD_DESCRIPTION;
+        }
+        if (fields.has(FIELD_DUE_DATE)) {
+            change.setDueDate(fields.getLong(FIELD_DUE_DATE));
+            mask |= TaskChange.FIELD_DUE_DATE;
+        }
+        if (fields.has(FIELD_PRIORITY)) {
+            change.setPriority(fields.getInt(FIELD_PRIORITY));
+            mask |= TaskChange.FIELD_PRIORITY;
+        }
+        if (fields.has(FIELD_COMPLETED)) {
+            change.setCompleted(fields.getBoolean(FIELD_COMPLETED));
+            mask |= TaskChange.FIELD_COMPLETED;
+        }
+        change.setCreatedAt(fields.optLong(FIELD_CREATED_AT));
+        change.setFieldMask(mask);
+        return change;
+    }
+
+    /**
+     * Send one request with a gzip body, if any, and read the JSON response.
+     * Compression is negotiated explicitly, so the response is inflated here
+     * rather than by the platform.
+     */
+    private JSONObject request(String method, String url, JSONObject body) throws IOException, JSONException {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setRequestProperty("Accept", "application/json");
+            connection.setRequestProperty("Accept-Encoding", GZIP);
+
+            if (body != null) {
+                byte[] compressed = gzip(body.toString().getBytes(StandardCharsets.UTF_8));
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+                connection.setRequestProperty("Content-Encoding", GZIP);
+                connection.setFixedLengthStreamingMode(compressed.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(compressed);
+                }
+            }
+
+            int responseCode = connection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP error code: " + responseCode);
+            }
+
+            InputStream in = new BufferedInputStream(connection.getInputStream());
+            if (GZIP.equalsIgnoreCase(connection.getContentEncoding())) {
+                in = new GZIPInputStream(in);
+            }
+            try (InputStream response = in) {
+                return new JSONObject(readFully(response));
+            }
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -68,6 +68,28 @@ public class FileHelper {
         return new File[0];
     }
     
+    /**
+     * Writes a new file with the given content to the task's directory
+     * @param context Application context
+     * @param taskId Task ID
+     * @param fileName Name of the file to create
+     * @param content Bytes to write
+     * @return The written file
+     * @throws IOException If the directory or the file cannot be written
+     */
+    public File writeTaskFile(Context context, long taskId, String fileName, byte[] content) throws IOException {
+        File taskDir = new File(context.getFilesDir(), "tasks/" + taskId);
+        if (!taskDir.isDirectory() && !taskDir.mkdirs()) {
+            throw new IOException("Cannot create " + taskDir);
+        }
+        
+        File file = new File(taskDir, fileName);
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(content);
+        }
+        return file;
+    }
+    
     /**
      * Saves a file selected by the user to the task's directory
      * @param context Application context
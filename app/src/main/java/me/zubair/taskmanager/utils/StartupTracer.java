@@ -0,0 +1,171 @@
+package me.zubair.taskmanager.utils;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records how long each phase of a cold start takes, measured from process
+ * start. Phases are logged to logcat under the "StartupTracer" tag as they
+ * happen, and each completed startup is appended to a small log file that the
+ * diagnostics screen shows.
+ */
+public final class StartupTracer {
+    private static final String TAG = "StartupTracer";
+    // Completed startups kept in the log file
+    private static final int LOG_CAPACITY = 20;
+
+    // Phase names, in the order they normally occur
+    public static final String PHASE_APPLICATION_CREATED = "application_created";
+    public static final String PHASE_ACTIVITY_CREATED = "activity_created";
+    public static final String PHASE_DATABASE_READY = "database_ready";
+    public static final String PHASE_FIRST_DRAW = "first_draw";
+    public static final String PHASE_HOME_INTERACTIVE = "home_interactive";
+
+    private final long processStart;
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private boolean finished;
+
+    public StartupTracer() {
+        // Process start includes forking from zygote and binding the application
+        processStart = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                ? Process.getStartElapsedRealtime()
+                : SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Record that a phase was reached. Only the first call per phase counts, so
+     * later activity or fragment recreations do not overwrite the cold start.
+     *
+     * @param phase One of the PHASE_ constants
+     * @return True if this was the first time the phase was reached
+     */
+    public synchronized boolean mark(String phase) {
+        if (finished || phases.containsKey(phase)) {
+            return false;
+        }
+        long elapsed = SystemClock.elapsedRealtime() - processStart;
+        phases.put(phase, elapsed);
+        Log.i(TAG, phase + " at " + elapsed + " ms on " + Thread.currentThread().getName());
+        return true;
+    }
+
+    /**
+     * @return Milliseconds from process start to each phase reached so far, in order
+     */
+    public synchronized Map<String, Long> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    /**
+     * Stop recording and append this startup's phases as one line to the log
+     * file, dropping the oldest lines beyond the capacity. Blocking; call it on
+     * a background thread.
+     */
+    public void finish(File logFile) {
+        String line;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            line = format(phases);
+        }
+
+        List<String> lines = readLog(logFile);
+        lines.add(line);
+        while (lines.size() > LOG_CAPACITY) {
+            lines.remove(0);
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(logFile), StandardCharsets.UTF_8)) {
+            for (String entry : lines) {
+                writer.write(entry);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing startup log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read the recorded startups, oldest first. Each line lists the phases as
+     * "name=milliseconds" pairs.
+     */
+    public static List<String> readLog(File logFile) {
+        List<String> lines = new ArrayList<>();
+        if (!logFile.exists()) {
+            return lines;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(logFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading startup log: " + e.getMessage());
+        }
+        return lines;
+    }
+
+    /**
+     * Run an action once, right after the view's window draws its first frame
+     */
+    public static void runAfterFirstDraw(View view, Runnable action) {
+        Handler handler = new Handler(Looper.getMainLooper());
+        ViewTreeObserver.OnDrawListener listener = new ViewTreeObserver.OnDrawListener() {
+            private boolean drawn;
+
+            @Override
+            public void onDraw() {
+                if (drawn) {
+                    return;
+                }
+                drawn = true;
+                // Listeners cannot be removed during dispatch, and the frame is only
+                // on screen once onDraw returns, so continue on the next message
+                ViewTreeObserver.OnDrawListener self = this;
+                handler.postAtFrontOfQueue(() -> {
+                    if (view.getViewTreeObserver().isAlive()) {
+                        view.getViewTreeObserver().removeOnDrawListener(self);
+                    }
+                    action.run();
+                });
+            }
+        };
+        view.getViewTreeObserver().addOnDrawListener(listener);
+    }
+
+    private static String format(Map<String, Long> phases) {
+        StringBuilder line = new StringBuilder();
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            if (line.length() > 0) {
+                line.append(' ');
+            }
+            line.append(String.format(Locale.US, "%s=%d", phase.getKey(), phase.getValue()));
+        }
+        return line.toString();
+    }
+}
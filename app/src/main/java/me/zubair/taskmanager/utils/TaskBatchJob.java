@@ -0,0 +1,37 @@
+package me.zubair.taskmanager.utils;
+
+import me.zubair.taskmanager.database.TaskRepository;
+
+/**
+ * Base for blocking jobs that work through tasks in batches: progress reporting
+ * after each batch and cancellation at batch boundaries.
+ */
+public abstract class TaskBatchJob {
+    // Tasks are read and written in batches of this size
+    static final int BATCH_SIZE = 1000;
+
+    /**
+     * Progress listener, invoked on the thread running the job after each batch
+     */
+    public interface ProgressListener {
+        void onProgress(int tasksDone);
+    }
+
+    protected final TaskRepository repository;
+    private volatile boolean cancelled;
+
+    protected TaskBatchJob(TaskRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Stop the job at the next batch boundary. Safe to call from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
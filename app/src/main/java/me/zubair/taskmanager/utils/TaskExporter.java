@@ -0,0 +1,144 @@
+package me.zubair.taskmanager.utils;
+
+import android.util.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import me.zubair.taskmanager.database.TaskRepository;
+import me.zubair.taskmanager.database.TaskScope;
+import me.zubair.taskmanager.models.Task;
+
+/**
+ * Streams every task, archived ones included, to a JSON or CSV file. Tasks are
+ * read in ID-ordered batches and written straight through a buffered writer, so
+ * memory use does not grow with the number of tasks. Blocking; run it off the
+ * main thread.
+ */
+public class TaskExporter extends TaskTransfer {
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    public TaskExporter(TaskRepository repository) {
+        super(repository);
+    }
+
+    /**
+     * Write all tasks to a stream. The stream is flushed but not closed.
+     *
+     * @param out Destination stream
+     * @param format File format to write
+     * @param listener Receives the running total after each batch; may be null
+     * @return Number of tasks written; if cancelled, the output is incomplete
+     * @throws IOException If writing fails
+     */
+    public int export(OutputStream out, Format format, ProgressListener listener) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        return format == Format.CSV ? exportCsv(writer, listener) : exportJson(writer, listener);
+    }
+
+    private int exportJson(Writer writer, ProgressListener listener) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        json.name(FIELD_VERSION).value(FORMAT_VERSION);
+        json.name(FIELD_TASKS).beginArray();
+
+        int exported = 0;
+        long lastId = 0;
+        List<Task> batch;
+        do {
+            batch = repository.getTasksAfterId(TaskScope.ALL, lastId, BATCH_SIZE);
+            for (Task task : batch) {
+                json.beginObject();
+                json.name(FIELD_TITLE).value(task.getTitle());
+                json.name(FIELD_DESCRIPTION).value(task.getDescription());
+                json.name(FIELD_DUE_DATE).value(task.getDueDate());
+                json.name(FIELD_PRIORITY).value(task.getPriority());
+                json.name(FIELD_COMPLETED).value(task.isCompleted());
+                json.name(FIELD_CREATED_AT).value(task.getCreatedAt());
+                json.endObject();
+                lastId = task.getId();
+            }
+            exported += batch.size();
+            if (listener != null && !batch.isEmpty()) {
+                listener.onProgress(exported);
+            }
+        } while (batch.size() == BATCH_SIZE && !isCancelled());
+
+        json.endArray();
+        json.endObject();
+        // Flushes the writer chain without closing the caller's stream
+        json.flush();
+        return exported;
+    }
+
+    private int exportCsv(Writer writer, ProgressListener listener) throws IOException {
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(CSV_COLUMNS[i]);
+        }
+        writer.write("\r\n");
+
+        int exported = 0;
+        long lastId = 0;
+        List<Task> batch;
+        do {
+            batch = repository.getTasksAfterId(TaskScope.ALL, lastId, BATCH_SIZE);
+            for (Task task : batch) {
+                writeCsvField(writer, task.getTitle());
+                writer.write(',');
+                writeCsvField(writer, task.getDescription());
+                writer.write(',');
+                writer.write(Long.toString(task.getDueDate()));
+                writer.write(',');
+                writer.write(Integer.toString(task.getPriority()));
+                writer.write(',');
+                writer.write(task.isCompleted() ? "1" : "0");
+                writer.write(',');
+                writer.write(Long.toString(task.getCreatedAt()));
+                writer.write("\r\n");
+                lastId = task.getId();
+            }
+            exported += batch.size();
+            if (listener != null && !batch.isEmpty()) {
+                listener.onProgress(exported);
+            }
+        } while (batch.size() == BATCH_SIZE && !isCancelled());
+
+        writer.flush();
+        return exported;
+    }
+
+    // RFC 4180: quote fields containing separators, quotes or line breaks, doubling inner quotes
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
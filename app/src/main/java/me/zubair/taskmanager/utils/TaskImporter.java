@@ -0,0 +1,287 @@
+package me.zubair.taskmanager.utils;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import me.zubair.taskmanager.database.TaskRepository;
+import me.zubair.taskmanager.models.Task;
+
+/**
+ * Streams tasks from a JSON or CSV file into the database. The file is parsed
+ * incrementally and tasks are inserted in batches, one transaction per batch,
+ * so memory use does not grow with the size of the file. Blocking; run it off
+ * the main thread.
+ *
+ * Imported tasks always get new IDs. Batches committed before a cancellation or
+ * a parse error are kept.
+ */
+public class TaskImporter extends TaskTransfer {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    public TaskImporter(TaskRepository repository) {
+        super(repository);
+    }
+
+    /**
+     * Read tasks from a stream and add them. The stream is not closed.
+     *
+     * @param in Source stream
+     * @param format File format to parse
+     * @param listener Receives the running total after each batch; may be null
+     * @return Number of tasks added
+     * @throws IOException If reading fails or the file is malformed
+     */
+    public int importTasks(InputStream in, Format format, ProgressListener listener) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+        Batch batch = new Batch(listener);
+        if (format == Format.CSV) {
+            importCsv(reader, batch);
+        } else {
+            importJson(reader, batch);
+        }
+        batch.flush();
+        return batch.imported;
+    }
+
+    /**
+     * Accepts {"version": 1, "tasks": [...]} as written by {@link TaskExporter},
+     * or a bare array of task objects
+     */
+    private void importJson(Reader reader, Batch batch) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        if (json.peek() == JsonToken.BEGIN_ARRAY) {
+            readTaskArray(json, batch);
+            return;
+        }
+
+        json.beginObject();
+        while (json.hasNext() && !isCancelled()) {
+            if (FIELD_TASKS.equals(json.nextName())) {
+                readTaskArray(json, batch);
+            } else {
+                json.skipValue();
+            }
+        }
+    }
+
+    private void readTaskArray(JsonReader json, Batch batch) throws IOException {
+        json.beginArray();
+        while (json.hasNext() && !isCancelled()) {
+            batch.add(readTask(json));
+        }
+        if (!isCancelled()) {
+            json.endArray();
+        }
+    }
+
+    private static Task readTask(JsonReader json) throws IOException {
+        Task task = new Task();
+        task.setPriority(Task.PRIORITY_LOW);
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (name) {
+                case FIELD_TITLE:
+                    task.setTitle(json.nextString());
+                    break;
+                case FIELD_DESCRIPTION:
+                    task.setDescription(json.nextString());
+                    break;
+                case FIELD_DUE_DATE:
+                    task.setDueDate(json.nextLong());
+                    break;
+                case FIELD_PRIORITY:
+                    task.setPriority(json.nextInt());
+                    break;
+                case FIELD_COMPLETED:
+                    task.setCompleted(json.peek() == JsonToken.BOOLEAN ? json.nextBoolean() : json.nextInt() != 0);
+                    break;
+                case FIELD_CREATED_AT:
+                    task.setCreatedAt(json.nextLong());
+                    break;
+                default:
+                    json.skipValue();
+                    break;
+            }
+        }
+        json.endObject();
+        return task;
+    }
+
+    /**
+     * RFC 4180 CSV with a header row naming the columns. Columns may appear in any
+     * order; unknown columns are ignored.
+     */
+    private void importCsv(Reader reader, Batch batch) throws IOException {
+        CsvParser parser = new CsvParser(reader);
+        List<String> header = parser.nextRecord();
+        if (header == null) {
+            return;
+        }
+
+        int[] columnOf = new int[CSV_COLUMNS.length];
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            columnOf[i] = header.indexOf(CSV_COLUMNS[i]);
+        }
+        if (columnOf[0] == -1) {
+            throw new IOException("CSV header has no " + FIELD_TITLE + " column");
+        }
+
+        List<String> record;
+        while (!isCancelled() && (record = parser.nextRecord()) != null) {
+            Task task = new Task();
+            task.setTitle(field(record, columnOf[0]));
+            task.setDescription(field(record, columnOf[1]));
+            task.setDueDate(parseLong(field(record, columnOf[2]), parser.recordNumber));
+            String priority = field(record, columnOf[3]);
+            task.setPriority(priority == null || priority.isEmpty()
+                    ? Task.PRIORITY_LOW : (int) parseLong(priority, parser.recordNumber));
+            String completed = field(record, columnOf[4]);
+            task.setCompleted("1".equals(completed) || "true".equalsIgnoreCase(completed));
+            task.setCreatedAt(parseLong(field(record, columnOf[5]), parser.recordNumber));
+            batch.add(task);
+        }
+    }
+
+    private static String field(List<String> record, int column) {
+        return column >= 0 && column < record.size() ? record.get(column) : null;
+    }
+
+    private static long parseLong(String value, int recordNumber) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid number \"" + value + "\" in record " + recordNumber);
+        }
+    }
+
+    /**
+     * Collects parsed tasks and inserts them one transaction per batch
+     */
+    private final class Batch {
+        private final List<Task> tasks = new ArrayList<>(BATCH_SIZE);
+        private final ProgressListener listener;
+        private int imported;
+
+        Batch(ProgressListener listener) {
+            this.listener = listener;
+        }
+
+        void add(Task task) {
+            if (task.getTitle() == null || task.getTitle().isEmpty()) {
+                // Title is required by the schema; skip the row rather than fail the batch
+                return;
+            }
+            tasks.add(task);
+            if (tasks.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (tasks.isEmpty() || isCancelled()) {
+                return;
+            }
+            for (long id : repository.addTasks(tasks)) {
+                if (id > 0) {
+                    imported++;
+                }
+            }
+            tasks.clear();
+            if (listener != null) {
+                listener.onProgress(imported);
+            }
+        }
+    }
+
+    /**
+     * Minimal streaming RFC 4180 reader: quoted fields may contain separators,
+     * doubled quotes and line breaks
+     */
+    private static final class CsvParser {
+        private final Reader reader;
+        private final StringBuilder field = new StringBuilder();
+        private int recordNumber;
+        private boolean atEnd;
+
+        CsvParser(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return Fields of the next record, or null at the end of input
+         */
+        List<String> nextRecord() throws IOException {
+            if (atEnd) {
+                return null;
+            }
+
+            List<String> record = new ArrayList<>(CSV_COLUMNS.length);
+            boolean inQuotes = false;
+            boolean sawAnything = false;
+            field.setLength(0);
+            recordNumber++;
+
+            while (true) {
+                int c = reader.read();
+                if (c == -1) {
+                    atEnd = true;
+                    if (inQuotes) {
+                        throw new IOException("Unterminated quoted field in record " + recordNumber);
+                    }
+                    if (!sawAnything) {
+                        return null;
+                    }
+                    record.add(field.toString());
+                    return record;
+                }
+                sawAnything = true;
+
+                if (inQuotes) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int next = reader.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            inQuotes = false;
+                            if (next != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    inQuotes = true;
+                } else if (c == ',') {
+                    record.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r') {
+                    // Part of a CRLF line break; the '\n' ends the record
+                } else if (c == '\n') {
+                    record.add(field.toString());
+                    return record;
+                } else {
+                    field.append((char) c);
+                }
+            }
+        }
+    }
+}
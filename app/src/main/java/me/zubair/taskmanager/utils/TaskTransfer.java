@@ -0,0 +1,60 @@
+package me.zubair.taskmanager.utils;
+
+import java.util.Locale;
+
+import me.zubair.taskmanager.database.TaskRepository;
+
+/**
+ * Shared state for streaming task import and export: the file formats and the
+ * field names used in them.
+ */
+public abstract class TaskTransfer extends TaskBatchJob {
+    // Field names in JSON objects and CSV headers
+    static final String FIELD_TITLE = "title";
+    static final String FIELD_DESCRIPTION = "description";
+    static final String FIELD_DUE_DATE = "due_date";
+    static final String FIELD_PRIORITY = "priority";
+    static final String FIELD_COMPLETED = "completed";
+    static final String FIELD_CREATED_AT = "created_at";
+
+    static final String[] CSV_COLUMNS = {
+            FIELD_TITLE, FIELD_DESCRIPTION, FIELD_DUE_DATE, FIELD_PRIORITY, FIELD_COMPLETED, FIELD_CREATED_AT
+    };
+
+    // Top-level JSON fields
+    static final String FIELD_VERSION = "version";
+    static final String FIELD_TASKS = "tasks";
+    static final int FORMAT_VERSION = 1;
+
+    public enum Format {
+        JSON("application/json", "json"),
+        CSV("text/csv", "csv");
+
+        public final String mimeType;
+        public final String extension;
+
+        Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+
+        /**
+         * Guess the format of a file from its MIME type or name
+         *
+         * @return The matching format, or JSON if neither gives a hint
+         */
+        public static Format detect(String mimeType, String fileName) {
+            if (mimeType != null && (mimeType.contains("csv") || mimeType.equals("text/comma-separated-values"))) {
+                return CSV;
+            }
+            if (fileName != null && fileName.toLowerCase(Locale.ROOT).endsWith("." + CSV.extension)) {
+                return CSV;
+            }
+            return JSON;
+        }
+    }
+
+    protected TaskTransfer(TaskRepository repository) {
+        super(repository);
+    }
+}
@@ -0,0 +1,323 @@
+package me.zubair.taskmanager.utils;
+
+import android.content.Context;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import me.zubair.taskmanager.database.TaskRepository;
+import me.zubair.taskmanager.models.Task;
+
+/**
+ * Fills the database with synthetic tasks shaped like a heavy user's list, for
+ * benchmarks and manual profiling. Everything generated depends only on the
+ * {@link Profile}, so the same profile always produces the same tasks and
+ * attachment files. Blocking; run it off the main thread.
+ */
+public class TaskWorkloadGenerator extends TaskBatchJob {
+    private static final long MINUTE = 60L * 1000;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    private static final String[] VERBS = {
+            "Call", "Email", "Review", "Buy", "Fix", "Plan", "Book", "Pay", "Clean", "Prepare",
+            "Send", "Update", "Schedule", "Finish", "Renew", "Check", "Write", "Pick up"
+    };
+    private static final String[] NOUNS = {
+            "dentist", "report", "groceries", "car insurance", "birthday gift", "tax return",
+            "presentation", "team meeting", "electricity bill", "flight tickets", "garden",
+            "project proposal", "library books", "gym membership", "passport", "invoices"
+    };
+    private static final String[] WORDS = {
+            "remember", "to", "the", "before", "after", "with", "notes", "from", "last", "week",
+            "ask", "about", "deadline", "budget", "details", "follow", "up", "on", "call", "back",
+            "draft", "version", "and", "send", "copy", "check", "list", "items", "for", "Monday"
+    };
+
+    private final Context context;
+    private final Profile profile;
+    private final Random random;
+    private final FileHelper fileHelper = new FileHelper();
+
+    /**
+     * @param context Context whose files directory receives attachments
+     * @param repository Repository the tasks are added through
+     * @param profile Shape of the generated data
+     */
+    public TaskWorkloadGenerator(Context context, TaskRepository repository, Profile profile) {
+        super(repository);
+        this.context = context.getApplicationContext();
+        this.profile = profile;
+        this.random = new Random(profile.seed);
+    }
+
+    /**
+     * Add the profile's tasks and their attachments in batches
+     *
+     * @param listener Receives the running total after each batch; may be null
+     * @return Number of tasks added; fewer than the profile's count if cancelled
+     * @throws IOException If an attachment cannot be written
+     */
+    public int generate(ProgressListener listener) throws IOException {
+        int generated = 0;
+        while (generated < profile.taskCount && !isCancelled()) {
+            List<Task> batch = nextTasks(Math.min(BATCH_SIZE, profile.taskCount - generated));
+            long[] taskIds = repository.addTasks(batch);
+            for (long taskId : taskIds) {
+                // Draw for every task so that a failed insert does not shift later attachments
+                int attachments = random.nextFloat() < profile.attachmentRatio
+                        ? 1 + random.nextInt(profile.maxAttachmentsPerTask) : 0;
+                for (int i = 0; i < attachments; i++) {
+                    byte[] content = new byte[profile.minAttachmentBytes +
+                            random.nextInt(profile.maxAttachmentBytes - profile.minAttachmentBytes + 1)];
+                    random.nextBytes(content);
+                    if (taskId > 0) {
+                        fileHelper.writeTaskFile(context, taskId, "attachment_" + (i + 1) + ".bin", content);
+                    }
+                }
+            }
+            generated += batch.size();
+            if (listener != null) {
+                listener.onProgress(generated);
+            }
+        }
+        return generated;
+    }
+
+    /**
+     * Create the next tasks in the sequence without storing them, e.g. to time
+     * the insert alone. Interleaving this with {@link #generate} changes the
+     * sequence, so use one or the other per generator.
+     */
+    public List<Task> nextTasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(createTask());
+        }
+        return tasks;
+    }
+
+    private Task createTask() {
+        long today = profile.today;
+        float slot = random.nextFloat() * (profile.pastWeight + profile.todayWeight + profile.futureWeight);
+        long dueDate;
+        boolean past = false;
+        if (slot < profile.pastWeight) {
+            // Old tasks thin out the further back they go
+            long daysAgo = 1 + (long) exponential(profile.pastMeanDays);
+            dueDate = today - daysAgo * DAY + workingHour();
+            past = true;
+        } else if (slot < profile.pastWeight + profile.todayWeight) {
+            dueDate = today + random.nextInt(24 * 4) * 15 * MINUTE;
+        } else {
+            // Upcoming tasks bunch up in the next few days
+            long daysAhead = 1 + (long) exponential(profile.futureMeanDays);
+            dueDate = today + daysAhead * DAY + workingHour();
+        }
+
+        int priorityRoll = random.nextInt(profile.lowWeight + profile.mediumWeight + profile.highWeight);
+        int priority = priorityRoll < profile.lowWeight ? Task.PRIORITY_LOW
+                : priorityRoll < profile.lowWeight + profile.mediumWeight ? Task.PRIORITY_MEDIUM
+                : Task.PRIORITY_HIGH;
+        boolean completed = random.nextFloat() < (past ? profile.pastCompletionRatio : profile.futureCompletionRatio);
+
+        String title = VERBS[random.nextInt(VERBS.length)] + " " + NOUNS[random.nextInt(NOUNS.length)];
+        String description = random.nextFloat() < profile.descriptionRatio ? description() : null;
+
+        Task task = new Task(title, description, dueDate, priority, completed);
+        // Created some days before it was due, and never after the reference day
+        task.setCreatedAt(Math.min(dueDate, today) - (long) (exponential(7) * DAY));
+        return task;
+    }
+
+    private String description() {
+        int length = profile.minDescriptionLength +
+                random.nextInt(profile.maxDescriptionLength - profile.minDescriptionLength + 1);
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+
+    // A whole hour between 9:00 and 17:00
+    private long workingHour() {
+        return (9 + random.nextInt(9)) * HOUR;
+    }
+
+    private double exponential(double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+
+    /**
+     * Shape of a generated dataset. Setters return the profile so that they can be chained.
+     */
+    public static final class Profile {
+        int taskCount;
+        long seed = 1;
+        long referenceTime;
+        TimeZone timeZone = TimeZone.getDefault();
+        long today;
+        // Relative weights of tasks due before, during and after the reference day
+        float pastWeight = 0.45f;
+        float todayWeight = 0.05f;
+        float futureWeight = 0.5f;
+        double pastMeanDays = 30;
+        double futureMeanDays = 7;
+        int lowWeight = 6;
+        int mediumWeight = 3;
+        int highWeight = 1;
+        float pastCompletionRatio = 0.85f;
+        float futureCompletionRatio = 0.05f;
+        float descriptionRatio = 0.6f;
+        int minDescriptionLength = 20;
+        int maxDescriptionLength = 400;
+        float attachmentRatio;
+        int maxAttachmentsPerTask = 3;
+        int minAttachmentBytes = 1024;
+        int maxAttachmentBytes = 64 * 1024;
+
+        public Profile(int taskCount) {
+            this.taskCount = taskCount;
+            setReferenceTime(System.currentTimeMillis());
+        }
+
+        /**
+         * 1,000 tasks and no attachments
+         */
+        public static Profile light() {
+            return new Profile(1000);
+        }
+
+        /**
+         * 10,000 tasks, one in twenty with attachments
+         */
+        public static Profile heavy() {
+            return new Profile(10000).setAttachmentRatio(0.05f);
+        }
+
+        /**
+         * 100,000 tasks, one in fifty with attachments
+         */
+        public static Profile extreme() {
+            return new Profile(100000).setAttachmentRatio(0.02f);
+        }
+
+        public int getTaskCount() {
+            return taskCount;
+        }
+
+        /**
+         * @return Midnight at the start of the reference day, in the profile's time zone
+         */
+        public long getToday() {
+            return today;
+        }
+
+        public Profile setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Set the day that counts as today. Fix it to get identical due dates across days.
+         *
+         * @param time Any time on that day
+         */
+        public Profile setReferenceTime(long time) {
+            this.referenceTime = time;
+            updateToday();
+            return this;
+        }
+
+        /**
+         * Set the zone whose midnight starts the reference day. Defaults to the device's
+         * zone; fix it as well as the reference time to get the same tasks on every machine.
+         */
+        public Profile setTimeZone(TimeZone timeZone) {
+            this.timeZone = timeZone;
+            updateToday();
+            return this;
+        }
+
+        private void updateToday() {
+            Calendar calendar = Calendar.getInstance(timeZone);
+            calendar.setTimeInMillis(referenceTime);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            this.today = calendar.getTimeInMillis();
+        }
+
+        /**
+         * @param past Weight of overdue and finished tasks
+         * @param today Weight of tasks due on the reference day
+         * @param future Weight of upcoming tasks
+         * @param pastMeanDays Mean age of past tasks in days
+         * @param futureMeanDays Mean distance of upcoming tasks in days
+         */
+        public Profile setDueDates(float past, float today, float future, double pastMeanDays, double futureMeanDays) {
+            this.pastWeight = past;
+            this.todayWeight = today;
+            this.futureWeight = future;
+            this.pastMeanDays = pastMeanDays;
+            this.futureMeanDays = futureMeanDays;
+            return this;
+        }
+
+        public Profile setPriorityWeights(int low, int medium, int high) {
+            this.lowWeight = low;
+            this.mediumWeight = medium;
+            this.highWeight = high;
+            return this;
+        }
+
+        /**
+         * @param past Share of past tasks that are completed
+         * @param future Share of today's and upcoming tasks that are completed
+         */
+        public Profile setCompletionRatios(float past, float future) {
+            this.pastCompletionRatio = past;
+            this.futureCompletionRatio = future;
+            return this;
+        }
+
+        /**
+         * @param ratio Share of tasks with a description
+         * @param minLength Shortest description in characters
+         * @param maxLength Longest description in characters
+         */
+        public Profile setDescriptions(float ratio, int minLength, int maxLength) {
+            this.descriptionRatio = ratio;
+            this.minDescriptionLength = minLength;
+            this.maxDescriptionLength = maxLength;
+            return this;
+        }
+
+        public Profile setAttachmentRatio(float ratio) {
+            this.attachmentRatio = ratio;
+            return this;
+        }
+
+        /**
+         * @param maxPerTask Most attachments on one task
+         * @param minBytes Smallest attachment size
+         * @param maxBytes Largest attachment size
+         */
+        public Profile setAttachmentSizes(int maxPerTask, int minBytes, int maxBytes) {
+            this.maxAttachmentsPerTask = maxPerTask;
+            this.minAttachmentBytes = minBytes;
+            this.maxAttachmentBytes = maxBytes;
+            return this;
+        }
+    }
+}
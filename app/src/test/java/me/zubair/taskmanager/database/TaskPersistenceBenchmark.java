@@ -0,0 +1,274 @@
+package me.zubair.taskmanager.database;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import me.zubair.taskmanager.models.Task;
+import me.zubair.taskmanager.utils.TaskWorkloadGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times {@link TaskRepository} against a real SQLite database on the JVM, at
+ * several table sizes, and compares the results with a checked-in baseline.
+ * Datasets come from {@link TaskWorkloadGenerator} with a fixed seed and day, so
+ * they match what the debug menu generates for manual profiling.
+ *
+ * The suite is slow, so it only runs when asked for:
+ * <pre>
+ * ./gradlew :app:testDebugUnitTest --tests '*TaskPersistenceBenchmark' -Pbenchmark
+ * </pre>
+ * Results go to app/build/benchmarks/task-persistence.json. Adding
+ * -Pbenchmark.recordBaseline stores them as the new baseline in
+ * app/benchmarks/task-persistence-baseline.json; commit that file together with
+ * the persistence change it measures. Without -Pbenchmark.recordBaseline the
+ * test fails when an operation got slower than the baseline by more than
+ * benchmark.maxRatio.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class TaskPersistenceBenchmark {
+    private static final String DATABASE_NAME = "tasks_jvm_benchmark.db";
+    private static final String DEFAULT_SIZES = "1000,10000,100000";
+    // JVM timings are noisy; only flag an operation that got clearly slower
+    private static final double DEFAULT_MAX_RATIO = 1.5;
+    // Each measurement is repeated and the median kept
+    private static final int ROUNDS = 5;
+    private static final int WRITE_ITERATIONS = 200;
+    private static final int RANGE_QUERY_ITERATIONS = 100;
+    private static final long SEED = 1;
+    // 2025-01-01, fixed so that every run sees the same due dates
+    private static final long REFERENCE_TIME = 1735732800000L;
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private Context context;
+    private TaskDbHelper dbHelper;
+    private TaskRepository repository;
+    private final List<JSONObject> results = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("Run with -Pbenchmark", Boolean.getBoolean("benchmark.enabled"));
+        context = RuntimeEnvironment.getApplication();
+    }
+
+    @After
+    public void tearDown() {
+        closeDatabase();
+    }
+
+    @Test
+    public void benchmark() throws IOException, JSONException {
+        for (String size : System.getProperty("benchmark.sizes", DEFAULT_SIZES).split(",")) {
+            runAtSize(Integer.parseInt(size.trim()));
+        }
+
+        JSONObject report = new JSONObject();
+        report.put("environment", environment());
+        report.put("results", new JSONArray(results));
+        List<String> regressions = compareWithBaseline(report);
+
+        write(new File(System.getProperty("benchmark.outputFile", "build/benchmarks/task-persistence.json")), report);
+        if (Boolean.getBoolean("benchmark.recordBaseline")) {
+            write(new File(System.getProperty("benchmark.baselineFile", "benchmarks/task-persistence-baseline.json")),
+                    report);
+        } else {
+            assertTrue("Slower than baseline: " + TextUtils.join(", ", regressions), regressions.isEmpty());
+        }
+    }
+
+    private void runAtSize(int rows) {
+        openDatabase();
+        TaskWorkloadGenerator.Profile profile = new TaskWorkloadGenerator.Profile(rows)
+                .setSeed(SEED)
+                .setReferenceTime(REFERENCE_TIME)
+                .setTimeZone(TimeZone.getTimeZone("UTC"));
+        TaskWorkloadGenerator generator = new TaskWorkloadGenerator(context, repository, profile);
+        long today = profile.getToday();
+
+        // Bulk insert builds the table every other operation runs against
+        List<Task> dataset = generator.nextTasks(rows);
+        long bulkStart = System.nanoTime();
+        repository.addTasks(dataset);
+        record("bulkInsert", rows, rows, new long[] { System.nanoTime() - bulkStart });
+        assertEquals(rows, repository.getStatistics().getTotalCount());
+
+        long[] insertNanos = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Task> tasks = generator.nextTasks(WRITE_ITERATIONS);
+            long start = System.nanoTime();
+            for (Task task : tasks) {
+                repository.addTask(task);
+            }
+            insertNanos[round] = System.nanoTime() - start;
+        }
+        record("insert", rows, WRITE_ITERATIONS, insertNanos);
+
+        long[] rangeNanos = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < RANGE_QUERY_ITERATIONS; i++) {
+                // One-day windows from ten days back to ten days ahead, where most tasks are due
+                long windowStart = today + (i % 20 - 10) * DAY;
+                repository.getTasksDueBetween(windowStart, windowStart + DAY - 1);
+            }
+            rangeNanos[round] = System.nanoTime() - start;
+        }
+        record("getTasksDueBetween", rows, RANGE_QUERY_ITERATIONS, rangeNanos);
+
+        long[] allNanos = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            repository.getAllTasks();
+            allNanos[round] = System.nanoTime() - start;
+        }
+        record("getAllTasks", rows, 1, allNanos);
+
+        long[] updateNanos = new long[ROUNDS];
+        long afterId = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Task> tasks = repository.getTasksAfterId(afterId, WRITE_ITERATIONS);
+            afterId = tasks.get(tasks.size() - 1).getId();
+            long start = System.nanoTime();
+            for (Task task : tasks) {
+                task.setTitle(task.getTitle() + " (edited)");
+                task.setPriority(Task.PRIORITY_HIGH);
+                repository.updateTask(task);
+            }
+            updateNanos[round] = System.nanoTime() - start;
+        }
+        record("updateTask", rows, WRITE_ITERATIONS, updateNanos);
+
+        long[] deleteNanos = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Task> tasks = repository.getTasksAfterId(afterId, WRITE_ITERATIONS);
+            afterId = tasks.get(tasks.size() - 1).getId();
+            long start = System.nanoTime();
+            for (Task task : tasks) {
+                repository.deleteTask(task.getId());
+            }
+            deleteNanos[round] = System.nanoTime() - start;
+        }
+        record("deleteTask", rows, WRITE_ITERATIONS, deleteNanos);
+
+        closeDatabase();
+    }
+
+    private void openDatabase() {
+        context.deleteDatabase(DATABASE_NAME);
+        dbHelper = new TaskDbHelper(context, DATABASE_NAME);
+        repository = new TaskRepository(dbHelper);
+    }
+
+    private void closeDatabase() {
+        if (dbHelper != null) {
+            dbHelper.close();
+            dbHelper = null;
+            context.deleteDatabase(DATABASE_NAME);
+        }
+    }
+
+    private void record(String operation, int rows, int iterations, long[] roundNanos) {
+        long[] sorted = roundNanos.clone();
+        Arrays.sort(sorted);
+        try {
+            results.add(new JSONObject()
+                    .put("operation", operation)
+                    .put("rows", rows)
+                    .put("iterations", iterations)
+                    .put("median_ns_per_op", sorted[sorted.length / 2] / iterations)
+                    .put("min_ns_per_op", sorted[0] / iterations));
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+        System.out.println(String.format(Locale.US, "%s @ %d rows: %.1f us/op",
+                operation, rows, sorted[sorted.length / 2] / iterations / 1000.0));
+    }
+
+    /**
+     * Annotate each result with its baseline figure and ratio
+     *
+     * @return Descriptions of the results that are slower than allowed
+     */
+    private static List<String> compareWithBaseline(JSONObject report) throws IOException, JSONException {
+        List<String> regressions = new ArrayList<>();
+        File baselineFile = new File(System.getProperty("benchmark.baselineFile",
+                "benchmarks/task-persistence-baseline.json"));
+        if (!baselineFile.exists()) {
+            return regressions;
+        }
+
+        Map<String, Long> baseline = new HashMap<>();
+        JSONArray baselineResults = new JSONObject(new String(Files.readAllBytes(baselineFile.toPath()),
+                StandardCharsets.UTF_8)).getJSONArray("results");
+        for (int i = 0; i < baselineResults.length(); i++) {
+            JSONObject result = baselineResults.getJSONObject(i);
+            baseline.put(key(result), result.getLong("median_ns_per_op"));
+        }
+
+        double maxRatio = Double.parseDouble(System.getProperty("benchmark.maxRatio",
+                String.valueOf(DEFAULT_MAX_RATIO)));
+        JSONArray results = report.getJSONArray("results");
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            Long baselineNanos = baseline.get(key(result));
+            if (baselineNanos == null || baselineNanos == 0) {
+                continue;
+            }
+            double ratio = (double) result.getLong("median_ns_per_op") / baselineNanos;
+            result.put("baseline_ns_per_op", baselineNanos);
+            result.put("ratio", Math.round(ratio * 100) / 100.0);
+            if (ratio > maxRatio) {
+                regressions.add(String.format(Locale.US, "%s %.2fx", key(result), ratio));
+            }
+        }
+        return regressions;
+    }
+
+    private static String key(JSONObject result) throws JSONException {
+        return result.getString("operation") + "@" + result.getInt("rows");
+    }
+
+    private static JSONObject environment() throws JSONException {
+        return new JSONObject()
+                .put("java", System.getProperty("java.version"))
+                .put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"))
+                .put("processors", Runtime.getRuntime().availableProcessors())
+                .put("timestamp", System.currentTimeMillis());
+    }
+
+    private static void write(File file, JSONObject report) throws IOException, JSONException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        Files.write(file.toPath(), report.toString(2).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,173 @@
+package me.zubair.taskmanager.services;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives {@link TimingWheel} with a fake clock: ordering, cancellation, and
+ * dispatch latency for 100,000 reminders spread over three hours. With
+ * -Pbenchmark the same load is also timed and its heap cost printed.
+ */
+public class TimingWheelTest {
+    private static final long START = 1735732800123L;
+    private static final long HOUR = 60L * 60 * 1000;
+
+    private static final class FakeClock implements TimingWheel.Clock {
+        long now = START;
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    @Test
+    public void entries_fireOnTheirSecond() {
+        FakeClock clock = new FakeClock();
+        TimingWheel<String> wheel = new TimingWheel<>(clock);
+        wheel.schedule(START + 1500, "seconds");
+        wheel.schedule(START + 5 * 60 * 1000, "minutes");
+        wheel.schedule(START + 2 * HOUR + 1, "hours");
+        wheel.schedule(START - 1000, "overdue");
+
+        List<String> fired = new ArrayList<>();
+        // Jump from one announced tick to the next, as the service's driver does
+        long next;
+        while ((next = wheel.nextTickTime()) != -1) {
+            clock.now = next;
+            wheel.advance(timer -> {
+                fired.add(timer.getPayload());
+                assertTrue(clock.now >= timer.getDeadline());
+                if (!"overdue".equals(timer.getPayload())) {
+                    assertTrue(clock.now - timer.getDeadline() < TimingWheel.TICK_MILLIS);
+                }
+            });
+        }
+
+        assertEquals(4, fired.size());
+        assertEquals("overdue", fired.get(0));
+        assertEquals("seconds", fired.get(1));
+        assertEquals("minutes", fired.get(2));
+        assertEquals("hours", fired.get(3));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void cancelledEntries_doNotFire() {
+        FakeClock clock = new FakeClock();
+        TimingWheel<Integer> wheel = new TimingWheel<>(clock);
+        List<TimingWheel.Timer<Integer>> timers = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            timers.add(wheel.schedule(START + i * 7_000L, i));
+        }
+        for (int i = 0; i < timers.size(); i += 2) {
+            assertTrue(wheel.cancel(timers.get(i)));
+        }
+        assertFalse(wheel.cancel(timers.get(0)));
+        assertEquals(500, wheel.size());
+
+        List<Integer> fired = new ArrayList<>();
+        clock.now = START + 2 * HOUR;
+        wheel.advance(timer -> fired.add(timer.getPayload()));
+        assertEquals(500, fired.size());
+        for (int value : fired) {
+            assertEquals(1, value % 2);
+        }
+    }
+
+    @Test
+    public void deadlinesBeyondHorizon_areRejected() {
+        TimingWheel<String> wheel = new TimingWheel<>(new FakeClock());
+        assertNull(wheel.schedule(START + 61 * HOUR, "too far"));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void hundredThousandReminders_dispatchWithinOneTick() {
+        int count = 100_000;
+        FakeClock clock = new FakeClock();
+        TimingWheel<Integer> wheel = new TimingWheel<>(clock);
+        scheduleReminders(wheel, count);
+
+        long[] maxLatency = new long[1];
+        long[] lastDeadlineSecond = { Long.MIN_VALUE };
+        int[] fired = new int[1];
+        long next;
+        while ((next = wheel.nextTickTime()) != -1) {
+            clock.now = next;
+            wheel.advance(timer -> {
+                long latency = clock.now - timer.getDeadline();
+                maxLatency[0] = Math.max(maxLatency[0], latency);
+                long deadlineSecond = (timer.getDeadline() + TimingWheel.TICK_MILLIS - 1) / TimingWheel.TICK_MILLIS;
+                assertTrue(deadlineSecond >= lastDeadlineSecond[0]);
+                lastDeadlineSecond[0] = deadlineSecond;
+                fired[0]++;
+            });
+        }
+
+        assertEquals(count, fired[0]);
+        assertTrue(maxLatency[0] >= 0 && maxLatency[0] < TimingWheel.TICK_MILLIS);
+    }
+
+    @Test
+    public void hundredThousandReminders_measure() {
+        Assume.assumeTrue("Run with -Pbenchmark", Boolean.getBoolean("benchmark.enabled"));
+        int count = 100_000;
+        FakeClock clock = new FakeClock();
+
+        long heapBefore = usedMemory();
+        long insertStart = System.nanoTime();
+        TimingWheel<Integer> wheel = new TimingWheel<>(clock);
+        scheduleReminders(wheel, count);
+        long insertNanos = System.nanoTime() - insertStart;
+        long heapAfter = usedMemory();
+
+        long[] maxLatency = new long[1];
+        int[] fired = new int[1];
+        long dispatchNanos = 0;
+        long next;
+        while ((next = wheel.nextTickTime()) != -1) {
+            clock.now = next;
+            long tickStart = System.nanoTime();
+            wheel.advance(timer -> {
+                maxLatency[0] = Math.max(maxLatency[0], clock.now - timer.getDeadline());
+                fired[0]++;
+            });
+            dispatchNanos += System.nanoTime() - tickStart;
+        }
+
+        assertEquals(count, fired[0]);
+        System.out.println(String.format(Locale.US,
+                "TimingWheel: %d reminders, insert %.0f ns each, dispatch %.0f ns each, max latency %d ms, ~%d bytes each",
+                count, (double) insertNanos / count, (double) dispatchNanos / count, maxLatency[0],
+                (heapAfter - heapBefore) / count));
+    }
+
+    private static void scheduleReminders(TimingWheel<Integer> wheel, int count) {
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            // Imported schedules bunch up: half of the reminders share one hour
+            long offset = i % 2 == 0 ? HOUR + random.nextInt((int) HOUR) : random.nextInt((int) (3 * HOUR));
+            wheel.schedule(START + offset, i);
+        }
+    }
+
+    // Heap in use after a collection; close enough to compare two points of one run
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}